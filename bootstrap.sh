@@ -18,16 +18,10 @@ mkdir -p "$BIN_DIR" "$CACHE_DIR" "$LIB_DIR"
 
 # Download dependencies
 PICOLI_VERSION="4.7.6"
-TOML4J_VERSION="0.7.2"
-GSON_VERSION="2.10.1"
 
 PICOLI_JAR="picocli-${PICOLI_VERSION}.jar"
-TOML4J_JAR="toml4j-${TOML4J_VERSION}.jar"
-GSON_JAR="gson-${GSON_VERSION}.jar"
 
 PICOLI_URL="https://repo1.maven.org/maven2/info/picocli/picocli/${PICOLI_VERSION}/${PICOLI_JAR}"
-TOML4J_URL="https://repo1.maven.org/maven2/com/moandjiezana/toml/toml4j/${TOML4J_VERSION}/${TOML4J_JAR}"
-GSON_URL="https://repo1.maven.org/maven2/com/google/code/gson/gson/${GSON_VERSION}/${GSON_JAR}"
 
 # Download picocli
 if [ ! -f "$LIB_DIR/$PICOLI_JAR" ]; then
@@ -35,18 +29,6 @@ if [ ! -f "$LIB_DIR/$PICOLI_JAR" ]; then
     curl -sL "$PICOLI_URL" -o "$LIB_DIR/$PICOLI_JAR"
 fi
 
-# Download toml4j
-if [ ! -f "$LIB_DIR/$TOML4J_JAR" ]; then
-    echo "  -> Downloading toml4j ${TOML4J_VERSION}..."
-    curl -sL "$TOML4J_URL" -o "$LIB_DIR/$TOML4J_JAR"
-fi
-
-# Download Gson (required by toml4j)
-if [ ! -f "$LIB_DIR/$GSON_JAR" ]; then
-    echo "  -> Downloading gson ${GSON_VERSION}..."
-    curl -sL "$GSON_URL" -o "$LIB_DIR/$GSON_JAR"
-fi
-
 # Download JUnit 5 (for testing support)
 JUNIT_VERSION="5.11.3"
 JUNIT_PLATFORM_VERSION="1.11.3"
@@ -291,7 +273,6 @@ java-version = "21"
 
 [dependencies]
 "info.picocli:picocli" = "4.7.6"
-"com.moandjiezana.toml:toml4j" = "0.7.2"
 EOF
 fi
 
@@ -328,7 +309,7 @@ TARGET_DIR="$PROJECT_ROOT/target/classes"
 mkdir -p "$TARGET_DIR"
 
 # Build classpath
-CLASSPATH="$LIB_DIR/$PICOLI_JAR:$LIB_DIR/$GOOGLE_FORMAT_JAR:$LIB_DIR/$PALANTIR_JAR:$LIB_DIR/$PALANTIR_SPI_JAR:$LIB_DIR/$FJ_JAR:$LIB_DIR/$GUAVA_JAR:$LIB_DIR/$FAILUREACCESS_JAR:$LIB_DIR/$JACKSON_CORE_JAR:$LIB_DIR/$JACKSON_DATABIND_JAR:$LIB_DIR/$JACKSON_ANNOTATIONS_JAR:$LIB_DIR/$JACKSON_DATATYPE_JAR:$LIB_DIR/$JACKSON_MODULE_JAR:$LIB_DIR/$JSR305_JAR:$LIB_DIR/$ERROR_PRONE_JAR:$LIB_DIR/$TOML4J_JAR:$LIB_DIR/$GSON_JAR:$LIB_DIR/$ECLIPSE_JAR:$LIB_DIR/$EQUINOX_COMMON_JAR:$LIB_DIR/$CORE_RUNTIME_JAR:$LIB_DIR/$CORE_JOBS_JAR:$LIB_DIR/$CORE_CONTENTTYPE_JAR"
+CLASSPATH="$LIB_DIR/$PICOLI_JAR:$LIB_DIR/$GOOGLE_FORMAT_JAR:$LIB_DIR/$PALANTIR_JAR:$LIB_DIR/$PALANTIR_SPI_JAR:$LIB_DIR/$FJ_JAR:$LIB_DIR/$GUAVA_JAR:$LIB_DIR/$FAILUREACCESS_JAR:$LIB_DIR/$JACKSON_CORE_JAR:$LIB_DIR/$JACKSON_DATABIND_JAR:$LIB_DIR/$JACKSON_ANNOTATIONS_JAR:$LIB_DIR/$JACKSON_DATATYPE_JAR:$LIB_DIR/$JACKSON_MODULE_JAR:$LIB_DIR/$JSR305_JAR:$LIB_DIR/$ERROR_PRONE_JAR:$LIB_DIR/$ECLIPSE_JAR:$LIB_DIR/$EQUINOX_COMMON_JAR:$LIB_DIR/$CORE_RUNTIME_JAR:$LIB_DIR/$CORE_JOBS_JAR:$LIB_DIR/$CORE_CONTENTTYPE_JAR"
 
 # Compile all Java files with Java 21 bytecode target
 # Using --release 21 ensures Java 21 API compatibility and bytecode version
@@ -367,7 +348,7 @@ cat > "$BIN_DIR/jpm" << EOF
 #!/bin/bash
 # JVM arguments required for Palantir and Google Java Format (access to jdk.compiler internals)
 JVM_EXPORTS="--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED --add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED --add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED --add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED --add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED --add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED --add-opens=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED"
-java \$JVM_EXPORTS -cp "$JAR_FILE:$LIB_DIR/$PICOLI_JAR:$LIB_DIR/$GOOGLE_FORMAT_JAR:$LIB_DIR/$PALANTIR_JAR:$LIB_DIR/$PALANTIR_SPI_JAR:$LIB_DIR/$FJ_JAR:$LIB_DIR/$GUAVA_JAR:$LIB_DIR/$FAILUREACCESS_JAR:$LIB_DIR/$JACKSON_CORE_JAR:$LIB_DIR/$JACKSON_DATABIND_JAR:$LIB_DIR/$JACKSON_ANNOTATIONS_JAR:$LIB_DIR/$JACKSON_DATATYPE_JAR:$LIB_DIR/$JACKSON_MODULE_JAR:$LIB_DIR/$JSR305_JAR:$LIB_DIR/$ERROR_PRONE_JAR:$LIB_DIR/$TOML4J_JAR:$LIB_DIR/$GSON_JAR:$LIB_DIR/$ECLIPSE_JAR:$LIB_DIR/$EQUINOX_COMMON_JAR:$LIB_DIR/$CORE_RUNTIME_JAR:$LIB_DIR/$CORE_JOBS_JAR:$LIB_DIR/$CORE_CONTENTTYPE_JAR" jpm.Main "\$@"
+java \$JVM_EXPORTS -cp "$JAR_FILE:$LIB_DIR/$PICOLI_JAR:$LIB_DIR/$GOOGLE_FORMAT_JAR:$LIB_DIR/$PALANTIR_JAR:$LIB_DIR/$PALANTIR_SPI_JAR:$LIB_DIR/$FJ_JAR:$LIB_DIR/$GUAVA_JAR:$LIB_DIR/$FAILUREACCESS_JAR:$LIB_DIR/$JACKSON_CORE_JAR:$LIB_DIR/$JACKSON_DATABIND_JAR:$LIB_DIR/$JACKSON_ANNOTATIONS_JAR:$LIB_DIR/$JACKSON_DATATYPE_JAR:$LIB_DIR/$JACKSON_MODULE_JAR:$LIB_DIR/$JSR305_JAR:$LIB_DIR/$ERROR_PRONE_JAR:$LIB_DIR/$ECLIPSE_JAR:$LIB_DIR/$EQUINOX_COMMON_JAR:$LIB_DIR/$CORE_RUNTIME_JAR:$LIB_DIR/$CORE_JOBS_JAR:$LIB_DIR/$CORE_CONTENTTYPE_JAR" jpm.Main "\$@"
 EOF
 
 chmod +x "$BIN_DIR/jpm"
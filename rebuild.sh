@@ -13,7 +13,7 @@ BIN_DIR="$JPM_DIR/bin"
 echo "==> Rebuilding jpm..."
 
 # Classpath - include Google and Palantir formatters and all dependencies
-CLASSPATH="$LIB_DIR/picocli-4.7.6.jar:$LIB_DIR/google-java-format-1.24.0-all-deps.jar:$LIB_DIR/palantir-java-format-2.86.0.jar:$LIB_DIR/palantir-java-format-spi-2.86.0.jar:$LIB_DIR/functionaljava-4.8.jar:$LIB_DIR/guava-33.5.0-jre.jar:$LIB_DIR/failureaccess-1.0.2.jar:$LIB_DIR/jackson-core-2.18.2.jar:$LIB_DIR/jackson-databind-2.18.2.jar:$LIB_DIR/jackson-annotations-2.18.2.jar:$LIB_DIR/jackson-datatype-jdk8-2.18.2.jar:$LIB_DIR/jackson-module-parameter-names-2.18.2.jar:$LIB_DIR/jsr305-3.0.2.jar:$LIB_DIR/error_prone_annotations-2.36.0.jar:$LIB_DIR/toml4j-0.7.2.jar:$LIB_DIR/gson-2.10.1.jar:$LIB_DIR/org.eclipse.jdt.core-3.33.0.jar:$LIB_DIR/org.eclipse.equinox.common-3.18.0.jar:$LIB_DIR/org.eclipse.core.runtime-3.29.0.jar:$LIB_DIR/org.eclipse.core.jobs-3.14.0.jar:$LIB_DIR/org.eclipse.core.contenttype-3.9.0.jar:$LIB_DIR/org.eclipse.jface.text-3.24.0.jar:$LIB_DIR/org.eclipse.text-3.13.0.jar:$LIB_DIR/org.eclipse.core.commands-3.11.0.jar"
+CLASSPATH="$LIB_DIR/picocli-4.7.6.jar:$LIB_DIR/google-java-format-1.24.0-all-deps.jar:$LIB_DIR/palantir-java-format-2.86.0.jar:$LIB_DIR/palantir-java-format-spi-2.86.0.jar:$LIB_DIR/functionaljava-4.8.jar:$LIB_DIR/guava-33.5.0-jre.jar:$LIB_DIR/failureaccess-1.0.2.jar:$LIB_DIR/jackson-core-2.18.2.jar:$LIB_DIR/jackson-databind-2.18.2.jar:$LIB_DIR/jackson-annotations-2.18.2.jar:$LIB_DIR/jackson-datatype-jdk8-2.18.2.jar:$LIB_DIR/jackson-module-parameter-names-2.18.2.jar:$LIB_DIR/jsr305-3.0.2.jar:$LIB_DIR/error_prone_annotations-2.36.0.jar:$LIB_DIR/org.eclipse.jdt.core-3.33.0.jar:$LIB_DIR/org.eclipse.equinox.common-3.18.0.jar:$LIB_DIR/org.eclipse.core.runtime-3.29.0.jar:$LIB_DIR/org.eclipse.core.jobs-3.14.0.jar:$LIB_DIR/org.eclipse.core.contenttype-3.9.0.jar:$LIB_DIR/org.eclipse.jface.text-3.24.0.jar:$LIB_DIR/org.eclipse.text-3.13.0.jar:$LIB_DIR/org.eclipse.core.commands-3.11.0.jar"
 
 # Find all Java source files (excluding tests)
 SOURCE_FILES=$(find "$PROJECT_ROOT/src" -name "*.java" ! -path "*/test/*")
@@ -2,13 +2,21 @@ package jpm;
 
 import jpm.cli.AddCommand;
 import jpm.cli.BuildCommand;
+import jpm.cli.CacheCommand;
+import jpm.cli.CacheServerCommand;
 import jpm.cli.CleanCommand;
+import jpm.cli.DaemonCommand;
+import jpm.cli.FetchCommand;
 import jpm.cli.FormatCommand;
 import jpm.cli.NewCommand;
+import jpm.cli.OutdatedCommand;
 import jpm.cli.RemoveCommand;
 import jpm.cli.RunCommand;
+import jpm.cli.ServeCacheCommand;
 import jpm.cli.SyncCommand;
 import jpm.cli.TestCommand;
+import jpm.cli.UpdateCommand;
+import jpm.daemon.DaemonClient;
 import jpm.utils.UserOutput;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -22,18 +30,31 @@ import picocli.CommandLine.Command;
       NewCommand.class,
       AddCommand.class,
       RemoveCommand.class,
+      OutdatedCommand.class,
+      UpdateCommand.class,
       BuildCommand.class,
       RunCommand.class,
       TestCommand.class,
       FormatCommand.class,
       CleanCommand.class,
-      SyncCommand.class
+      SyncCommand.class,
+      FetchCommand.class,
+      ServeCacheCommand.class,
+      CacheServerCommand.class,
+      CacheCommand.class,
+      DaemonCommand.class
     })
 public class Main implements Runnable {
   public static void main(String[] args) {
     // Check Java version before starting
     JpmVersion.checkJavaVersion();
 
+    // With `jpm daemon start`, builds run in the daemon's warm JVM
+    var forwarded = DaemonClient.forward(args);
+    if (forwarded != DaemonClient.NOT_HANDLED) {
+      System.exit(forwarded);
+    }
+
     int exitCode = new CommandLine(new Main()).execute(args);
     System.exit(exitCode);
   }
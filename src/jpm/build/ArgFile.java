@@ -0,0 +1,57 @@
+package jpm.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import jpm.utils.FileUtils;
+
+/**
+ * Writes @argfiles for javac and the java launcher, which read arguments from a file when
+ * given "@path". This keeps long classpaths and source lists off the command line, away from
+ * the operating system's length limit (ARG_MAX, or 32K characters on Windows).
+ *
+ * Each argument goes on its own line in double quotes, with backslashes and quotes escaped,
+ * which both tools read back unchanged.
+ */
+public final class ArgFile {
+
+  private ArgFile() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Writes the arguments to the file unless it already holds exactly them, so repeated
+   * builds with the same arguments do not touch the file.
+   *
+   * @return the "@path" argument referring to the file
+   */
+  public static String write(File file, List<String> args) throws IOException {
+    var content = new StringBuilder();
+    for (var arg : args) {
+      content.append(quote(arg)).append('\n');
+    }
+    var text = content.toString();
+
+    var path = file.getAbsoluteFile().toPath();
+    if (!Files.isRegularFile(path)
+        || !Files.readString(path, StandardCharsets.UTF_8).equals(text)) {
+      FileUtils.ensureDirectory(path.getParent());
+      FileUtils.writeFileAtomically(path, text);
+    }
+    return "@" + path;
+  }
+
+  static String quote(String arg) {
+    var quoted = new StringBuilder(arg.length() + 2).append('"');
+    for (int i = 0; i < arg.length(); i++) {
+      var c = arg.charAt(i);
+      if (c == '\\' || c == '"') {
+        quoted.append('\\');
+      }
+      quoted.append(c);
+    }
+    return quoted.append('"').toString();
+  }
+}
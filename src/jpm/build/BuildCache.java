@@ -0,0 +1,499 @@
+package jpm.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import jpm.deps.BlobStore;
+import jpm.utils.Constants;
+import jpm.utils.FileCollector;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Cache of compile outputs shared by all projects of the user (~/.jpm/build-cache), so that
+ * compiling sources that were compiled the same way before (e.g. after switching git
+ * branches back and forth) restores the class files instead of running javac.
+ *
+ * An entry is a ZIP of the output directory plus the incremental state of that compile,
+ * keyed by a hash of everything that decides the output: the source paths and contents,
+ * the checksum of each classpath entry, the compiler arguments and the JDK. Entries are
+ * written to a temporary file and moved into place, so concurrent builds never see half an
+ * entry. Restoring an entry marks it used; once the cache outgrows its budget
+ * (JPM_BUILD_CACHE_MAX_SIZE, 0 disables the cache) the least recently used entries go.
+ *
+ * With JPM_BUILD_CACHE_REMOTE set, local misses are looked up in a {@link RemoteBuildCache}
+ * and downloaded entries kept locally; with JPM_BUILD_CACHE_PUSH=true new entries are also
+ * uploaded. A remote cache that fails is skipped for the rest of the compile.
+ *
+ * Hits and misses are appended to a journal for `jpm cache builds`, whose lines are folded into
+ * one line of totals once it grows past {@link #JOURNAL_FOLD_SIZE}.
+ */
+public final class BuildCache {
+
+  public static final String ENTRY_SUFFIX = ".zip";
+  public static final String JOURNAL_FILE_NAME = ".stats";
+
+  private static final String FORMAT = "jpm-build-cache 1";
+  private static final String CLASSES_PREFIX = "classes/";
+  private static final String STATE_ENTRY = "incremental-state";
+  private static final long JOURNAL_FOLD_SIZE = 64 * 1024;
+
+  /** Classpath checksums by path, size and modification time; JARs rarely change. */
+  private static final Map<String, String> checksums = new ConcurrentHashMap<>();
+
+  private final Path root;
+  private final long maxSize;
+  private final RemoteBuildCache remote;
+  private final boolean push;
+  private boolean remoteFailed;
+
+  public BuildCache(Path root, long maxSize) {
+    this(root, maxSize, null, false);
+  }
+
+  /**
+   * @param remote second tier to consult on local misses, or null
+   * @param push whether new entries are uploaded to the remote tier
+   */
+  public BuildCache(Path root, long maxSize, RemoteBuildCache remote, boolean push) {
+    this.root = root;
+    this.maxSize = maxSize;
+    this.remote = remote;
+    this.push = push;
+  }
+
+  /**
+   * Returns the user's build cache, or null when JPM_BUILD_CACHE_MAX_SIZE is 0.
+   *
+   * @throws IllegalArgumentException if JPM_BUILD_CACHE_MAX_SIZE is not a size
+   */
+  public static BuildCache local() {
+    var configured = System.getenv(Constants.BUILD_CACHE_MAX_SIZE_ENV);
+    var maxSize = configured == null || configured.isBlank()
+        ? Constants.DEFAULT_BUILD_CACHE_MAX_SIZE
+        : FileUtils.parseSize(configured);
+    if (maxSize == 0) {
+      return null;
+    }
+    return new BuildCache(FileUtils.getBuildCacheDir().toPath(), maxSize,
+        RemoteBuildCache.fromEnvironment(), RemoteBuildCache.pushEnabled());
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public RemoteBuildCache getRemote() {
+    return remote;
+  }
+
+  public boolean isPush() {
+    return push;
+  }
+
+  /**
+   * Hit and miss counts plus the entries currently stored.
+   *
+   * @param hits lookups answered by the local cache
+   * @param remoteHits lookups answered by the remote cache
+   * @param misses lookups neither could answer
+   */
+  public record Stats(long hits, long remoteHits, long misses, int entries, long size) {
+
+    public double hitRate() {
+      var total = hits + remoteHits + misses;
+      return total == 0 ? 0.0 : (double) (hits + remoteHits) / total;
+    }
+  }
+
+  /**
+   * Computes the key of a compile.
+   *
+   * @param sources content hash of every source by path relative to the source directory
+   * @param classpath dependency classpath (can be null or empty)
+   * @param compilerArgs additional arguments for javac
+   */
+  public static String key(Map<String, String> sources, String classpath, List<String> compilerArgs)
+      throws IOException {
+    var text = new StringBuilder(FORMAT).append('\n');
+    text.append("java ").append(System.getProperty("java.version"))
+        .append(Compiler.useInProcess(compilerArgs) ? " in-process" : " external").append('\n');
+    compilerArgs.forEach(arg -> text.append("arg ").append(arg).append('\n'));
+    if (classpath != null && !classpath.isEmpty()) {
+      for (var entry : classpath.split(File.pathSeparator)) {
+        text.append("classpath ").append(checksum(new File(entry))).append('\n');
+      }
+    }
+    sources.entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(e -> text.append("source ").append(e.getValue()).append(' ')
+            .append(e.getKey().replace(File.separatorChar, '/')).append('\n'));
+    return sha256(text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Replaces the class files in the output directory with those of the entry and writes the
+   * entry's incremental state to the state file.
+   *
+   * @return false on a miss, leaving the output directory untouched
+   * @throws IOException if the entry could not be read; the output directory then holds an
+   *     unknown subset of the classes
+   */
+  public boolean restore(String key, File outputDir, File stateFile) throws IOException {
+    var entry = entryPath(key);
+    var kind = 'H';
+    if (!Files.isRegularFile(entry)) {
+      if (!fetchRemote(key, entry)) {
+        journal('M', key);
+        return false;
+      }
+      kind = 'R';
+    }
+
+    for (var classFile : FileCollector.findFilesByExtension(outputDir, ".class")) {
+      Files.delete(classFile.toPath());
+    }
+    var outputPath = outputDir.toPath().toAbsolutePath().normalize();
+    try (var zip = new ZipInputStream(Files.newInputStream(entry))) {
+      var hasState = false;
+      ZipEntry zipEntry;
+      while ((zipEntry = zip.getNextEntry()) != null) {
+        var name = zipEntry.getName();
+        if (name.equals(STATE_ENTRY)) {
+          FileUtils.writeFileAtomically(stateFile.toPath(),
+              new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+          hasState = true;
+        } else if (name.startsWith(CLASSES_PREFIX) && !zipEntry.isDirectory()) {
+          var target = outputPath.resolve(name.substring(CLASSES_PREFIX.length())).normalize();
+          if (!target.startsWith(outputPath)) {
+            throw new IOException("Entry " + name + " points outside " + outputDir);
+          }
+          FileUtils.ensureDirectory(target.getParent());
+          Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      // ZipInputStream reads a file that is no ZIP at all as an empty one
+      if (!hasState) {
+        throw new IOException("Build cache entry " + key + " is damaged");
+      }
+    } catch (IOException e) {
+      // A damaged entry would fail the same way next time
+      Files.deleteIfExists(entry);
+      throw e;
+    }
+
+    Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    journal(kind, key);
+    if (kind == 'R') {
+      evict();
+    }
+    return true;
+  }
+
+  /**
+   * Downloads the entry from the remote cache into the local one.
+   *
+   * @return false if there is no remote cache, or it has no entry or failed
+   */
+  private boolean fetchRemote(String key, Path entry) {
+    if (remote == null || remoteFailed) {
+      return false;
+    }
+    Path temp = null;
+    try {
+      FileUtils.ensureDirectory(root);
+      temp = Files.createTempFile(root, key, ".tmp");
+      if (!remote.fetch(key, temp)) {
+        return false;
+      }
+      Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      temp = null;
+      UserOutput.info("Downloaded build cache entry from " + remote.describe());
+      return true;
+    } catch (IOException e) {
+      remoteFailed = true;
+      UserOutput.warn("Remote build cache " + remote.describe() + " failed: " + e.getMessage());
+      return false;
+    } finally {
+      deleteTemp(temp);
+    }
+  }
+
+  private void upload(String key, Path entry) {
+    if (remote == null || !push || remoteFailed) {
+      return;
+    }
+    try {
+      remote.upload(key, entry);
+      UserOutput.debug("Uploaded build cache entry " + key + " to " + remote.describe());
+    } catch (IOException e) {
+      remoteFailed = true;
+      UserOutput.warn("Could not upload to remote build cache " + remote.describe() + ": "
+          + e.getMessage());
+    }
+  }
+
+  private static void deleteTemp(Path temp) {
+    if (temp != null) {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException ignored) {
+        // Left for the next clear
+      }
+    }
+  }
+
+  /**
+   * Stores the output directory and its incremental state under the key, then evicts least
+   * recently used entries until the cache fits its budget. Failures are only logged: the
+   * compile itself succeeded.
+   */
+  public void store(String key, File outputDir, File stateFile) {
+    var entry = entryPath(key);
+    if (Files.exists(entry) || !stateFile.isFile()) {
+      // Entries without their incremental state would read as damaged
+      return;
+    }
+    Path temp = null;
+    try {
+      FileUtils.ensureDirectory(root);
+      temp = Files.createTempFile(root, key, ".tmp");
+      var outputPath = outputDir.toPath().toAbsolutePath().normalize();
+      try (var zip = new ZipOutputStream(Files.newOutputStream(temp))) {
+        // Class files are small; speed matters more than the last few percent of size
+        zip.setLevel(Deflater.BEST_SPEED);
+        zip.putNextEntry(new ZipEntry(STATE_ENTRY));
+        Files.copy(stateFile.toPath(), zip);
+        for (var file : FileCollector.findFilesByExtension(outputDir, ".class")) {
+          var relative = outputPath.relativize(file.toPath().toAbsolutePath().normalize());
+          zip.putNextEntry(new ZipEntry(
+              CLASSES_PREFIX + relative.toString().replace(File.separatorChar, '/')));
+          Files.copy(file.toPath(), zip);
+        }
+      }
+      // Another build may have stored the same key meanwhile; both entries are equivalent
+      Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      temp = null;
+      upload(key, entry);
+      evict();
+    } catch (IOException e) {
+      UserOutput.debug("Could not store " + outputDir + " in the build cache: " + e.getMessage());
+    } finally {
+      deleteTemp(temp);
+    }
+  }
+
+  /**
+   * Deletes least recently used entries until the cache fits its budget.
+   *
+   * @return the number of entries deleted
+   */
+  public int evict() throws IOException {
+    var entries = listEntries();
+    var total = 0L;
+    for (var entry : entries) {
+      total += entry.toFile().length();
+    }
+    entries.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+    var evicted = 0;
+    for (var entry : entries) {
+      if (total <= maxSize) {
+        break;
+      }
+      var size = entry.toFile().length();
+      if (Files.deleteIfExists(entry)) {
+        evicted++;
+      }
+      total -= size;
+    }
+    if (evicted > 0) {
+      UserOutput.debug("Evicted " + evicted + " build cache entries");
+    }
+    return evicted;
+  }
+
+  /**
+   * Deletes all entries and resets the hit and miss counts.
+   *
+   * @return the number of entries deleted
+   */
+  public int clear() throws IOException {
+    var entries = listEntries();
+    for (var entry : entries) {
+      Files.deleteIfExists(entry);
+    }
+    Files.deleteIfExists(root.resolve(JOURNAL_FILE_NAME));
+    return entries.size();
+  }
+
+  public Stats stats() throws IOException {
+    var journal = root.resolve(JOURNAL_FILE_NAME);
+    var lookups = Files.isRegularFile(journal)
+        ? Lookups.count(Files.readString(journal, StandardCharsets.UTF_8))
+        : new Lookups(0, 0, 0);
+    var entries = listEntries();
+    var size = 0L;
+    for (var entry : entries) {
+      size += entry.toFile().length();
+    }
+    return new Stats(
+        lookups.hits(), lookups.remoteHits(), lookups.misses(), entries.size(), size);
+  }
+
+  /**
+   * Lookup counts of a journal: "H", "R" and "M" lines for single lookups and a "T" line
+   * with the totals of folded lines.
+   */
+  private record Lookups(long hits, long remoteHits, long misses) {
+
+    static Lookups count(String journal) {
+      long hits = 0;
+      long remoteHits = 0;
+      long misses = 0;
+      for (var line : journal.split("\n")) {
+        if (line.startsWith("H ")) {
+          hits++;
+        } else if (line.startsWith("R ")) {
+          remoteHits++;
+        } else if (line.startsWith("M ")) {
+          misses++;
+        } else if (line.startsWith("T ")) {
+          var totals = line.split(" ");
+          try {
+            hits += Long.parseLong(totals[1]);
+            remoteHits += Long.parseLong(totals[2]);
+            misses += Long.parseLong(totals[3]);
+          } catch (RuntimeException e) {
+            // A damaged totals line only loses old counts
+          }
+        }
+      }
+      return new Lookups(hits, remoteHits, misses);
+    }
+  }
+
+  private List<Path> listEntries() throws IOException {
+    var entries = new ArrayList<Path>();
+    if (!Files.isDirectory(root)) {
+      return entries;
+    }
+    try (var files = Files.list(root)) {
+      files.filter(p -> p.getFileName().toString().endsWith(ENTRY_SUFFIX)).forEach(entries::add);
+    }
+    return entries;
+  }
+
+  private Path entryPath(String key) {
+    return root.resolve(key + ENTRY_SUFFIX);
+  }
+
+  /**
+   * Appends one line per lookup; a single short append needs no lock.
+   */
+  private void journal(char kind, String key) {
+    var journal = root.resolve(JOURNAL_FILE_NAME);
+    try {
+      FileUtils.ensureDirectory(root);
+      Files.writeString(journal, kind + " " + key + "\n",
+          StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      if (Files.size(journal) > JOURNAL_FOLD_SIZE) {
+        foldJournal(journal);
+      }
+    } catch (IOException e) {
+      UserOutput.debug("Could not write build cache journal: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the lines of the journal with one line of totals. Lines other builds append
+   * while the journal is read are carried over.
+   */
+  private void foldJournal(Path journal) throws IOException {
+    var content = Files.readAllBytes(journal);
+    var lookups = Lookups.count(new String(content, StandardCharsets.UTF_8));
+    var temp = Files.createTempFile(root, JOURNAL_FILE_NAME, ".tmp");
+    try {
+      Files.writeString(temp, "T " + lookups.hits() + " " + lookups.remoteHits() + " "
+          + lookups.misses() + "\n", StandardCharsets.UTF_8);
+      try (var in = Files.newInputStream(journal);
+          var out = Files.newOutputStream(temp, StandardOpenOption.APPEND)) {
+        in.skipNBytes(content.length);
+        in.transferTo(out);
+      }
+      Files.move(temp, journal, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      temp = null;
+    } finally {
+      deleteTemp(temp);
+    }
+  }
+
+  /**
+   * Checksums a classpath entry: the recorded SHA-256 of a cached JAR, the hash of any other
+   * file, or the hash of all files (by relative path) of a class directory.
+   */
+  private static String checksum(File entry) throws IOException {
+    if (entry.isDirectory()) {
+      // Relative paths with '/' so the same directory hashes the same on every platform
+      var base = entry.toPath().toAbsolutePath().normalize();
+      var files = new TreeMap<String, File>();
+      for (var file : FileCollector.findFilesByExtension(entry, "")) {
+        var relative = base.relativize(file.toPath().toAbsolutePath().normalize()).toString();
+        files.put(relative.replace(File.separatorChar, '/'), file);
+      }
+      var text = new StringBuilder();
+      for (var file : files.entrySet()) {
+        text.append(file.getKey())
+            .append(' ').append(FileUtils.sha256(file.getValue().toPath())).append('\n');
+      }
+      return sha256(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    if (!entry.isFile()) {
+      return "missing " + entry.getName();
+    }
+
+    var memoKey = entry.getAbsolutePath() + ' ' + entry.length() + ' ' + entry.lastModified();
+    var cached = checksums.get(memoKey);
+    if (cached != null) {
+      return cached;
+    }
+    var sidecar = new File(entry.getPath() + BlobStore.CHECKSUM_SUFFIX);
+    var checksum = sidecar.isFile()
+        ? FileUtils.readFile(sidecar).strip()
+        : FileUtils.sha256(entry.toPath());
+    checksums.put(memoKey, checksum);
+    return checksum;
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
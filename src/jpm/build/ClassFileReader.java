@@ -0,0 +1,388 @@
+package jpm.build;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reads the parts of a .class file that incremental compilation needs: the class and super
+ * types, the source file it came from, the classes it refers to, whether it declares
+ * compile-time constants, and a fingerprint of its ABI.
+ *
+ * References are collected from CONSTANT_Class entries and from every "Lname;" inside UTF-8
+ * entries, which covers descriptors, generic signatures and annotation types. Compile-time
+ * constants are inlined by javac and leave no reference behind, so callers treat classes with
+ * constants conservatively.
+ *
+ * The ABI fingerprint covers what other sources can compile against: the class header, its
+ * member classes, and all non-private, non-synthetic fields and methods with their
+ * signatures, thrown exceptions, constant values, annotation defaults and annotations.
+ * Package-private members count too, since sources in the same package use them. Method
+ * bodies, private members and debug information do not.
+ */
+public final class ClassFileReader {
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private static final int ACC_PRIVATE = 0x0002;
+  private static final int ACC_SUPER = 0x0020;
+  private static final int ACC_SYNTHETIC = 0x1000;
+  /** Method flags that do not change how callers compile: synchronized, native, strictfp. */
+  private static final int IMPLEMENTATION_FLAGS = 0x0020 | 0x0100 | 0x0800;
+
+  private final DataInputStream in;
+  private String[] utf8;
+  private int[] classIndex;
+  private Object[] values;
+  private boolean memberHasConstant;
+
+  private ClassFileReader(byte[] bytes) {
+    this.in = new DataInputStream(new ByteArrayInputStream(bytes));
+  }
+
+  /**
+   * What a class file declares and refers to. Class names are internal names
+   * ("com/example/Foo$Inner").
+   *
+   * @param name this class
+   * @param superName super class, or null for java/lang/Object and module-info
+   * @param interfaces directly implemented interfaces
+   * @param sourceFile SourceFile attribute, or null when compiled with -g:none
+   * @param references other classes named in the constant pool
+   * @param hasConstants whether a non-private field carries a ConstantValue attribute
+   * @param abi SHA-256 over the ABI of the class, as hex
+   */
+  public record ClassInfo(
+      String name,
+      String superName,
+      List<String> interfaces,
+      String sourceFile,
+      Set<String> references,
+      boolean hasConstants,
+      String abi) {
+
+    /**
+     * Returns the super class and interfaces.
+     */
+    public List<String> supertypes() {
+      var result = new ArrayList<String>(interfaces.size() + 1);
+      if (superName != null) {
+        result.add(superName);
+      }
+      result.addAll(interfaces);
+      return result;
+    }
+  }
+
+  public static ClassInfo read(File classFile) throws IOException {
+    return read(Files.readAllBytes(classFile.toPath()));
+  }
+
+  /**
+   * Parses a class file.
+   *
+   * @throws IOException if the bytes are not a well-formed class file
+   */
+  public static ClassInfo read(byte[] bytes) throws IOException {
+    var reader = new ClassFileReader(bytes);
+    try (var in = reader.in) {
+      return reader.readClass();
+    } catch (ArrayIndexOutOfBoundsException | NullPointerException | ClassCastException e) {
+      throw new IOException("Malformed class file", e);
+    }
+  }
+
+  private ClassInfo readClass() throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    in.readUnsignedShort(); // minor version
+    in.readUnsignedShort(); // major version
+    readConstantPool();
+
+    var access = in.readUnsignedShort();
+    var name = className(in.readUnsignedShort());
+    var superIndex = in.readUnsignedShort();
+    var superName = superIndex == 0 ? null : className(superIndex);
+    var interfaces = new ArrayList<String>();
+    var interfaceCount = in.readUnsignedShort();
+    for (int i = 0; i < interfaceCount; i++) {
+      interfaces.add(className(in.readUnsignedShort()));
+    }
+
+    var hasConstants = false;
+    var fields = new ArrayList<String>();
+    var fieldCount = in.readUnsignedShort();
+    for (int i = 0; i < fieldCount; i++) {
+      var member = readMember();
+      if (member != null) {
+        fields.add(member);
+        hasConstants |= memberHasConstant;
+      }
+    }
+    var methods = new ArrayList<String>();
+    var methodCount = in.readUnsignedShort();
+    for (int i = 0; i < methodCount; i++) {
+      var member = readMember();
+      if (member != null) {
+        methods.add(member);
+      }
+    }
+
+    var header = new StringBuilder("class ")
+        .append(Integer.toHexString(access & ~ACC_SUPER)).append(' ').append(name)
+        .append(" extends ").append(superName)
+        .append(" implements ").append(String.join(",", new TreeSet<>(interfaces)));
+    String sourceFile = null;
+    var attributeCount = in.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      var attributeName = utf8[in.readUnsignedShort()];
+      var length = in.readInt();
+      switch (attributeName) {
+        case "SourceFile" -> sourceFile = utf8[in.readUnsignedShort()];
+        case "Signature" -> header.append(" signature ").append(utf8[in.readUnsignedShort()]);
+        case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations" ->
+            readAnnotations(header);
+        case "PermittedSubclasses" -> {
+          var count = in.readUnsignedShort();
+          header.append(" permits");
+          for (int j = 0; j < count; j++) {
+            header.append(' ').append(className(in.readUnsignedShort()));
+          }
+        }
+        case "InnerClasses" -> readInnerClasses(name, header);
+        default -> in.skipBytes(length);
+      }
+    }
+
+    var references = new TreeSet<String>();
+    for (int i = 1; i < utf8.length; i++) {
+      if (classIndex[i] != 0) {
+        addClassName(references, utf8[classIndex[i]]);
+      } else if (utf8[i] != null) {
+        addDescriptorTypes(references, utf8[i]);
+      }
+    }
+    references.remove(name);
+
+    Collections.sort(fields);
+    Collections.sort(methods);
+    var abi = new StringBuilder(header).append('\n');
+    fields.forEach(field -> abi.append(field).append('\n'));
+    methods.forEach(method -> abi.append(method).append('\n'));
+    return new ClassInfo(
+        name, superName, interfaces, sourceFile, references, hasConstants, sha256(abi));
+  }
+
+  private void readConstantPool() throws IOException {
+    var count = in.readUnsignedShort();
+    utf8 = new String[count];
+    classIndex = new int[count];
+    values = new Object[count];
+    var stringIndex = new int[count];
+    for (int i = 1; i < count; i++) {
+      var tag = in.readUnsignedByte();
+      switch (tag) {
+        case CONSTANT_UTF8 -> utf8[i] = in.readUTF();
+        case CONSTANT_CLASS -> classIndex[i] = in.readUnsignedShort();
+        case CONSTANT_STRING -> stringIndex[i] = in.readUnsignedShort();
+        case CONSTANT_INTEGER -> values[i] = in.readInt();
+        case CONSTANT_FLOAT -> values[i] = in.readFloat();
+        case CONSTANT_LONG -> values[i++] = in.readLong(); // takes two slots
+        case CONSTANT_DOUBLE -> values[i++] = in.readDouble();
+        case CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE -> in.skipBytes(2);
+        case CONSTANT_METHOD_HANDLE -> in.skipBytes(3);
+        case CONSTANT_FIELDREF, CONSTANT_METHODREF, CONSTANT_INTERFACE_METHODREF,
+            CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC, CONSTANT_INVOKE_DYNAMIC -> in.skipBytes(4);
+        default -> throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+    for (int i = 1; i < count; i++) {
+      if (stringIndex[i] != 0) {
+        values[i] = '"' + utf8[stringIndex[i]] + '"';
+      }
+    }
+  }
+
+  /**
+   * Reads a field or method and returns its ABI line, or null for private and synthetic
+   * members.
+   */
+  private String readMember() throws IOException {
+    memberHasConstant = false;
+    var access = in.readUnsignedShort();
+    var name = utf8[in.readUnsignedShort()];
+    var descriptor = utf8[in.readUnsignedShort()];
+    var line = new StringBuilder()
+        .append(Integer.toHexString(access & ~IMPLEMENTATION_FLAGS)).append(' ')
+        .append(name).append(' ').append(descriptor);
+    var attributeCount = in.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      var attributeName = utf8[in.readUnsignedShort()];
+      var length = in.readInt();
+      switch (attributeName) {
+        case "ConstantValue" -> {
+          line.append(" = ").append(values[in.readUnsignedShort()]);
+          memberHasConstant = true;
+        }
+        case "Signature" -> line.append(" signature ").append(utf8[in.readUnsignedShort()]);
+        case "Exceptions" -> {
+          var count = in.readUnsignedShort();
+          line.append(" throws");
+          for (int j = 0; j < count; j++) {
+            line.append(' ').append(className(in.readUnsignedShort()));
+          }
+        }
+        case "AnnotationDefault" -> {
+          line.append(" default ");
+          readElementValue(line);
+        }
+        case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations" ->
+            readAnnotations(line);
+        default -> in.skipBytes(length);
+      }
+    }
+    return (access & (ACC_PRIVATE | ACC_SYNTHETIC)) != 0 ? null : line.toString();
+  }
+
+  /**
+   * Appends the member classes declared by this class with their flags; making one private
+   * or static changes how other sources compile against it.
+   */
+  private void readInnerClasses(String name, StringBuilder out) throws IOException {
+    var count = in.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      var inner = in.readUnsignedShort();
+      var outer = in.readUnsignedShort();
+      in.readUnsignedShort(); // simple name
+      var access = in.readUnsignedShort();
+      if (outer != 0 && name.equals(className(outer))) {
+        out.append(" member ").append(className(inner))
+            .append(' ').append(Integer.toHexString(access));
+      }
+    }
+  }
+
+  private void readAnnotations(StringBuilder out) throws IOException {
+    var count = in.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      out.append(' ');
+      readAnnotation(out);
+    }
+  }
+
+  private void readAnnotation(StringBuilder out) throws IOException {
+    out.append('@').append(utf8[in.readUnsignedShort()]).append('(');
+    var pairs = in.readUnsignedShort();
+    for (int i = 0; i < pairs; i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append(utf8[in.readUnsignedShort()]).append('=');
+      readElementValue(out);
+    }
+    out.append(')');
+  }
+
+  private void readElementValue(StringBuilder out) throws IOException {
+    var tag = (char) in.readUnsignedByte();
+    switch (tag) {
+      case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z' ->
+          out.append(tag).append(values[in.readUnsignedShort()]);
+      case 's' -> out.append('"').append(utf8[in.readUnsignedShort()]).append('"');
+      case 'e' -> out.append(utf8[in.readUnsignedShort()])
+          .append('.').append(utf8[in.readUnsignedShort()]);
+      case 'c' -> out.append(utf8[in.readUnsignedShort()]).append(".class");
+      case '@' -> readAnnotation(out);
+      case '[' -> {
+        var count = in.readUnsignedShort();
+        out.append('{');
+        for (int i = 0; i < count; i++) {
+          if (i > 0) {
+            out.append(',');
+          }
+          readElementValue(out);
+        }
+        out.append('}');
+      }
+      default -> throw new IOException("Unknown annotation element tag " + tag);
+    }
+  }
+
+  private String className(int index) {
+    return utf8[classIndex[index]];
+  }
+
+  /**
+   * Adds a CONSTANT_Class name; array classes ("[Lcom/example/Foo;") name their element type.
+   */
+  private static void addClassName(Set<String> references, String name) {
+    if (name.startsWith("[")) {
+      addDescriptorTypes(references, name);
+    } else {
+      references.add(name);
+    }
+  }
+
+  /**
+   * Adds every "Lname;" or "Lname<" found in a descriptor or signature.
+   */
+  private static void addDescriptorTypes(Set<String> references, String text) {
+    var start = text.indexOf('L');
+    while (start >= 0) {
+      var end = start + 1;
+      while (end < text.length() && isNameChar(text.charAt(end))) {
+        end++;
+      }
+      if (end > start + 1 && end < text.length()
+          && (text.charAt(end) == ';' || text.charAt(end) == '<')) {
+        references.add(text.substring(start + 1, end));
+      }
+      start = text.indexOf('L', end);
+    }
+  }
+
+  private static boolean isNameChar(char c) {
+    return c != ';' && c != '<' && c != '>' && c != '(' && c != ')' && c != '['
+        && c != '.' && c != ':' && !Character.isWhitespace(c);
+  }
+
+  private static String sha256(CharSequence text) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256")
+          .digest(text.toString().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package jpm.build;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import jpm.deps.ResolvedDependency;
@@ -30,6 +31,20 @@ public class ClasspathBuilder {
     return String.join(File.pathSeparator, paths);
   }
 
+  /**
+   * Returns the classpath with relative entries made absolute against the working directory,
+   * for tools that run in another directory (the external javac runs in the source root).
+   */
+  public static String toAbsolute(String classpath) {
+    if (classpath == null || classpath.isEmpty()) {
+      return classpath;
+    }
+    return Arrays.stream(classpath.split(File.pathSeparator))
+        .filter(entry -> !entry.isEmpty())
+        .map(entry -> new File(entry).getAbsolutePath())
+        .collect(Collectors.joining(File.pathSeparator));
+  }
+
   public static String combineClasspaths(String... classpaths) {
     var result = new StringBuilder();
     var first = true;
@@ -2,22 +2,62 @@ package jpm.build;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import jpm.utils.Constants;
 import jpm.utils.FileCollector;
 import jpm.utils.ProcessExecutor;
+import jpm.utils.UserOutput;
 
 /**
- * Compiles Java source files using the system javac compiler.
- * Provides a clean interface for compiling with configurable classpath and compiler arguments.
+ * Compiles Java source files, in-process through the javax.tools API when the running JDK
+ * provides a system compiler, otherwise by launching the external javac.
+ *
+ * The in-process path skips a JVM start and keeps javac's classes warm for later compiles in
+ * the same process. JPM_COMPILER=external forces the external javac.
+ *
+ * {@link #compile} only recompiles what changed since the last compile into the same output
+ * directory; see {@link IncrementalCompiler}.
  */
 public class Compiler {
 
+  private static final JavaCompiler SYSTEM_COMPILER = ToolProvider.getSystemJavaCompiler();
+
   /**
    * Record representing the result of a compilation operation.
    */
-  public record CompileResult(boolean success, String message, int exitCode) {}
+  public record CompileResult(
+      boolean success, String message, int exitCode, List<CompileDiagnostic> diagnostics) {
+
+    public CompileResult(boolean success, String message, int exitCode) {
+      this(success, message, exitCode, List.of());
+    }
+
+    public long errorCount() {
+      return diagnostics.stream().filter(d -> d.kind() == Diagnostic.Kind.ERROR).count();
+    }
+  }
+
+  /**
+   * A compiler message. Only the in-process compiler reports them structurally; the external
+   * javac prints its messages directly.
+   *
+   * @param file source file, or null for messages not tied to a file
+   * @param line 1-based line, or -1
+   * @param column 1-based column, or -1
+   */
+  public record CompileDiagnostic(
+      Diagnostic.Kind kind, String file, long line, long column, String message) {}
 
   /**
    * Compiles all Java source files in the source directory.
@@ -49,7 +89,32 @@ public class Compiler {
 
     // Find all Java source files
     var sourceFiles = FileCollector.findRelativePathsByExtension(sourceDir, ".java");
+    return compile(sourceDir, sourceFiles, outputDir, classpath, compilerArgs);
+  }
+
+  /**
+   * Compiles a source set into its output directory. Sources under roots nested in the
+   * set's root that belong to another set (src/test/java inside src) are left out.
+   *
+   * @param sourceSet sources and output directory
+   * @param classpath dependency classpath (can be null or empty)
+   * @param compilerArgs additional arguments for javac
+   * @return CompileResult with success status and exit code
+   * @throws IOException if compilation fails
+   */
+  public CompileResult compile(SourceSet sourceSet, String classpath, List<String> compilerArgs)
+      throws IOException {
+    return compile(sourceSet.root(), sourceSet.sourceFiles(), sourceSet.outputDir(), classpath,
+        compilerArgs);
+  }
 
+  private CompileResult compile(
+      File sourceDir,
+      List<String> sourceFiles,
+      File outputDir,
+      String classpath,
+      List<String> compilerArgs)
+      throws IOException {
     if (sourceFiles.isEmpty()) {
       return new CompileResult(false, "No Java source files found in " + sourceDir, 1);
     }
@@ -57,34 +122,193 @@ public class Compiler {
     // Ensure output directory exists
     outputDir.mkdirs();
 
-    // Build and execute javac command
-    var command = buildJavacCommand(outputDir, classpath, compilerArgs, sourceFiles);
-    return executeJavac(command, sourceDir);
+    return new IncrementalCompiler(this)
+        .compile(sourceDir, sourceFiles, outputDir, classpath, compilerArgs);
   }
 
   /**
-   * Builds the javac command with all necessary arguments.
+   * Compiles exactly the given sources, without incremental bookkeeping.
+   *
+   * @param sourceDir directory the source paths are relative to
+   * @param sourceFiles sources to compile
+   * @param outputDir directory for compiled .class files
+   * @param classpath classpath (can be null or empty)
+   * @param compilerArgs additional arguments for javac
+   * @return CompileResult with success status and exit code
+   * @throws IOException if compilation fails
    */
-  private List<String> buildJavacCommand(
-      File outputDir, String classpath, List<String> compilerArgs, List<String> sourceFiles) {
+  public CompileResult compileFiles(
+      File sourceDir,
+      List<String> sourceFiles,
+      File outputDir,
+      String classpath,
+      List<String> compilerArgs)
+      throws IOException {
+    var options = buildOptions(outputDir, classpath, compilerArgs);
+    if (useInProcess(compilerArgs)) {
+      try {
+        return compileInProcess(options, sourceDir, sourceFiles);
+      } catch (IllegalArgumentException e) {
+        // Options the in-process compiler rejects: let javac itself report on them
+        UserOutput.debug("In-process compiler rejected options (" + e.getMessage()
+            + "), using external javac");
+      }
+    }
 
+    // Build and execute javac command
+    // Options and sources go into an @argfile next to the output directory; -J options
+    // configure the javac launcher itself and are not allowed in argfiles
     var command = new ArrayList<String>();
+    var arguments = new ArrayList<String>();
     command.add("javac");
-    command.add("-d");
-    command.add(outputDir.getAbsolutePath());
+    for (var option : options) {
+      (option.startsWith("-J") ? command : arguments).add(option);
+    }
+    arguments.addAll(sourceFiles);
+    command.add(ArgFile.write(argFile(outputDir), arguments));
+    return executeJavac(command, sourceDir);
+  }
+
+  /**
+   * Returns the javac @argfile for an output directory: target/.jpm-javac-classes.args for
+   * target/classes.
+   */
+  static File argFile(File outputDir) {
+    return new File(outputDir.getAbsoluteFile().getParentFile(),
+        ".jpm-javac-" + outputDir.getName() + ".args");
+  }
+
+  /**
+   * Returns whether to compile in this JVM: a system compiler is available, it is not
+   * disabled through JPM_COMPILER, and no argument needs a separate javac JVM (-J).
+   */
+  static boolean useInProcess(List<String> compilerArgs) {
+    if (SYSTEM_COMPILER == null) {
+      return false;
+    }
+    if ("external".equalsIgnoreCase(System.getenv(Constants.COMPILER_ENV))) {
+      return false;
+    }
+    return compilerArgs.stream().noneMatch(arg -> arg.startsWith("-J"));
+  }
+
+  /**
+   * Builds the javac options shared by both compile paths.
+   */
+  private List<String> buildOptions(File outputDir, String classpath, List<String> compilerArgs) {
+    var options = new ArrayList<String>();
+    options.add("-d");
+    options.add(outputDir.getAbsolutePath());
 
     if (classpath != null && !classpath.isEmpty()) {
-      command.add("-cp");
-      command.add(classpath);
+      // Absolute: the external javac runs in the source root, and --materialize puts
+      // entries relative to the project directory (target/lib/...) on the classpath
+      options.add("-cp");
+      options.add(ClasspathBuilder.toAbsolute(classpath));
     }
 
-    if (!compilerArgs.isEmpty()) {
-      command.addAll(compilerArgs);
+    options.addAll(compilerArgs);
+    return options;
+  }
+
+  /**
+   * Runs the system compiler in this JVM and prints its diagnostics the way javac does.
+   */
+  private CompileResult compileInProcess(
+      List<String> options, File sourceDir, List<String> sourceFiles) throws IOException {
+    var collector = new DiagnosticCollector<JavaFileObject>();
+    var output = new StringWriter();
+    boolean success;
+    try (var fileManager =
+        SYSTEM_COMPILER.getStandardFileManager(collector, null, StandardCharsets.UTF_8)) {
+      var files = sourceFiles.stream().map(path -> new File(sourceDir, path)).toList();
+      var units = fileManager.getJavaFileObjectsFromFiles(files);
+      success = SYSTEM_COMPILER
+          .getTask(output, fileManager, collector, options, null, units)
+          .call();
     }
 
-    command.addAll(sourceFiles);
+    var diagnostics = new ArrayList<CompileDiagnostic>();
+    for (var diagnostic : collector.getDiagnostics()) {
+      diagnostics.add(toCompileDiagnostic(diagnostic));
+      System.err.println(format(diagnostic));
+    }
+    if (!output.toString().isEmpty()) {
+      System.err.print(output);
+    }
+
+    var result = new CompileResult(success, "", success ? 0 : 1, diagnostics);
+    var errors = result.errorCount();
+    var warnings = diagnostics.stream()
+        .filter(d -> d.kind() == Diagnostic.Kind.WARNING
+            || d.kind() == Diagnostic.Kind.MANDATORY_WARNING)
+        .count();
+    if (errors > 0) {
+      System.err.println(errors + (errors == 1 ? " error" : " errors"));
+    }
+    if (warnings > 0) {
+      System.err.println(warnings + (warnings == 1 ? " warning" : " warnings"));
+    }
+    return result;
+  }
+
+  private static CompileDiagnostic toCompileDiagnostic(
+      Diagnostic<? extends JavaFileObject> diagnostic) {
+    var source = diagnostic.getSource();
+    return new CompileDiagnostic(
+        diagnostic.getKind(),
+        source == null ? null : Path.of(source.toUri()).toString(),
+        diagnostic.getLineNumber() == Diagnostic.NOPOS ? -1 : diagnostic.getLineNumber(),
+        diagnostic.getColumnNumber() == Diagnostic.NOPOS ? -1 : diagnostic.getColumnNumber(),
+        diagnostic.getMessage(Locale.getDefault()));
+  }
+
+  /**
+   * Formats a diagnostic like javac: "File.java:12: error: message", then the source line
+   * with a caret under the position.
+   */
+  private static String format(Diagnostic<? extends JavaFileObject> diagnostic) {
+    var kind = switch (diagnostic.getKind()) {
+      case ERROR -> "error";
+      case WARNING, MANDATORY_WARNING -> "warning";
+      default -> "note";
+    };
+    var message = diagnostic.getMessage(Locale.getDefault());
+    var source = diagnostic.getSource();
+    if (source == null || diagnostic.getLineNumber() == Diagnostic.NOPOS) {
+      return (diagnostic.getKind() == Diagnostic.Kind.NOTE ? "Note" : kind) + ": " + message;
+    }
+
+    var text = new StringBuilder()
+        .append(displayPath(source)).append(':').append(diagnostic.getLineNumber())
+        .append(": ").append(kind).append(": ").append(message);
+    try {
+      var content = source.getCharContent(true);
+      var position = (int) diagnostic.getPosition();
+      var start = position;
+      while (start > 0 && content.charAt(start - 1) != '\n') {
+        start--;
+      }
+      var end = position;
+      while (end < content.length() && content.charAt(end) != '\n'
+          && content.charAt(end) != '\r') {
+        end++;
+      }
+      text.append('\n').append(content, start, end)
+          .append('\n').append(" ".repeat(position - start)).append('^');
+    } catch (IOException | IndexOutOfBoundsException e) {
+      // Source not readable: the location line alone still points at the problem
+    }
+    return text.toString();
+  }
 
-    return command;
+  /**
+   * Returns the source path relative to the working directory when it lies below it.
+   */
+  private static Path displayPath(JavaFileObject source) {
+    var path = Path.of(source.toUri());
+    var workingDir = Path.of("").toAbsolutePath();
+    return path.startsWith(workingDir) ? workingDir.relativize(path) : path;
   }
 
   /**
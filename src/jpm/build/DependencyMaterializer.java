@@ -0,0 +1,92 @@
+package jpm.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jpm.deps.ResolvedDependency;
+import jpm.utils.FileUtils;
+
+/**
+ * Places resolved dependency JARs in a project-local directory (target/lib) so the classpath
+ * is short and relative. JARs are hardlinked to the cache (reflinked or copied when the
+ * project is on another filesystem), so materializing costs no extra disk in the common case.
+ */
+public class DependencyMaterializer {
+
+  /**
+   * Result of a materialization.
+   *
+   * @param classpath relative classpath of the materialized JARs, in dependency order
+   * @param placements how many JARs were hardlinked, reflinked or copied (unchanged ones
+   *     are not counted)
+   */
+  public record Result(String classpath, Map<FileUtils.Placement, Integer> placements) {}
+
+  /**
+   * Materializes the JARs into libDir and removes JARs left there by earlier runs.
+   *
+   * @param dependencies the resolved dependencies
+   * @param libDir the target directory, relative to the project directory
+   * @return the relative classpath and placement counts
+   * @throws IOException if a JAR cannot be placed
+   */
+  public static Result materialize(List<ResolvedDependency> dependencies, File libDir)
+      throws IOException {
+    FileUtils.ensureDirectory(libDir);
+    var placements = new EnumMap<FileUtils.Placement, Integer>(FileUtils.Placement.class);
+    var entries = new ArrayList<String>();
+    var names = new HashSet<String>();
+
+    for (var dep : dependencies) {
+      var name = dep.artifactId() + "-" + dep.version() + ".jar";
+      if (!names.add(name)) {
+        // Same artifactId from two groups: disambiguate with the group
+        name = dep.groupId() + "." + name;
+        names.add(name);
+      }
+
+      var target = new File(libDir, name).toPath();
+      if (!isCurrent(dep.jarFile().toPath(), target)) {
+        placements.merge(FileUtils.linkOrCopy(dep.jarFile().toPath(), target), 1, Integer::sum);
+      }
+      entries.add(new File(libDir, name).getPath());
+    }
+
+    removeStale(libDir, names);
+    return new Result(String.join(File.pathSeparator, entries), placements);
+  }
+
+  /**
+   * A target is current if it is the cached file itself, or a copy of the same size that is
+   * not older than it.
+   */
+  private static boolean isCurrent(Path source, Path target) throws IOException {
+    if (!Files.exists(target)) {
+      return false;
+    }
+    if (Files.isSameFile(source, target)) {
+      return true;
+    }
+    return Files.size(source) == Files.size(target)
+        && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(source)) >= 0;
+  }
+
+  private static void removeStale(File libDir, Set<String> keep) throws IOException {
+    var existing = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
+    if (existing == null) {
+      return;
+    }
+    for (var jar : existing) {
+      if (!keep.contains(jar.getName())) {
+        Files.deleteIfExists(jar.toPath());
+      }
+    }
+  }
+}
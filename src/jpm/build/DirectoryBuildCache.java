@@ -0,0 +1,137 @@
+package jpm.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.UUID;
+import jpm.utils.FileUtils;
+
+/**
+ * Remote build cache in a shared directory, typically an NFS mount all CI agents see, and
+ * the storage behind `jpm cache-server`.
+ *
+ * Layout: &lt;dir&gt;/9c/9c1e...entry (first two hex digits of the key as fan-out directory).
+ * Uploads are written to a uniquely named temporary file next to the entry and renamed into
+ * place, which is atomic on NFS as well.
+ */
+public class DirectoryBuildCache extends RemoteBuildCache {
+
+  public static final String ENTRY_SUFFIX = ".entry";
+
+  private final Path root;
+
+  public DirectoryBuildCache(Path root) {
+    this.root = root.toAbsolutePath().normalize();
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  @Override
+  public boolean fetch(String key, Path target) throws IOException {
+    var entry = entryPath(key);
+    if (!Files.isRegularFile(entry)) {
+      return false;
+    }
+    try (var in = Files.newInputStream(entry)) {
+      readEntry(in, target);
+    }
+    touch(entry);
+    return true;
+  }
+
+  @Override
+  public void upload(String key, Path entry) throws IOException {
+    if (Files.exists(entryPath(key))) {
+      return;
+    }
+    var header = header(entry);
+    var temp = writeTemp(key, out -> {
+      out.write(header);
+      Files.copy(entry, out);
+    });
+    Files.move(temp, entryPath(key), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Opens an entry as stored, header line included, or returns null if there is none.
+   */
+  public InputStream open(String key) throws IOException {
+    var entry = entryPath(key);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    touch(entry);
+    return Files.newInputStream(entry);
+  }
+
+  /**
+   * Stores an entry received as stored (header line included) once its checksum matches.
+   *
+   * @throws IOException if the bytes do not match their header; nothing is stored then
+   */
+  public void store(String key, InputStream in) throws IOException {
+    var temp = writeTemp(key, in::transferTo);
+    try (var stored = Files.newInputStream(temp)) {
+      readEntry(stored, OutputStream.nullOutputStream());
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    Files.move(temp, entryPath(key), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @Override
+  public String describe() {
+    return root.toString();
+  }
+
+  private interface EntryWriter {
+    void write(OutputStream out) throws IOException;
+  }
+
+  /**
+   * Writes an entry to a temporary file next to its final location, for the caller to move
+   * into place.
+   */
+  private Path writeTemp(String key, EntryWriter writer) throws IOException {
+    if (!isValidKey(key)) {
+      throw new IOException("Invalid build cache key " + key);
+    }
+    var entry = entryPath(key);
+    FileUtils.ensureDirectory(entry.getParent());
+    // Not createTempFile: its owner-only permissions would hide the entry from other users
+    var temp = entry.resolveSibling("." + key + "." + UUID.randomUUID() + ".tmp");
+    try (var out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW)) {
+      writer.write(out);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    return temp;
+  }
+
+  private Path entryPath(String key) {
+    return root.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+  }
+
+  /**
+   * Marks the entry used so that whoever trims the shared directory can go by modification
+   * time. Read-only mounts simply keep the old time.
+   */
+  private static void touch(Path entry) {
+    try {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // Best effort
+    }
+  }
+}
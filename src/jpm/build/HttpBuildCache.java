@@ -0,0 +1,75 @@
+package jpm.build;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import jpm.net.HttpClientManager;
+
+/**
+ * Remote build cache behind an HTTP server: GET &lt;url&gt;/&lt;key&gt; downloads an entry
+ * (404 when there is none), PUT &lt;url&gt;/&lt;key&gt; uploads one. Entries travel in their
+ * stored form, header line included, so both sides verify the checksum. `jpm cache-server`
+ * implements the protocol; so does any WebDAV-style server that stores PUT bodies as files.
+ */
+public class HttpBuildCache extends RemoteBuildCache {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+  private final String baseUrl;
+
+  public HttpBuildCache(String baseUrl) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+  }
+
+  @Override
+  public boolean fetch(String key, Path target) throws IOException {
+    var request = HttpRequest.newBuilder(URI.create(baseUrl + key))
+        .timeout(TIMEOUT)
+        .GET()
+        .build();
+    var response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+    try (var body = response.body()) {
+      if (response.statusCode() == 404) {
+        return false;
+      }
+      if (response.statusCode() != 200) {
+        throw new IOException("GET " + baseUrl + key + " returned " + response.statusCode());
+      }
+      readEntry(body, target);
+      return true;
+    }
+  }
+
+  @Override
+  public void upload(String key, Path entry) throws IOException {
+    var request = HttpRequest.newBuilder(URI.create(baseUrl + key))
+        .timeout(TIMEOUT)
+        .PUT(HttpRequest.BodyPublishers.concat(
+            HttpRequest.BodyPublishers.ofByteArray(header(entry)),
+            HttpRequest.BodyPublishers.ofFile(entry)))
+        .build();
+    var response = send(request, HttpResponse.BodyHandlers.discarding());
+    var status = response.statusCode();
+    if (status != 200 && status != 201 && status != 204) {
+      throw new IOException("PUT " + baseUrl + key + " returned " + status);
+    }
+  }
+
+  @Override
+  public String describe() {
+    return baseUrl;
+  }
+
+  private static <T> HttpResponse<T> send(
+      HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+    try {
+      return HttpClientManager.getClient().send(request, handler);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted", e);
+    }
+  }
+}
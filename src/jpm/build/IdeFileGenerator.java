@@ -3,7 +3,9 @@ package jpm.build;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import jpm.config.JpmConfig;
+import jpm.config.SourcesConfig;
 import jpm.deps.CacheManager;
 import jpm.deps.DependencyResolver;
 import jpm.utils.FileUtils;
@@ -71,16 +73,12 @@ public class IdeFileGenerator {
       }
     }
 
-    String javaVersion = config.package_().javaVersion();
-    String classpathXml = XmlUtils.generateClasspathFile(javaVersion, dependencyPaths);
-
-    FileUtils.writeFile(classpathFile, classpathXml);
+    FileUtils.writeFile(classpathFile, classpathXml(projectDir, config, dependencyPaths));
   }
 
   public static void generateClasspathFileWithDeps(File projectDir, JpmConfig config)
       throws IOException {
     var classpathFile = new File(projectDir, ".classpath");
-    var javaVersion = config.package_().javaVersion();
     var dependencyPaths = new ArrayList<String>();
     var cacheManager = new CacheManager();
 
@@ -112,7 +110,20 @@ public class IdeFileGenerator {
       }
     }
 
-    String classpathXml = XmlUtils.generateClasspathFile(javaVersion, dependencyPaths);
-    FileUtils.writeFile(classpathFile, classpathXml);
+    FileUtils.writeFile(classpathFile, classpathXml(projectDir, config, dependencyPaths));
+  }
+
+  /**
+   * Generates the .classpath content with the project's source roots; the test root is only
+   * listed when it exists, since Eclipse reports missing source folders as errors.
+   */
+  private static String classpathXml(
+      File projectDir, JpmConfig config, List<String> dependencyPaths) {
+    var sources = config.sources() != null ? config.sources() : new SourcesConfig();
+    var testRoot = new File(projectDir, sources.getTest()).isDirectory()
+        ? sources.getTest()
+        : null;
+    return XmlUtils.generateClasspathFile(
+        config.package_().javaVersion(), dependencyPaths, sources.getMain(), testRoot);
   }
 }
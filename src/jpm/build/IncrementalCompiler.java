@@ -0,0 +1,555 @@
+package jpm.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import jpm.utils.FileCollector;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Recompiles only the sources that changed since the last compile into the same output
+ * directory, plus the sources that depend on them.
+ *
+ * The state of the last compile lives next to the output directory, in
+ * target/.jpm-incremental-&lt;output dir name&gt;: a hash of the options and classpath, and
+ * for every source its content hash and the classes it produced, with their ABI
+ * fingerprint, supertypes and the classes they refer to (read from the class files by
+ * {@link ClassFileReader}).
+ *
+ * Sources whose content changed or whose classes are missing are recompiled first. Their
+ * dependents (sources that refer to or extend one of their classes, directly or through a
+ * subclass) follow only if the ABI of a class changed, and so on until no fingerprint
+ * changes; an edit inside a method body recompiles one file. Class files of removed and
+ * recompiled sources are deleted first. Everything is recompiled when there is no state, the
+ * options or classpath changed, or the ABI of a class with compile-time constants changed
+ * (javac inlines those into their users without leaving a reference).
+ *
+ * Before compiling anything, the {@link BuildCache} is asked for the output of an earlier
+ * compile of exactly these sources and options; every successful compile is stored there.
+ */
+public class IncrementalCompiler {
+
+  static final String STATE_PREFIX = ".jpm-incremental-";
+
+  private static final String FORMAT = "format 2";
+  private static final Pattern PACKAGE =
+      Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+  private final Compiler compiler;
+  private final BuildCache buildCache;
+
+  public IncrementalCompiler(Compiler compiler) {
+    this(compiler, BuildCache.local());
+  }
+
+  /**
+   * @param buildCache cache to restore whole compiles from, or null
+   */
+  public IncrementalCompiler(Compiler compiler, BuildCache buildCache) {
+    this.compiler = compiler;
+    this.buildCache = buildCache;
+  }
+
+  /**
+   * A source as of the last successful compile.
+   *
+   * @param hash SHA-256 of the content
+   * @param classes classes compiled from it
+   */
+  private record SourceState(String hash, List<ClassFileReader.ClassInfo> classes) {}
+
+  /**
+   * A source as found now.
+   *
+   * @param hash SHA-256 of the content
+   * @param key package directory and file name ("com/example/Foo.java"), which is how class
+   *     files name their source
+   */
+  private record Source(String hash, String key) {}
+
+  /**
+   * Compiles the sources, incrementally when the state of the last compile allows it.
+   *
+   * @param sourceDir root of the sources
+   * @param sourceFiles all sources, relative to sourceDir
+   * @param outputDir directory for .class files
+   * @param classpath dependency classpath (can be null or empty)
+   * @param compilerArgs additional arguments for javac
+   */
+  public Compiler.CompileResult compile(
+      File sourceDir,
+      List<String> sourceFiles,
+      File outputDir,
+      String classpath,
+      List<String> compilerArgs)
+      throws IOException {
+
+    var stateFile = stateFile(outputDir);
+    var sources = scanSources(sourceDir, sourceFiles);
+    var optionsHash = optionsHash(classpath, compilerArgs);
+
+    var previous = loadState(stateFile, optionsHash);
+    var changed = new TreeSet<String>();
+    var removed = new TreeSet<String>();
+    if (previous != null) {
+      for (var entry : sources.entrySet()) {
+        var state = previous.get(entry.getKey());
+        if (state == null || !state.hash().equals(entry.getValue().hash())
+            || !classesExist(outputDir, state)) {
+          changed.add(entry.getKey());
+        }
+      }
+      removed.addAll(previous.keySet());
+      removed.removeAll(sources.keySet());
+
+      if (changed.isEmpty() && removed.isEmpty()) {
+        UserOutput.debug("Classes in " + outputDir + " are up to date");
+        return new Compiler.CompileResult(true, "Up to date", 0);
+      }
+    }
+
+    String key = null;
+    if (buildCache != null) {
+      var hashes = new LinkedHashMap<String, String>();
+      sources.forEach((path, source) -> hashes.put(path, source.hash()));
+      key = BuildCache.key(hashes, classpath, compilerArgs);
+      try {
+        if (buildCache.restore(key, outputDir, stateFile)) {
+          adoptState(stateFile, optionsHash);
+          UserOutput.info("Restored " + outputDir + " from the build cache");
+          return new Compiler.CompileResult(true, "Restored from the build cache", 0);
+        }
+      } catch (IOException e) {
+        UserOutput.debug("Build cache entry unusable, compiling everything: " + e.getMessage());
+        previous = null;
+      }
+    }
+
+    var result = previous == null
+        ? compileAll(sourceDir, sources, outputDir, classpath, compilerArgs, stateFile,
+            optionsHash)
+        : recompile(sourceDir, sources, previous, changed, removed, outputDir, classpath,
+            compilerArgs, stateFile, optionsHash);
+    if (key != null && result.success()) {
+      buildCache.store(key, outputDir, stateFile);
+    }
+    return result;
+  }
+
+  /**
+   * Recompiles the changed sources and, round by round, the dependents of classes whose ABI
+   * changed.
+   */
+  private Compiler.CompileResult recompile(
+      File sourceDir,
+      Map<String, Source> sources,
+      Map<String, SourceState> previous,
+      Set<String> changed,
+      Set<String> removed,
+      File outputDir,
+      String classpath,
+      List<String> compilerArgs,
+      File stateFile,
+      String optionsHash)
+      throws IOException {
+
+    // Classes of removed sources are gone, which their users must notice
+    var changedApi = new HashMap<String, ClassFileReader.ClassInfo>();
+    for (var path : removed) {
+      var state = previous.remove(path);
+      deleteClasses(outputDir, state.classes());
+      state.classes().forEach(info -> changedApi.put(info.name(), info));
+    }
+    if (changedApi.values().stream().anyMatch(ClassFileReader.ClassInfo::hasConstants)) {
+      return compileAll(sourceDir, sources, outputDir, classpath, compilerArgs, stateFile,
+          optionsHash);
+    }
+
+    var incrementalClasspath = classpath == null || classpath.isEmpty()
+        ? outputDir.getAbsolutePath()
+        : outputDir.getAbsolutePath() + File.pathSeparator + classpath;
+    var compiled = new HashSet<String>();
+    var dirty = new TreeSet<String>(changed);
+    dirty.addAll(dependents(previous, changedApi.keySet(), sources.keySet()));
+    var result = new Compiler.CompileResult(true, "Removed classes of deleted sources", 0);
+    while (!dirty.isEmpty()) {
+      if (compiled.isEmpty() && dirty.size() == sources.size()) {
+        return compileAll(sourceDir, sources, outputDir, classpath, compilerArgs, stateFile,
+            optionsHash);
+      }
+      UserOutput.info(compiled.isEmpty()
+          ? "Recompiling " + dirty.size() + " of " + sources.size() + " sources"
+          : "Recompiling " + dirty.size() + " dependent source" + (dirty.size() == 1 ? "" : "s"));
+
+      var before = new HashMap<String, ClassFileReader.ClassInfo>();
+      for (var path : dirty) {
+        var state = previous.remove(path);
+        if (state != null) {
+          deleteClasses(outputDir, state.classes());
+          state.classes().forEach(info -> before.put(info.name(), info));
+        }
+      }
+      // Saved before compiling so that a failed compile leaves the sources dirty
+      saveState(stateFile, optionsHash, previous);
+
+      result = compiler.compileFiles(
+          sourceDir, new ArrayList<>(dirty), outputDir, incrementalClasspath, compilerArgs);
+      if (!result.success()) {
+        return result;
+      }
+
+      var owned = new HashSet<String>();
+      previous.values().forEach(state -> state.classes().forEach(c -> owned.add(c.name())));
+      var produced = attributeClasses(outputDir, sources, dirty, owned);
+      changedApi.clear();
+      changedApi.putAll(before);
+      for (var path : dirty) {
+        var classes = produced.getOrDefault(path, List.of());
+        previous.put(path, new SourceState(sources.get(path).hash(), classes));
+        for (var info : classes) {
+          var old = changedApi.remove(info.name());
+          if (old == null || !old.abi().equals(info.abi())) {
+            changedApi.put(info.name(), old != null && old.hasConstants() ? old : info);
+          }
+        }
+      }
+      compiled.addAll(dirty);
+
+      if (changedApi.values().stream().anyMatch(ClassFileReader.ClassInfo::hasConstants)) {
+        UserOutput.debug("Constants changed, recompiling everything");
+        return compileAll(sourceDir, sources, outputDir, classpath, compilerArgs, stateFile,
+            optionsHash);
+      }
+      dirty = dependents(previous, changedApi.keySet(), sources.keySet());
+      dirty.removeAll(compiled);
+    }
+    saveState(stateFile, optionsHash, previous);
+    return result;
+  }
+
+  /**
+   * Deletes all class files in the output directory and compiles every source.
+   */
+  private Compiler.CompileResult compileAll(
+      File sourceDir,
+      Map<String, Source> sources,
+      File outputDir,
+      String classpath,
+      List<String> compilerArgs,
+      File stateFile,
+      String optionsHash)
+      throws IOException {
+    stateFile.delete();
+    for (var classFile : FileCollector.findFilesByExtension(outputDir, ".class")) {
+      Files.delete(classFile.toPath());
+    }
+
+    var result = compiler.compileFiles(
+        sourceDir, new ArrayList<>(sources.keySet()), outputDir, classpath, compilerArgs);
+    if (result.success()) {
+      var produced = attributeClasses(outputDir, sources, sources.keySet(), Set.of());
+      var state = new LinkedHashMap<String, SourceState>();
+      for (var entry : sources.entrySet()) {
+        state.put(entry.getKey(), new SourceState(
+            entry.getValue().hash(), produced.getOrDefault(entry.getKey(), List.of())));
+      }
+      saveState(stateFile, optionsHash, state);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the sources that refer to or extend one of the given classes, directly or through
+   * a subclass (which inherits the changed members).
+   */
+  private static TreeSet<String> dependents(
+      Map<String, SourceState> state, Set<String> changedClasses, Set<String> existing) {
+    var affected = new HashSet<String>(changedClasses);
+    var grown = true;
+    while (grown) {
+      grown = false;
+      for (var source : state.values()) {
+        for (var info : source.classes()) {
+          if (!affected.contains(info.name())
+              && info.supertypes().stream().anyMatch(affected::contains)) {
+            affected.add(info.name());
+            grown = true;
+          }
+        }
+      }
+    }
+
+    var result = new TreeSet<String>();
+    for (var entry : state.entrySet()) {
+      if (!existing.contains(entry.getKey())) {
+        continue;
+      }
+      for (var info : entry.getValue().classes()) {
+        if (affected.contains(info.name())
+            || info.references().stream().anyMatch(affected::contains)) {
+          result.add(entry.getKey());
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the class files not owned by an unchanged source and assigns them to the compiled
+   * sources by package and SourceFile attribute (or outer class name without debug info).
+   */
+  private static Map<String, List<ClassFileReader.ClassInfo>> attributeClasses(
+      File outputDir, Map<String, Source> sources, Set<String> compiled, Set<String> owned)
+      throws IOException {
+    var byKey = new HashMap<String, String>();
+    for (var path : compiled) {
+      byKey.put(sources.get(path).key(), path);
+    }
+
+    var outputPath = outputDir.toPath().toAbsolutePath().normalize();
+    var result = new HashMap<String, List<ClassFileReader.ClassInfo>>();
+    for (var classFile : FileCollector.findFilesByExtension(outputDir, ".class")) {
+      var relative = outputPath.relativize(classFile.toPath()).toString()
+          .replace(File.separatorChar, '/');
+      if (owned.contains(relative.substring(0, relative.length() - ".class".length()))) {
+        continue;
+      }
+      ClassFileReader.ClassInfo info;
+      try {
+        info = ClassFileReader.read(classFile);
+      } catch (IOException e) {
+        UserOutput.debug("Skipping unreadable " + classFile + ": " + e.getMessage());
+        continue;
+      }
+      var path = byKey.get(sourceKey(info));
+      if (path == null) {
+        UserOutput.debug("No source found for " + info.name());
+        continue;
+      }
+      // Nothing under java/ can come from the project, so those references are dropped
+      info.references().removeIf(name -> name.startsWith("java/"));
+      result.computeIfAbsent(path, p -> new ArrayList<>()).add(info);
+    }
+    return result;
+  }
+
+  private static String sourceKey(ClassFileReader.ClassInfo info) {
+    var name = info.name();
+    var slash = name.lastIndexOf('/');
+    var packageDir = slash < 0 ? "" : name.substring(0, slash + 1);
+    var fileName = info.sourceFile();
+    if (fileName == null) {
+      var simpleName = name.substring(slash + 1);
+      var dollar = simpleName.indexOf('$');
+      fileName = (dollar > 0 ? simpleName.substring(0, dollar) : simpleName) + ".java";
+    }
+    return packageDir + fileName;
+  }
+
+  /**
+   * Hashes every source and derives the key its class files will refer to it by.
+   */
+  private static Map<String, Source> scanSources(File sourceDir, List<String> sourceFiles)
+      throws IOException {
+    var sources = new LinkedHashMap<String, Source>();
+    for (var path : sourceFiles) {
+      var bytes = Files.readAllBytes(new File(sourceDir, path).toPath());
+      var matcher = PACKAGE.matcher(new String(bytes, StandardCharsets.UTF_8));
+      var packageDir = matcher.find() ? matcher.group(1).replace('.', '/') + "/" : "";
+      var fileName = new File(path).getName();
+      sources.put(path, new Source(sha256(bytes), packageDir + fileName));
+    }
+    return sources;
+  }
+
+  /**
+   * Hashes what, besides the sources, decides the compile output: the arguments, the
+   * classpath with the size and modification time of each entry, and the compiler.
+   */
+  private static String optionsHash(String classpath, List<String> compilerArgs)
+      throws IOException {
+    var text = new StringBuilder();
+    text.append(System.getProperty("java.version")).append('\n');
+    text.append(Compiler.useInProcess(compilerArgs)).append('\n');
+    compilerArgs.forEach(arg -> text.append(arg).append('\n'));
+    if (classpath != null && !classpath.isEmpty()) {
+      for (var entry : classpath.split(File.pathSeparator)) {
+        var file = new File(entry);
+        text.append(entry).append(' ');
+        if (file.isDirectory()) {
+          // Class directories (target/classes for tests) change whenever they are recompiled
+          var latest = 0L;
+          var classes = FileCollector.findFilesByExtension(file, ".class");
+          for (var classFile : classes) {
+            latest = Math.max(latest, classFile.lastModified());
+          }
+          text.append(classes.size()).append(' ').append(latest);
+        } else {
+          text.append(file.length()).append(' ').append(file.lastModified());
+        }
+        text.append('\n');
+      }
+    }
+    return sha256(text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static boolean classesExist(File outputDir, SourceState state) {
+    for (var info : state.classes()) {
+      if (!classFile(outputDir, info.name()).isFile()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void deleteClasses(File outputDir, List<ClassFileReader.ClassInfo> classes)
+      throws IOException {
+    for (var info : classes) {
+      Files.deleteIfExists(classFile(outputDir, info.name()).toPath());
+    }
+  }
+
+  private static File classFile(File outputDir, String name) {
+    return new File(outputDir, name.replace('/', File.separatorChar) + ".class");
+  }
+
+  static File stateFile(File outputDir) {
+    return new File(outputDir.getAbsoluteFile().getParentFile(),
+        STATE_PREFIX + outputDir.getName());
+  }
+
+  /**
+   * Loads the state of the last compile.
+   *
+   * File format (one record per line; class lines belong to the source above them):
+   * <pre>
+   *   format 2
+   *   options &lt;sha256&gt;
+   *   source &lt;sha256&gt; &lt;path&gt;
+   *   class &lt;name&gt; &lt;abi&gt; &lt;super&gt; &lt;const&gt; &lt;interfaces&gt; &lt;refs&gt;
+   * </pre>
+   * Const is 1 if the class declares constants. Lists are comma-separated; "-" stands for
+   * no super class or an empty list.
+   *
+   * @return sources by relative path, or null if there is no usable state for these options
+   */
+  private static Map<String, SourceState> loadState(File stateFile, String optionsHash) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      return null;
+    }
+    if (lines.size() < 2 || !FORMAT.equals(lines.get(0))
+        || !lines.get(1).equals("options " + optionsHash)) {
+      UserOutput.debug("No incremental state for these options, compiling everything");
+      return null;
+    }
+
+    var state = new LinkedHashMap<String, SourceState>();
+    List<ClassFileReader.ClassInfo> classes = null;
+    for (var line : lines.subList(2, lines.size())) {
+      var parts = line.split(" ", 3);
+      if (parts[0].equals("source") && parts.length == 3) {
+        classes = new ArrayList<>();
+        state.put(parts[2], new SourceState(parts[1], classes));
+      } else if (parts[0].equals("class") && classes != null) {
+        var fields = line.split(" ");
+        if (fields.length != 7) {
+          return null;
+        }
+        classes.add(new ClassFileReader.ClassInfo(
+            fields[1],
+            fields[3].equals("-") ? null : fields[3],
+            List.copyOf(split(fields[5])),
+            null,
+            split(fields[6]),
+            fields[4].equals("1"),
+            fields[2]));
+      } else {
+        UserOutput.debug("Ignoring unreadable " + stateFile.getName());
+        return null;
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Writes the state. Failures are not fatal: the next compile is simply a full one.
+   */
+  private static void saveState(
+      File stateFile, String optionsHash, Map<String, SourceState> state) {
+    var content = new StringBuilder(FORMAT).append('\n');
+    content.append("options ").append(optionsHash).append('\n');
+    for (var entry : state.entrySet()) {
+      content.append("source ").append(entry.getValue().hash()).append(' ')
+          .append(entry.getKey()).append('\n');
+      for (var info : entry.getValue().classes()) {
+        content.append("class ").append(info.name())
+            .append(' ').append(info.abi())
+            .append(' ').append(info.superName() == null ? "-" : info.superName())
+            .append(' ').append(info.hasConstants() ? '1' : '0')
+            .append(' ').append(join(info.interfaces()))
+            .append(' ').append(join(info.references()))
+            .append('\n');
+      }
+    }
+    try {
+      FileUtils.writeFileAtomically(stateFile, content.toString());
+    } catch (IOException e) {
+      UserOutput.debug("Could not write " + stateFile + ": " + e.getMessage());
+      stateFile.delete();
+    }
+  }
+
+  /**
+   * Points a state restored from the build cache at this build's options hash, which
+   * includes classpath modification times that differ from the build that stored it.
+   */
+  private static void adoptState(File stateFile, String optionsHash) {
+    try {
+      var lines = new ArrayList<>(Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8));
+      if (lines.size() >= 2 && FORMAT.equals(lines.get(0))) {
+        lines.set(1, "options " + optionsHash);
+        FileUtils.writeFileAtomically(stateFile, String.join("\n", lines) + "\n");
+        return;
+      }
+    } catch (IOException e) {
+      UserOutput.debug("Could not adopt " + stateFile + ": " + e.getMessage());
+    }
+    // Without a usable state the next build compiles everything
+    stateFile.delete();
+  }
+
+  private static String join(Collection<String> names) {
+    return names.isEmpty() ? "-" : String.join(",", names);
+  }
+
+  private static Set<String> split(String field) {
+    return field.equals("-") ? Set.of() : new TreeSet<>(List.of(field.split(",")));
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package jpm.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import jpm.utils.FileUtils;
+
+/**
+ * Writes a manifest-only JAR whose Class-Path attribute lists a classpath, so that "-cp
+ * pathing.jar" stands in for a classpath too long for the command line. Used for java
+ * launchers older than Java 9, which do not read @argfiles.
+ */
+public final class PathingJar {
+
+  private PathingJar() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Writes the pathing JAR unless it already lists exactly this classpath.
+   *
+   * @param jar file to write
+   * @param classpath classpath with platform path separators
+   * @return the JAR
+   */
+  public static File write(File jar, String classpath) throws IOException {
+    var urls = new StringBuilder();
+    for (var entry : classpath.split(File.pathSeparator)) {
+      if (entry.isEmpty()) {
+        continue;
+      }
+      if (!urls.isEmpty()) {
+        urls.append(' ');
+      }
+      // Absolute file: URLs; directories end in '/' as Class-Path requires
+      urls.append(new File(entry).getAbsoluteFile().toURI());
+    }
+
+    var manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, urls.toString());
+
+    if (jar.isFile()) {
+      try (var existing = new JarFile(jar)) {
+        if (manifest.equals(existing.getManifest())) {
+          return jar;
+        }
+      } catch (IOException e) {
+        // Unreadable: rewrite it
+      }
+    }
+
+    FileUtils.ensureDirectory(jar.getAbsoluteFile().getParentFile());
+    var temp = new File(jar.getAbsoluteFile().getParentFile(), jar.getName() + ".tmp");
+    try (var out = new JarOutputStream(Files.newOutputStream(temp.toPath()), manifest)) {
+      // Manifest only
+    }
+    Files.move(temp.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return jar;
+  }
+}
@@ -0,0 +1,138 @@
+package jpm.build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import jpm.utils.Constants;
+import jpm.utils.FileUtils;
+
+/**
+ * Second tier of the {@link BuildCache}, shared between machines: a directory (e.g. on NFS)
+ * or an HTTP server answering GET and PUT, such as `jpm cache-server`.
+ *
+ * Remote entries are the local ZIP entries behind a header line carrying their SHA-256
+ * ("jpm-build-cache sha256 &lt;hex&gt;"), so an entry is one file that can be checked on its
+ * own: readers reject entries whose bytes do not match, and writers replace the file
+ * atomically, so concurrent uploads of the same key leave one complete entry.
+ */
+public abstract class RemoteBuildCache {
+
+  private static final String HEADER_PREFIX = "jpm-build-cache sha256 ";
+  private static final int MAX_HEADER_LENGTH = 128;
+  private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+  /**
+   * Returns the remote cache configured through JPM_BUILD_CACHE_REMOTE, or null.
+   * Values starting with http:// or https:// name a server, anything else a directory.
+   */
+  public static RemoteBuildCache fromEnvironment() {
+    var remote = System.getenv(Constants.BUILD_CACHE_REMOTE_ENV);
+    if (remote == null || remote.isBlank()) {
+      return null;
+    }
+    remote = remote.strip();
+    if (remote.startsWith("http://") || remote.startsWith("https://")) {
+      return new HttpBuildCache(remote);
+    }
+    return new DirectoryBuildCache(Path.of(remote));
+  }
+
+  /**
+   * Returns whether JPM_BUILD_CACHE_PUSH allows uploads. Without it the remote cache is
+   * read-only, which suits developer machines; CI agents set it to true.
+   */
+  public static boolean pushEnabled() {
+    return Boolean.parseBoolean(System.getenv(Constants.BUILD_CACHE_PUSH_ENV));
+  }
+
+  /**
+   * Returns whether the key has the form of a build cache key, which keeps request paths
+   * and file names from pointing anywhere else.
+   */
+  public static boolean isValidKey(String key) {
+    return key != null && KEY.matcher(key).matches();
+  }
+
+  /**
+   * Downloads and verifies an entry.
+   *
+   * @param target where the ZIP entry is written
+   * @return false if the remote cache has no entry for the key
+   * @throws IOException if the remote cache is unreachable or the entry is damaged
+   */
+  public abstract boolean fetch(String key, Path target) throws IOException;
+
+  /**
+   * Uploads a local ZIP entry.
+   */
+  public abstract void upload(String key, Path entry) throws IOException;
+
+  /**
+   * Returns the location of the remote cache for messages.
+   */
+  public abstract String describe();
+
+  /**
+   * Returns the header line that precedes a ZIP entry in the remote cache.
+   */
+  static byte[] header(Path entry) throws IOException {
+    return (HEADER_PREFIX + FileUtils.sha256(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a remote entry, writing the ZIP that follows the header line to the target.
+   *
+   * @throws IOException if the header is missing or the bytes do not match its checksum; the
+   *     target is deleted then
+   */
+  static void readEntry(InputStream in, Path target) throws IOException {
+    try (var out = Files.newOutputStream(target)) {
+      readEntry(in, out);
+    } catch (IOException e) {
+      Files.deleteIfExists(target);
+      throw e;
+    }
+  }
+
+  /**
+   * Reads a remote entry, writing the ZIP that follows the header line to the stream.
+   *
+   * @throws IOException if the header is missing or the bytes do not match its checksum
+   */
+  static void readEntry(InputStream in, OutputStream out) throws IOException {
+    var headerBytes = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b == -1 || headerBytes.size() >= MAX_HEADER_LENGTH) {
+        throw new IOException("Not a build cache entry");
+      }
+      headerBytes.write(b);
+    }
+    var header = headerBytes.toString(StandardCharsets.UTF_8);
+    if (!header.startsWith(HEADER_PREFIX)) {
+      throw new IOException("Not a build cache entry");
+    }
+    var expected = header.substring(HEADER_PREFIX.length());
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 not available", e);
+    }
+    in.transferTo(new DigestOutputStream(out, digest));
+    var actual = HexFormat.of().formatHex(digest.digest());
+    if (!actual.equals(expected)) {
+      throw new IOException("Checksum mismatch (expected " + expected + ", got " + actual + ")");
+    }
+  }
+}
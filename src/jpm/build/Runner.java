@@ -2,10 +2,15 @@ package jpm.build;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 import jpm.utils.ProcessExecutor;
+import jpm.utils.UserOutput;
 
 /**
  * Executes Java applications with configurable JVM and program arguments.
@@ -13,6 +18,10 @@ import jpm.utils.ProcessExecutor;
  */
 public class Runner {
 
+  private static final Pattern JAVA_VERSION = Pattern.compile("JAVA_VERSION=\"([^\"]+)\"");
+
+  private static Boolean launcherReadsArgFiles;
+
   /**
    * Record representing the result of a run operation.
    */
@@ -61,10 +70,13 @@ public class Runner {
   }
 
   /**
-   * Builds the Java command with all components.
+   * Builds the Java command with all components. The classpath is passed through an
+   * @argfile (target/.jpm-java.args), or a pathing JAR (target/.jpm-classpath.jar) for
+   * launchers older than Java 9, to keep it off the command line.
    */
   private List<String> buildJavaCommand(
-      String mainClass, File classesDir, String classpath, List<String> jvmArgs, String[] args) {
+      String mainClass, File classesDir, String classpath, List<String> jvmArgs, String[] args)
+      throws IOException {
 
     var command = new ArrayList<String>();
     command.add("java");
@@ -75,8 +87,16 @@ public class Runner {
     }
 
     // Build and add classpath
-    command.add("-cp");
-    command.add(buildClasspath(classesDir, classpath));
+    var fullClasspath = buildClasspath(classesDir, classpath);
+    var targetDir = classesDir.getAbsoluteFile().getParentFile();
+    if (launcherReadsArgFiles()) {
+      command.add(
+          ArgFile.write(new File(targetDir, ".jpm-java.args"), List.of("-cp", fullClasspath)));
+    } else {
+      command.add("-cp");
+      command.add(PathingJar.write(new File(targetDir, ".jpm-classpath.jar"), fullClasspath)
+          .getAbsolutePath());
+    }
 
     // Add main class
     command.add(mainClass);
@@ -106,6 +126,57 @@ public class Runner {
     return fullClasspath.toString();
   }
 
+  /**
+   * Returns whether the java launcher on the PATH reads @argfiles, which it does from Java 9
+   * on. Its version comes from the release file of its installation; without one, it is
+   * assumed to be as recent as the JVM running jpm.
+   */
+  static synchronized boolean launcherReadsArgFiles() {
+    if (launcherReadsArgFiles == null) {
+      launcherReadsArgFiles = true;
+      var release = findLauncherRelease();
+      if (release != null) {
+        try {
+          var matcher = JAVA_VERSION.matcher(Files.readString(release, StandardCharsets.UTF_8));
+          // Java 8 and older report "1.8.0_402"
+          launcherReadsArgFiles = !matcher.find() || !matcher.group(1).startsWith("1.");
+        } catch (IOException e) {
+          UserOutput.debug("Could not read " + release + ": " + e.getMessage());
+        }
+      }
+    }
+    return launcherReadsArgFiles;
+  }
+
+  /**
+   * Locates the release file of the JDK or JRE whose java is first on the PATH.
+   */
+  private static Path findLauncherRelease() {
+    var path = System.getenv("PATH");
+    if (path == null) {
+      return null;
+    }
+    var executable = System.getProperty("os.name").startsWith("Windows") ? "java.exe" : "java";
+    for (var dir : path.split(File.pathSeparator)) {
+      var java = Path.of(dir, executable);
+      if (!Files.isExecutable(java)) {
+        continue;
+      }
+      try {
+        // bin/java in a JDK or JRE; jre/bin/java in a Java 8 JDK
+        var home = java.toRealPath().getParent().getParent();
+        var release = home.resolve("release");
+        if (!Files.isRegularFile(release) && home.getParent() != null) {
+          release = home.getParent().resolve("release");
+        }
+        return Files.isRegularFile(release) ? release : null;
+      } catch (IOException e) {
+        // Broken link: keep looking
+      }
+    }
+    return null;
+  }
+
   /**
    * Executes the Java process and returns the result.
    */
@@ -0,0 +1,69 @@
+package jpm.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import jpm.config.ProjectPaths;
+import jpm.config.SourcesConfig;
+import jpm.utils.FileCollector;
+
+/**
+ * A set of sources compiled together into one output directory: the main sources into
+ * target/classes, the tests into target/test-classes.
+ *
+ * In the default layout the test root (src/test/java) lies inside the main root (src), so
+ * each set excludes the other's root when it is nested in its own. Otherwise the main
+ * compile would pick up the tests, without JUnit on its classpath.
+ *
+ * @param name "main" or "test"
+ * @param root directory the sources are collected from
+ * @param outputDir directory for the compiled classes
+ * @param excludedRoots directories under the root that belong to another set
+ */
+public record SourceSet(String name, File root, File outputDir, List<File> excludedRoots) {
+
+  public SourceSet {
+    excludedRoots = List.copyOf(excludedRoots);
+  }
+
+  /**
+   * Returns the main sources of a project with the given source roots.
+   */
+  public static SourceSet main(SourcesConfig sources) {
+    var root = new File(sources.getMain());
+    var test = new File(sources.getTest());
+    return new SourceSet("main", root, new File(ProjectPaths.CLASSES_DIR), nested(root, test));
+  }
+
+  /**
+   * Returns the test sources of a project with the given source roots.
+   */
+  public static SourceSet test(SourcesConfig sources) {
+    var root = new File(sources.getTest());
+    var main = new File(sources.getMain());
+    return new SourceSet(
+        "test", root, new File(ProjectPaths.TEST_CLASSES_DIR), nested(root, main));
+  }
+
+  /**
+   * Returns the relative paths of the set's Java sources.
+   */
+  public List<String> sourceFiles() throws IOException {
+    return FileCollector.findRelativePathsByExtension(root, ".java", excludedRoots);
+  }
+
+  public boolean exists() {
+    return root.isDirectory();
+  }
+
+  private static List<File> nested(File root, File other) {
+    var rootPath = root.toPath().toAbsolutePath().normalize();
+    var otherPath = other.toPath().toAbsolutePath().normalize();
+    var excluded = new ArrayList<File>();
+    if (!otherPath.equals(rootPath) && otherPath.startsWith(rootPath)) {
+      excluded.add(other);
+    }
+    return excluded;
+  }
+}
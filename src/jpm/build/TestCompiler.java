@@ -1,12 +1,10 @@
 package jpm.build;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import jpm.utils.FileCollector;
 
 /**
- * Compiles test sources from src/test/java/ to target/test-classes/.
+ * Compiles the test source set (src/test/java/ to target/test-classes/ by default).
  * Delegates to Compiler for actual compilation, specializing in test source discovery.
  */
 public class TestCompiler {
@@ -20,21 +18,17 @@ public class TestCompiler {
   /**
    * Compiles test source files with JUnit support.
    *
-   * @param testSourceDir Directory containing test sources (src/test/java/)
-   * @param testOutputDir Output directory for compiled test classes (target/test-classes/)
+   * @param testSources the test source set (src/test/java/ to target/test-classes/)
    * @param classpath Full classpath including main classes, dependencies, and test libraries
    * @param javaVersion Java version for --release flag (e.g., "25")
    * @return CompileResult with success status and exit code
    * @throws IOException if compilation fails
    */
   public Compiler.CompileResult compileTests(
-      File testSourceDir, File testOutputDir, String classpath, String javaVersion)
-      throws IOException {
+      SourceSet testSources, String classpath, String javaVersion) throws IOException {
 
     // Check for test files
-    var testFiles = FileCollector.findFilesByExtension(testSourceDir, ".java");
-
-    if (testFiles.isEmpty()) {
+    if (testSources.sourceFiles().isEmpty()) {
       return new Compiler.CompileResult(true, "No test files found", 0);
     }
 
@@ -44,6 +38,6 @@ public class TestCompiler {
     compilerArgs.add(javaVersion);
 
     // Delegate to main compiler
-    return compiler.compile(testSourceDir, testOutputDir, classpath, compilerArgs);
+    return compiler.compile(testSources, classpath, compilerArgs);
   }
 }
@@ -6,12 +6,16 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import jpm.build.ClasspathBuilder;
 import jpm.build.Compiler;
+import jpm.build.DependencyMaterializer;
 import jpm.build.IdeFileGenerator;
+import jpm.build.SourceSet;
 import jpm.config.ConfigParser;
 import jpm.config.JpmConfig;
 import jpm.config.ProfileConfig;
 import jpm.config.ProjectPaths;
+import jpm.deps.CacheLock;
 import jpm.deps.DependencyResolver;
+import jpm.deps.ResolutionState;
 import jpm.deps.ResolvedDependency;
 import jpm.utils.UserOutput;
 import picocli.CommandLine.Option;
@@ -34,6 +38,11 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
       description = "Skip generation of IDE configuration files (.project, .classpath)")
   protected boolean noIdeFiles;
 
+  @Option(
+      names = {"--materialize"},
+      description = "Link dependency JARs into target/lib and use a relative classpath")
+  protected boolean materialize;
+
   @Option(
       names = {"--profile"},
       description = "Build profile to use (dev, release, test)",
@@ -54,19 +63,30 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
 
       validateProject();
       loadConfiguration();
+      validateSourceSet();
       printBuildHeader();
       generateIdeFilesIfNeeded();
-      resolveDependencies();
-      generateClasspathFileIfNeeded();
-      loadProfile();
-
-      var compileResult = compile();
-      if (!compileResult.success()) {
-        UserOutput.error("Build failed with exit code " + compileResult.exitCode());
-        return compileResult.exitCode();
-      }
 
-      return execute();
+      // Keep clean/gc in other processes from deleting artifacts this build reads
+      var cacheLock = CacheLock.shared();
+      try {
+        resolveDependencies();
+        generateClasspathFileIfNeeded();
+        loadProfile();
+
+        var compileResult = compile();
+        if (!compileResult.success()) {
+          UserOutput.error("Build failed with exit code " + compileResult.exitCode());
+          return compileResult.exitCode();
+        }
+
+        if (!holdCacheLockDuringExecute()) {
+          cacheLock.close();
+        }
+        return execute();
+      } finally {
+        cacheLock.close();
+      }
 
     } catch (ProjectValidationException e) {
       CliErrorHandler.error(e.getMessage());
@@ -89,6 +109,15 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
     }
   }
 
+  /**
+   * Validates that the root of the source set to compile exists.
+   * Runs after the configuration is loaded, since jpm.toml may move the source roots.
+   */
+  protected void validateSourceSet() {
+    var root = getSourceSet().root();
+    validateSourceDirExists(root, root.getPath());
+  }
+
   /**
    * Validates that a required source directory exists.
    */
@@ -102,7 +131,7 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
    * Loads the project configuration from jpm.toml.
    */
   protected void loadConfiguration() throws IOException {
-    config = ConfigParser.load(new File(ProjectPaths.CONFIG_FILE));
+    config = ConfigParser.loadCached(new File(ProjectPaths.CONFIG_FILE));
   }
 
   /**
@@ -129,10 +158,25 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
   protected void resolveDependencies() throws Exception {
     classpath = "";
     if (!config.dependencies().isEmpty()) {
-      var resolver = new DependencyResolver();
-      resolvedDeps = resolver.resolveWithLockfile(projectDir, config, forceResolve);
-      classpath = ClasspathBuilder.buildClasspath(resolvedDeps);
+      // Unchanged jpm.toml, jpm.lock and cache: reuse the last result without the lockfile
+      resolvedDeps = forceResolve ? null : ResolutionState.loadIfCurrent(projectDir);
+      if (resolvedDeps == null) {
+        var resolver = new DependencyResolver();
+        resolvedDeps = resolver.resolveWithLockfile(projectDir, config, forceResolve);
+        ResolutionState.save(projectDir, resolvedDeps);
+      }
       UserOutput.info("Resolved " + resolvedDeps.size() + " dependencies");
+      if (materialize) {
+        var result = DependencyMaterializer.materialize(
+            resolvedDeps, new File(ProjectPaths.LIB_DIR));
+        classpath = result.classpath();
+        if (!result.placements().isEmpty()) {
+          UserOutput.info("Materialized dependencies into " + ProjectPaths.LIB_DIR + "/ "
+              + result.placements());
+        }
+      } else {
+        classpath = ClasspathBuilder.buildClasspath(resolvedDeps);
+      }
     }
   }
 
@@ -163,29 +207,35 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
     return ProfileConfig.dev();
   }
 
+  /**
+   * Returns the source set this command compiles, with the roots configured in jpm.toml.
+   * Subclasses can override for a different source set (tests).
+   */
+  protected SourceSet getSourceSet() {
+    return SourceSet.main(config.sources());
+  }
+
   /**
    * Returns the source directory for compilation.
-   * Subclasses can override for different source locations.
    */
   protected File getSourceDir() {
-    return new File(ProjectPaths.SRC_DIR);
+    return getSourceSet().root();
   }
 
   /**
    * Returns the output directory for compiled classes.
-   * Subclasses can override for different output locations.
    */
   protected File getOutputDir() {
-    return new File(ProjectPaths.CLASSES_DIR);
+    return getSourceSet().outputDir();
   }
 
   /**
-   * Compiles project sources using the active profile configuration.
+   * Compiles a source set using the active profile configuration.
    */
-  protected Compiler.CompileResult compileSources(File sourceDir, File outputDir) throws Exception {
+  protected Compiler.CompileResult compileSources(SourceSet sourceSet) throws Exception {
     var compiler = new Compiler();
     var compilerArgs = profileConfig.getEffectiveCompilerArgs();
-    return compiler.compile(sourceDir, outputDir, classpath, compilerArgs);
+    return compiler.compile(sourceSet, classpath, compilerArgs);
   }
 
   /**
@@ -206,6 +256,14 @@ public abstract class AbstractBuildCommand implements Callable<Integer> {
    */
   protected abstract int execute() throws Exception;
 
+  /**
+   * Returns whether the shared cache lock stays held while execute() runs.
+   * Commands that hand control to long-lived user code (run) release it before executing.
+   */
+  protected boolean holdCacheLockDuringExecute() {
+    return true;
+  }
+
   /**
    * Returns the name of this command for logging purposes.
    */
@@ -1,7 +1,6 @@
 package jpm.cli;
 
 import jpm.build.Compiler;
-import jpm.config.ProjectPaths;
 import jpm.utils.UserOutput;
 import picocli.CommandLine.Command;
 
@@ -12,20 +11,14 @@ import picocli.CommandLine.Command;
 @Command(name = "build", description = "Build the project")
 public class BuildCommand extends AbstractBuildCommand {
 
-  @Override
-  protected void validateProject() {
-    super.validateProject();
-    validateSourceDirExists(getSourceDir(), ProjectPaths.SRC_DIR);
-  }
-
   @Override
   protected Compiler.CompileResult compile() throws Exception {
-    return compileSources(getSourceDir(), getOutputDir());
+    return compileSources(getSourceSet());
   }
 
   @Override
   protected int execute() {
-    UserOutput.info("Build successful! Output in " + ProjectPaths.CLASSES_DIR + "/");
+    UserOutput.info("Build successful! Output in " + getOutputDir().getPath() + "/");
     return 0;
   }
 
@@ -0,0 +1,59 @@
+package jpm.cli;
+
+import java.util.concurrent.Callable;
+import jpm.build.BuildCache;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Cache builds command - reports on the build cache (~/.jpm/build-cache) or clears it.
+ */
+@Command(name = "builds", description = "Show build cache usage and hit rate")
+public class CacheBuildsCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"--clear"},
+      description = "Delete all build cache entries and reset the hit rate")
+  private boolean clear;
+
+  @Override
+  public Integer call() {
+    try {
+      var cache = BuildCache.local();
+      if (cache == null) {
+        UserOutput.print("The build cache is disabled (JPM_BUILD_CACHE_MAX_SIZE=0)");
+        return 0;
+      }
+
+      if (clear) {
+        var deleted = cache.clear();
+        UserOutput.print("Deleted " + deleted + " build cache entries");
+        return 0;
+      }
+
+      var stats = cache.stats();
+      UserOutput.print("Build cache: " + cache.getRoot());
+      UserOutput.print("Entries: " + stats.entries() + ", "
+          + FileUtils.formatSize(stats.size()) + " of " + FileUtils.formatSize(cache.getMaxSize()));
+      if (cache.getRemote() != null) {
+        UserOutput.print("Remote: " + cache.getRemote().describe()
+            + (cache.isPush() ? "" : " (read-only)"));
+      }
+      if (stats.hits() + stats.remoteHits() + stats.misses() > 0) {
+        UserOutput.print(String.format(
+            "Hit rate: %.1f%% (%d local hits, %d remote hits, %d misses)",
+            stats.hitRate() * 100, stats.hits(), stats.remoteHits(), stats.misses()));
+      }
+      return 0;
+
+    } catch (IllegalArgumentException e) {
+      CliErrorHandler.error(e.getMessage());
+      return 1;
+    } catch (Exception e) {
+      CliErrorHandler.error("Reading the build cache", e);
+      return 1;
+    }
+  }
+}
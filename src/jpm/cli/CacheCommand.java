@@ -0,0 +1,29 @@
+package jpm.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+/**
+ * Cache command - groups maintenance subcommands for the shared artifact cache (~/.jpm/cache)
+ * and the build cache (~/.jpm/build-cache).
+ */
+@Command(
+    name = "cache",
+    description = "Maintain the shared artifact and build caches",
+    subcommands = {
+      CacheGcCommand.class,
+      CacheVerifyCommand.class,
+      CacheRepackCommand.class,
+      CacheBuildsCommand.class
+    })
+public class CacheCommand implements Runnable {
+
+  @Spec
+  private CommandSpec spec;
+
+  @Override
+  public void run() {
+    spec.commandLine().usage(System.out);
+  }
+}
@@ -0,0 +1,84 @@
+package jpm.cli;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import jpm.deps.CacheGarbageCollector;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Cache gc command - evicts artifact versions by age, size budget or lockfile references.
+ */
+@Command(name = "gc", description = "Evict unused artifacts from the cache")
+public class CacheGcCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"--max-age"},
+      description = "Evict artifacts not used for this long (e.g. 30d, 12h, 2w)")
+  private String maxAge;
+
+  @Option(
+      names = {"--max-size"},
+      description = "Evict least recently used artifacts until the cache fits (e.g. 5G, 500M)")
+  private String maxSize;
+
+  @Option(
+      names = {"--unreferenced"},
+      description = "Evict artifacts no project on this machine references")
+  private boolean unreferenced;
+
+  @Override
+  public Integer call() {
+    if (maxAge == null && maxSize == null && !unreferenced) {
+      CliErrorHandler.error("Specify at least one of --max-age, --max-size or --unreferenced");
+      return 1;
+    }
+
+    try {
+      var options = new CacheGarbageCollector.Options(
+          maxAge != null ? parseDuration(maxAge) : null,
+          maxSize != null ? FileUtils.parseSize(maxSize) : null,
+          unreferenced);
+
+      UserOutput.info("Collecting garbage in " + FileUtils.getCacheDir() + "...");
+      var result = new CacheGarbageCollector().collect(options);
+
+      UserOutput.print("Evicted " + result.evicted() + " artifact versions, reclaimed "
+          + FileUtils.formatSize(result.bytesReclaimed()));
+      UserOutput.print("Cache size: " + FileUtils.formatSize(result.bytesRemaining()));
+      if (result.pomsPacked() > 0) {
+        UserOutput.print("Packed " + result.pomsPacked() + " POMs");
+      }
+      if (result.hits() + result.misses() > 0) {
+        UserOutput.print(String.format(
+            "Hit rate since last gc: %.1f%% (%d hits, %d misses)",
+            result.hitRate() * 100, result.hits(), result.misses()));
+      }
+      return 0;
+
+    } catch (IllegalArgumentException e) {
+      CliErrorHandler.error(e.getMessage());
+      return 1;
+    } catch (Exception e) {
+      CliErrorHandler.error("Collecting cache garbage", e);
+      return 1;
+    }
+  }
+
+  static Duration parseDuration(String value) {
+    var matcher = Pattern.compile("(\\d+)([hdw])").matcher(value.strip());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException(
+          "Invalid duration '" + value + "' (expected e.g. 12h, 30d, 2w)");
+    }
+    var amount = Long.parseLong(matcher.group(1));
+    return switch (matcher.group(2)) {
+      case "h" -> Duration.ofHours(amount);
+      case "d" -> Duration.ofDays(amount);
+      default -> Duration.ofDays(amount * 7);
+    };
+  }
+}
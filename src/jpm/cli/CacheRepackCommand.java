@@ -0,0 +1,35 @@
+package jpm.cli;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import jpm.deps.CacheLock;
+import jpm.deps.PomPack;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+
+/**
+ * Cache repack command - moves loose POMs into the cache's POM pack.
+ * `jpm cache gc` repacks as well; this runs the repack on its own.
+ */
+@Command(name = "repack", description = "Move loose POMs into the cache's pack file")
+public class CacheRepackCommand implements Callable<Integer> {
+
+  @Override
+  public Integer call() {
+    try (var lock = CacheLock.exclusive()) {
+      var result = PomPack.shared().repack(List.of());
+      if (result.packed() == 0) {
+        UserOutput.print("Nothing to repack (" + result.entries() + " POMs in pack)");
+      } else {
+        UserOutput.print("Packed " + result.packed() + " POMs (" + result.entries()
+            + " in pack, " + FileUtils.formatSize(result.bytesSaved()) + " saved)");
+      }
+      return 0;
+
+    } catch (Exception e) {
+      CliErrorHandler.error("Repacking cache", e);
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package jpm.cli;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import jpm.build.DirectoryBuildCache;
+import jpm.net.BuildCacheServer;
+import jpm.utils.Constants;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Cache-server command - serves a remote build cache over HTTP. Clients point
+ * JPM_BUILD_CACHE_REMOTE at the server; CI agents also set JPM_BUILD_CACHE_PUSH=true.
+ *
+ * Anyone who can reach a writable server can upload class files that clients then run, so
+ * it only listens on the loopback interface unless --bind says otherwise.
+ */
+@Command(
+    name = "cache-server",
+    description = "Serve a remote build cache over HTTP")
+public class CacheServerCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"--port"},
+      description = "Port to listen on (default: 8586)",
+      defaultValue = "" + Constants.DEFAULT_BUILD_CACHE_SERVER_PORT)
+  private int port;
+
+  @Option(
+      names = {"--bind"},
+      description = "Address to bind (default: 127.0.0.1; uploads are not authenticated)",
+      defaultValue = "127.0.0.1")
+  private String bindAddress;
+
+  @Option(
+      names = {"--dir"},
+      description = "Directory to keep entries in (default: ~/.jpm/build-cache-server)")
+  private File dir;
+
+  @Option(
+      names = {"--read-only"},
+      description = "Refuse uploads and only serve existing entries")
+  private boolean readOnly;
+
+  @Override
+  public Integer call() {
+    try {
+      var storageDir = dir != null ? dir : FileUtils.getBuildCacheServerDir();
+      FileUtils.ensureDirectory(storageDir);
+
+      var server = new BuildCacheServer(new DirectoryBuildCache(storageDir.toPath()), readOnly);
+      server.start(new InetSocketAddress(bindAddress, port));
+
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        server.stop(1);
+        UserOutput.info("\nServed " + server.getHits() + " hits, " + server.getMisses()
+            + " misses, " + server.getUploads() + " uploads");
+      }));
+
+      UserOutput.info("Serving build cache " + storageDir.getAbsolutePath()
+          + (readOnly ? " (read-only)" : ""));
+      UserOutput.info("  Listening on http://" + bindAddress + ":" + server.getPort() + "/");
+      UserOutput.info("Point clients at it with: export " + Constants.BUILD_CACHE_REMOTE_ENV
+          + "=http://<host>:" + server.getPort() + "/");
+
+      // Serve until the process is interrupted (Ctrl+C)
+      Thread.currentThread().join();
+      return 0;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 1;
+    } catch (Exception e) {
+      CliErrorHandler.error("Starting build cache server", e);
+      return 1;
+    }
+  }
+}
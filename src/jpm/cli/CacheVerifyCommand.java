@@ -0,0 +1,128 @@
+package jpm.cli;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import jpm.deps.CacheLock;
+import jpm.deps.CacheVerifier;
+import jpm.deps.MavenClient;
+import jpm.deps.PomPack;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Cache verify command - detects truncated or corrupted artifacts in the cache.
+ * Exits non-zero if any bad entry remains, so it can run as a scheduled job.
+ */
+@Command(name = "verify", description = "Check cached artifacts for corruption")
+public class CacheVerifyCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"--remote"},
+      description = "Also compare against the .sha1 checksums published by the repository")
+  private boolean remote;
+
+  @Option(
+      names = {"--quarantine"},
+      description = "Move bad entries to ~/.jpm/quarantine so they are downloaded again")
+  private boolean quarantine;
+
+  @Option(
+      names = {"--refetch"},
+      description = "Quarantine bad entries and download them again immediately")
+  private boolean refetch;
+
+  @Option(
+      names = {"--threads"},
+      description = "Number of hashing threads (default: available processors)")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Override
+  public Integer call() {
+    try {
+      var verifier = new CacheVerifier(remote, Math.max(1, threads));
+      var start = System.nanoTime();
+
+      // Hashing only reads, so builds may keep running alongside
+      var results = new ArrayList<CacheVerifier.FileResult>();
+      var damagedPoms = new ArrayList<String>();
+      try (var lock = CacheLock.shared()) {
+        var files = verifier.listFiles();
+        UserOutput.info("Verifying " + files.size() + " cached files...");
+        results.addAll(verifier.verify(files, done -> {
+          if (done % 500 == 0) {
+            UserOutput.info("  " + done + "/" + files.size());
+          }
+        }));
+        damagedPoms.addAll(PomPack.shared().verify());
+      }
+
+      var seconds = Math.max((System.nanoTime() - start) / 1e9, 0.001);
+      var totalBytes = results.stream().mapToLong(CacheVerifier.FileResult::size).sum();
+      var bad = results.stream().filter(r -> r.status().isBad()).toList();
+      var unchecked = results.stream()
+          .filter(r -> r.status() == CacheVerifier.Status.NO_CHECKSUM)
+          .count();
+
+      for (var result : bad) {
+        UserOutput.print("  " + result.status() + ": " + result.file());
+      }
+      for (var key : damagedPoms) {
+        UserOutput.print("  DAMAGED_PACK_ENTRY: " + key);
+      }
+      UserOutput.print(String.format(
+          "Verified %d files (%s) in %.1fs (%s/s): %d bad, %d without checksum",
+          results.size(),
+          FileUtils.formatSize(totalBytes),
+          seconds,
+          FileUtils.formatSize((long) (totalBytes / seconds)),
+          bad.size() + damagedPoms.size(),
+          unchecked));
+
+      var clean = bad.isEmpty() && damagedPoms.isEmpty();
+      if (clean || (!quarantine && !refetch)) {
+        return clean ? 0 : 1;
+      }
+
+      try (var lock = CacheLock.exclusive()) {
+        for (var result : bad) {
+          var target = verifier.quarantine(result);
+          UserOutput.info("Quarantined " + result.file().getFileName() + " -> " + target);
+        }
+        if (!damagedPoms.isEmpty()) {
+          PomPack.shared().repack(damagedPoms);
+          UserOutput.info("Dropped " + damagedPoms.size() + " damaged entries from the POM pack");
+        }
+      }
+
+      if (!refetch) {
+        return 0;
+      }
+      var client = new MavenClient();
+      var failed = 0;
+      for (var result : bad) {
+        if (verifier.refetch(client, result.file())) {
+          UserOutput.info("Re-fetched " + result.file().getFileName());
+        } else {
+          UserOutput.error("Failed to re-fetch " + result.file());
+          failed++;
+        }
+      }
+      for (var key : damagedPoms) {
+        var file = FileUtils.getCacheDir().toPath().resolve(key);
+        if (verifier.refetch(client, file)) {
+          UserOutput.info("Re-fetched " + file.getFileName());
+        } else {
+          UserOutput.error("Failed to re-fetch " + key);
+          failed++;
+        }
+      }
+      return failed == 0 ? 0 : 1;
+
+    } catch (Exception e) {
+      CliErrorHandler.error("Verifying cache", e);
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package jpm.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+/**
+ * Daemon command - groups the subcommands that manage the project's build daemon.
+ * While a daemon runs, build, test and fmt are executed in its warm JVM.
+ */
+@Command(
+    name = "daemon",
+    description = "Manage a background build process that keeps the compiler warm",
+    subcommands = {DaemonStartCommand.class, DaemonStopCommand.class, DaemonStatusCommand.class})
+public class DaemonCommand implements Runnable {
+
+  @Spec
+  private CommandSpec spec;
+
+  @Override
+  public void run() {
+    spec.commandLine().usage(System.out);
+  }
+}
@@ -0,0 +1,98 @@
+package jpm.cli;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import jpm.config.ProjectPaths;
+import jpm.daemon.BuildDaemon;
+import jpm.daemon.DaemonClient;
+import jpm.utils.Constants;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Daemon start command - launches the project's build daemon in the background, with the
+ * same JVM, options and classpath as this jpm process. Its output goes to
+ * target/.jpm-daemon.log.
+ */
+@Command(name = "start", description = "Start a build daemon for the project")
+public class DaemonStartCommand implements Callable<Integer> {
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(15);
+
+  @Option(
+      names = {"--idle-timeout"},
+      description = "Minutes without requests after which the daemon exits (default: 30)",
+      defaultValue = "" + Constants.DEFAULT_DAEMON_IDLE_MINUTES)
+  private int idleMinutes;
+
+  @Option(
+      names = {"--foreground"},
+      description = "Serve in this process instead of starting a background one")
+  private boolean foreground;
+
+  @Override
+  public Integer call() {
+    try {
+      if (!new File(ProjectPaths.CONFIG_FILE).exists()) {
+        CliErrorHandler.error(
+            "No " + ProjectPaths.CONFIG_FILE + " found. Run 'jpm new <name>' first.");
+        return 1;
+      }
+      if (DaemonClient.isRunning()) {
+        UserOutput.info("A daemon is already running for this project");
+        return 0;
+      }
+      FileUtils.ensureDirectory(ProjectPaths.TARGET_DIR);
+
+      var idleTimeout = Duration.ofMinutes(idleMinutes);
+      if (foreground) {
+        new BuildDaemon(Path.of(BuildDaemon.SOCKET_FILE), idleTimeout).serve();
+        return 0;
+      }
+
+      var command = new ArrayList<String>();
+      command.add(ProcessHandle.current().info().command().orElse("java"));
+      command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add("jpm.Main");
+      command.add("daemon");
+      command.add("start");
+      command.add("--foreground");
+      command.add("--idle-timeout=" + idleMinutes);
+
+      var log = new File(BuildDaemon.LOG_FILE);
+      var process = new ProcessBuilder(command)
+          .redirectErrorStream(true)
+          .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+          .start();
+      process.getOutputStream().close();
+
+      var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+      while (!DaemonClient.isRunning()) {
+        if (!process.isAlive() || System.nanoTime() > deadline) {
+          CliErrorHandler.error("Daemon did not start, see " + BuildDaemon.LOG_FILE);
+          return 1;
+        }
+        Thread.sleep(50);
+      }
+      UserOutput.info("Started daemon (pid " + process.pid() + "), it stops after "
+          + idleMinutes + " minutes idle");
+      UserOutput.info("build, test and fmt now run in it; stop it with 'jpm daemon stop'");
+      return 0;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 1;
+    } catch (Exception e) {
+      CliErrorHandler.error("Starting daemon", e);
+      return 1;
+    }
+  }
+}
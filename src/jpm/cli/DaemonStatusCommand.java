@@ -0,0 +1,23 @@
+package jpm.cli;
+
+import java.util.concurrent.Callable;
+import jpm.daemon.BuildDaemon;
+import jpm.daemon.DaemonClient;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+
+/**
+ * Daemon status command - reports whether the project's build daemon is running.
+ */
+@Command(name = "status", description = "Show whether the project's build daemon is running")
+public class DaemonStatusCommand implements Callable<Integer> {
+
+  @Override
+  public Integer call() {
+    if (DaemonClient.request(BuildDaemon.STATUS, new String[0]) == DaemonClient.NOT_HANDLED) {
+      UserOutput.print("No daemon running for this project");
+      return 1;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,22 @@
+package jpm.cli;
+
+import java.util.concurrent.Callable;
+import jpm.daemon.BuildDaemon;
+import jpm.daemon.DaemonClient;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+
+/**
+ * Daemon stop command - asks the project's build daemon to exit.
+ */
+@Command(name = "stop", description = "Stop the project's build daemon")
+public class DaemonStopCommand implements Callable<Integer> {
+
+  @Override
+  public Integer call() {
+    if (DaemonClient.request(BuildDaemon.STOP, new String[0]) == DaemonClient.NOT_HANDLED) {
+      UserOutput.info("No daemon running for this project");
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,171 @@
+package jpm.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import jpm.config.ProjectPaths;
+import jpm.deps.ArtifactSpec;
+import jpm.deps.BlobStore;
+import jpm.deps.CacheIndex;
+import jpm.deps.CacheLayers;
+import jpm.deps.CacheLock;
+import jpm.deps.Lockfile;
+import jpm.deps.MavenClient;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+
+/**
+ * Fetch command - downloads every artifact pinned in jpm.lock that is not cached yet,
+ * without compiling. Intended to warm the cache in one step before a build matrix.
+ */
+@Command(name = "fetch", description = "Download all locked dependencies into the cache")
+public class FetchCommand implements Callable<Integer> {
+
+  private static final int BAR_WIDTH = 30;
+
+  @Override
+  public Integer call() {
+    try {
+      var lockfile = Lockfile.load(new File(ProjectPaths.LOCK_FILE));
+      if (lockfile == null) {
+        CliErrorHandler.error(
+            "No " + ProjectPaths.LOCK_FILE + " found. Run 'jpm build' to create it.");
+        return 1;
+      }
+
+      // The cache index answers which artifacts are present without touching the JARs; a
+      // prefetch is not a use, so nothing is recorded in the access journal
+      var layers = CacheLayers.shared();
+      var missing = new ArrayList<ArtifactSpec>();
+      for (var entry : lockfile.getDependencies()) {
+        if (layers.find(entry.group(), entry.artifact(), entry.version(), "jar") == null) {
+          missing.add(new ArtifactSpec(
+              entry.group(),
+              entry.artifact(),
+              entry.version(),
+              FileUtils.getDependencyDir(entry.group(), entry.artifact(), entry.version()),
+              "jar"));
+        }
+      }
+
+      var total = lockfile.getDependencies().size();
+      if (missing.isEmpty()) {
+        UserOutput.info("All " + total + " locked dependencies are cached");
+        return 0;
+      }
+      UserOutput.info("Fetching " + missing.size() + " of " + total + " locked dependencies...");
+
+      var done = new AtomicInteger();
+      var bytes = new AtomicLong();
+      var failed = new ArrayList<ArtifactSpec>();
+      var interactive = System.console() != null;
+      var start = System.nanoTime();
+
+      new MavenClient().downloadArtifactsBatch(missing, (spec, success) -> {
+        if (success) {
+          var jar = new File(spec.outputDir(), spec.artifactId() + "-" + spec.version() + ".jar");
+          bytes.addAndGet(jar.length());
+        } else {
+          synchronized (failed) {
+            failed.add(spec);
+          }
+        }
+        var count = done.incrementAndGet();
+        if (interactive) {
+          printProgress(count, missing.size(), bytes.get(), start);
+        }
+      });
+      if (interactive) {
+        UserOutput.printNoLn("\n");
+      }
+
+      failed.addAll(checkDownloads(lockfile, missing, failed));
+
+      var seconds = Math.max((System.nanoTime() - start) / 1e9, 0.001);
+      UserOutput.info(String.format(
+          "Fetched %d artifacts (%s) in %.1fs (%s/s)",
+          missing.size() - failed.size(),
+          FileUtils.formatSize(bytes.get()),
+          seconds,
+          FileUtils.formatSize((long) (bytes.get() / seconds))));
+
+      if (!failed.isEmpty()) {
+        reportFailures(failed);
+        return 1;
+      }
+      return 0;
+
+    } catch (Exception e) {
+      CliErrorHandler.error("Fetching dependencies", e);
+      return 1;
+    }
+  }
+
+  /**
+   * Compares downloaded JARs against the checksums pinned in the lockfile. A mismatching JAR
+   * is removed from the cache again so a later build cannot pick it up.
+   *
+   * @return the artifacts whose download did not match
+   */
+  private static List<ArtifactSpec> checkDownloads(
+      Lockfile lockfile, List<ArtifactSpec> downloaded, List<ArtifactSpec> failed)
+      throws IOException {
+    var expected = new HashMap<String, String>();
+    for (var entry : lockfile.getDependencies()) {
+      if (entry.sha256() != null) {
+        expected.put(entry.key() + ":" + entry.version(), entry.sha256());
+      }
+    }
+
+    var index = CacheIndex.shared();
+    var mismatched = new ArrayList<ArtifactSpec>();
+    for (var spec : downloaded) {
+      var gav = spec.groupId() + ":" + spec.artifactId() + ":" + spec.version();
+      var pinned = expected.get(gav);
+      var cached = index.get(spec.groupId(), spec.artifactId(), spec.version(), "jar");
+      if (failed.contains(spec) || pinned == null || cached == null || cached.sha256() == null
+          || pinned.equals(cached.sha256())) {
+        continue;
+      }
+      UserOutput.error("Checksum mismatch for " + gav + ": expected " + pinned
+          + ", got " + cached.sha256());
+      var jar = new File(spec.outputDir(), spec.artifactId() + "-" + spec.version() + ".jar");
+      try (var lock = CacheLock.artifact(gav)) {
+        new BlobStore().discard(jar.toPath(), cached.sha256());
+        Files.deleteIfExists(jar.toPath());
+        Files.deleteIfExists(Path.of(jar.getPath() + BlobStore.CHECKSUM_SUFFIX));
+        index.removeVersions(List.of(gav));
+      }
+      mismatched.add(spec);
+    }
+    return mismatched;
+  }
+
+  private static synchronized void printProgress(int done, int total, long bytes, long start) {
+    var filled = BAR_WIDTH * done / total;
+    var seconds = Math.max((System.nanoTime() - start) / 1e9, 0.001);
+    UserOutput.printNoLn(String.format(
+        "\r[%s%s] %d/%d  %s  %s/s",
+        "=".repeat(filled),
+        " ".repeat(BAR_WIDTH - filled),
+        done,
+        total,
+        FileUtils.formatSize(bytes),
+        FileUtils.formatSize((long) (bytes / seconds))));
+  }
+
+  private static void reportFailures(List<ArtifactSpec> failed) {
+    UserOutput.error("Failed to fetch " + failed.size() + " artifacts:");
+    for (var spec : failed) {
+      UserOutput.print("  " + spec);
+    }
+  }
+}
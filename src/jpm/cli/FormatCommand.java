@@ -3,8 +3,10 @@ package jpm.cli;
 import java.io.File;
 import java.util.concurrent.Callable;
 import jpm.build.CodeFormatter;
+import jpm.build.SourceSet;
 import jpm.config.ConfigParser;
 import jpm.config.FmtConfig;
+import jpm.config.SourcesConfig;
 import jpm.utils.UserOutput;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -14,7 +16,7 @@ import picocli.CommandLine.Parameters;
  * Format command for Java source code using Palantir formatter.
  *
  * Features:
- * - Format all Java files in src/ and src/test/java/
+ * - Format all Java files in the source roots (src/ and src/test/java/ by default)
  * - Opinionated formatting (Palantir/Rust style)
  * - Check mode for CI integration (fails if unformatted)
  * - Support for specific file or directory formatting
@@ -32,7 +34,9 @@ import picocli.CommandLine.Parameters;
 @Command(name = "fmt", description = "Format Java source code", mixinStandardHelpOptions = true)
 public class FormatCommand implements Callable<Integer> {
 
-  @Parameters(arity = "0..*", description = "Files or directories to format (default: src/)")
+  @Parameters(
+      arity = "0..*",
+      description = "Files or directories to format (default: the source roots)")
   private String[] targets;
 
   @Option(
@@ -56,10 +60,12 @@ public class FormatCommand implements Callable<Integer> {
       // Load configuration from jpm.toml
       var configFile = new File("jpm.toml");
       FmtConfig fmtConfig;
+      var sources = new SourcesConfig();
 
       if (configFile.exists()) {
         var jpmConfig = ConfigParser.load(configFile);
         fmtConfig = jpmConfig != null ? jpmConfig.fmt() : new FmtConfig();
+        sources = jpmConfig != null ? jpmConfig.sources() : sources;
       } else {
         fmtConfig = new FmtConfig();
       }
@@ -82,9 +88,13 @@ public class FormatCommand implements Callable<Integer> {
 
       var formatter = new CodeFormatter(fmtConfig);
 
-      // Default to src/ if no targets specified
+      // Default to the source roots if no targets specified; a test root nested in the main
+      // root (src/test/java/ in src/) is formatted along with it
       if (targets == null || targets.length == 0) {
-        targets = new String[] {"src"};
+        var nested = !SourceSet.main(sources).excludedRoots().isEmpty();
+        targets = SourceSet.test(sources).exists() && !nested
+            ? new String[] {sources.getMain(), sources.getTest()}
+            : new String[] {sources.getMain()};
       }
 
       var totalFiles = 0;
@@ -0,0 +1,65 @@
+package jpm.cli;
+
+import java.util.concurrent.Callable;
+import jpm.deps.MavenMetadataClient;
+import jpm.utils.UserOutput;
+import jpm.utils.Version;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Outdated command - lists direct dependencies with newer versions in the repository.
+ * Versions come from maven-metadata.xml, fetched for all dependencies at once.
+ */
+@Command(name = "outdated", description = "List dependencies with newer versions available")
+public class OutdatedCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"--pre"},
+      description = "Also consider pre-release versions (alpha, beta, RC, milestones)")
+  private boolean preRelease;
+
+  @Override
+  public Integer call() {
+    try {
+      var config = CommandUtils.loadConfigOrFail();
+      if (config == null) {
+        return 1;
+      }
+      if (config.dependencies().isEmpty()) {
+        UserOutput.info("No dependencies declared");
+        return 0;
+      }
+
+      var keys = config.dependencies().keySet().stream().sorted().toList();
+      var versions = new MavenMetadataClient().lookup(keys);
+
+      var width = keys.stream().mapToInt(String::length).max().orElse(0);
+      var format = "%-" + width + "s  %-12s  %s";
+      var outdated = 0;
+      for (var key : keys) {
+        var current = config.dependencies().get(key);
+        var found = versions.get(key);
+        if (found == null) {
+          continue;
+        }
+        var latest = preRelease ? found.latest() : found.latestStable();
+        if (latest != null && Version.isNewer(latest, current)) {
+          if (outdated++ == 0) {
+            UserOutput.print(String.format(format, "Dependency", "Current", "Latest"));
+          }
+          UserOutput.print(String.format(format, key, current, latest));
+        }
+      }
+
+      if (outdated == 0) {
+        UserOutput.info("All " + keys.size() + " dependencies are up to date");
+      }
+      return versions.size() == keys.size() ? 0 : 1;
+
+    } catch (Exception e) {
+      CliErrorHandler.error("Checking for newer versions", e);
+      return 1;
+    }
+  }
+}
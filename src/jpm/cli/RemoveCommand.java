@@ -4,7 +4,7 @@ import java.io.File;
 import java.util.concurrent.Callable;
 import jpm.config.ConfigParser;
 import jpm.config.ProjectPaths;
-import jpm.deps.CacheManager;
+import jpm.deps.RefRegistry;
 import jpm.utils.UserOutput;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
@@ -39,9 +39,9 @@ public class RemoveCommand implements Callable<Integer> {
       config.removeDependency(artifact);
       ConfigParser.save(config, configFile);
 
-      // Clean from cache
-      var cacheManager = new CacheManager();
-      cacheManager.cleanArtifact(groupId, artifact);
+      // Drop this project's reference; other projects may still use the cached artifact,
+      // and 'jpm cache gc --unreferenced' deletes it once none do
+      RefRegistry.dropArtifact(new File("."), groupId, keyToRemove.split(":")[1]);
 
       UserOutput.info("Removed " + keyToRemove + "=" + version);
 
@@ -2,7 +2,6 @@ package jpm.cli;
 
 import jpm.build.Compiler;
 import jpm.build.Runner;
-import jpm.config.ProjectPaths;
 import jpm.utils.UserOutput;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
@@ -17,15 +16,9 @@ public class RunCommand extends AbstractBuildCommand {
   @Parameters(arity = "0..*", description = "Arguments to pass to main class")
   private String[] args;
 
-  @Override
-  protected void validateProject() {
-    super.validateProject();
-    validateSourceDirExists(getSourceDir(), ProjectPaths.SRC_DIR);
-  }
-
   @Override
   protected Compiler.CompileResult compile() throws Exception {
-    return compileSources(getSourceDir(), getOutputDir());
+    return compileSources(getSourceSet());
   }
 
   @Override
@@ -42,6 +35,11 @@ public class RunCommand extends AbstractBuildCommand {
     return runResult.exitCode();
   }
 
+  @Override
+  protected boolean holdCacheLockDuringExecute() {
+    return false;
+  }
+
   @Override
   protected String getCommandName() {
     return "run";
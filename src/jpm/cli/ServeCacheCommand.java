@@ -0,0 +1,72 @@
+package jpm.cli;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import jpm.net.CacheServer;
+import jpm.utils.Constants;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Serve-cache command - exposes the local artifact cache as a Maven repository mirror.
+ * Clients point JPM_MIRROR at the server to share one cache across a team or CI farm.
+ */
+@Command(
+    name = "serve-cache",
+    description = "Serve ~/.jpm/cache over HTTP as a caching Maven mirror")
+public class ServeCacheCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"--port"},
+      description = "Port to listen on (default: 8585)",
+      defaultValue = "" + Constants.DEFAULT_CACHE_SERVER_PORT)
+  private int port;
+
+  @Option(
+      names = {"--bind"},
+      description = "Address to bind (default: 0.0.0.0)",
+      defaultValue = "0.0.0.0")
+  private String bindAddress;
+
+  @Option(
+      names = {"--upstream"},
+      description = "Upstream repository for cache misses (default: Maven Central)",
+      defaultValue = Constants.MAVEN_CENTRAL)
+  private String upstream;
+
+  @Override
+  public Integer call() {
+    try {
+      var cacheDir = FileUtils.getCacheDir();
+      FileUtils.ensureDirectory(cacheDir);
+
+      var server = new CacheServer(cacheDir.toPath(), upstream);
+      server.start(new InetSocketAddress(bindAddress, port));
+
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        server.stop(1);
+        UserOutput.info(
+            "\nServed " + server.getHits() + " hits, " + server.getMisses() + " misses");
+      }));
+
+      UserOutput.info("Serving " + cacheDir.getAbsolutePath());
+      UserOutput.info("  Listening on http://" + bindAddress + ":" + server.getPort() + "/");
+      UserOutput.info("  Upstream: " + upstream);
+      UserOutput.info("Point clients at it with: export " + Constants.MIRROR_ENV
+          + "=http://<host>:" + server.getPort() + "/");
+
+      // Serve until the process is interrupted (Ctrl+C)
+      Thread.currentThread().join();
+      return 0;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 1;
+    } catch (Exception e) {
+      CliErrorHandler.error("Starting cache server", e);
+      return 1;
+    }
+  }
+}
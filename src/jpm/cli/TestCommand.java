@@ -3,10 +3,10 @@ package jpm.cli;
 import java.io.File;
 import jpm.build.ClasspathBuilder;
 import jpm.build.Compiler;
+import jpm.build.SourceSet;
 import jpm.build.TestCompiler;
 import jpm.build.TestRunner;
 import jpm.config.ProfileConfig;
-import jpm.config.ProjectPaths;
 import jpm.utils.Constants;
 import jpm.utils.FileUtils;
 import jpm.utils.UserOutput;
@@ -18,7 +18,8 @@ import picocli.CommandLine.Option;
  * Extends AbstractBuildCommand for shared build lifecycle.
  *
  * Features:
- * - Automatically discovers and runs tests from src/test/java/
+ * - Automatically discovers and runs tests from src/test/java/ (or the configured test root)
+ * - Compiles the main sources first and puts them on the test classpath
  * - Supports test filtering by class name
  * - Generates JUnit XML report for CI integration
  * - Parallel test execution (enabled by default)
@@ -51,13 +52,14 @@ public class TestCommand extends AbstractBuildCommand {
       defaultValue = "target")
   private File reportDir;
 
-  @Override
-  protected void validateProject() {
-    super.validateProject();
+  // Dependencies only, for compiling the main sources
+  private String mainClasspath;
 
+  @Override
+  protected void validateSourceSet() {
     var testSourceDir = getSourceDir();
     if (!testSourceDir.exists()) {
-      throw new ProjectValidationException("No " + ProjectPaths.TEST_DIR
+      throw new ProjectValidationException("No " + testSourceDir.getPath()
           + "/ directory found. Create test directory and add JUnit tests.");
     }
   }
@@ -83,15 +85,14 @@ public class TestCommand extends AbstractBuildCommand {
   protected void resolveDependencies() throws Exception {
     // Resolve project dependencies
     super.resolveDependencies();
+    mainClasspath = classpath;
 
     // Add JUnit to classpath
     classpath = addJUnitToClasspath(classpath);
 
-    // Add main classes to classpath
-    var mainClasses = new File(ProjectPaths.CLASSES_DIR);
-    if (mainClasses.exists()) {
-      classpath = ClasspathBuilder.combineClasspaths(mainClasses.getAbsolutePath(), classpath);
-    }
+    // Add main classes to classpath; compile() brings them up to date first
+    var mainClasses = SourceSet.main(config.sources()).outputDir();
+    classpath = ClasspathBuilder.combineClasspaths(mainClasses.getAbsolutePath(), classpath);
   }
 
   @Override
@@ -110,29 +111,31 @@ public class TestCommand extends AbstractBuildCommand {
   }
 
   @Override
-  protected File getSourceDir() {
-    return new File(ProjectPaths.TEST_DIR);
-  }
-
-  @Override
-  protected File getOutputDir() {
-    return new File(ProjectPaths.TEST_CLASSES_DIR);
+  protected SourceSet getSourceSet() {
+    return SourceSet.test(config.sources());
   }
 
   @Override
   protected Compiler.CompileResult compile() throws Exception {
+    // The tests see the main classes, so those are compiled first, on their own classpath
+    var mainSources = SourceSet.main(config.sources());
+    if (mainSources.exists() && !mainSources.sourceFiles().isEmpty()) {
+      var mainResult = new Compiler()
+          .compile(mainSources, mainClasspath, profileConfig.getEffectiveCompilerArgs());
+      if (!mainResult.success()) {
+        return mainResult;
+      }
+    }
+
     if (!quiet) {
       UserOutput.info("Compiling tests...");
     }
 
-    var testSourceDir = getSourceDir();
-    var testOutputDir = getOutputDir();
-
     var testCompiler = new TestCompiler();
     var javaVersion = config.package_().javaVersion() != null
         ? config.package_().javaVersion()
         : Constants.DEFAULT_JAVA_VERSION;
-    var result = testCompiler.compileTests(testSourceDir, testOutputDir, classpath, javaVersion);
+    var result = testCompiler.compileTests(getSourceSet(), classpath, javaVersion);
 
     if (result.success() && !quiet) {
       UserOutput.info("Compiled tests successfully");
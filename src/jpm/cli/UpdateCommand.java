@@ -0,0 +1,109 @@
+package jpm.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import jpm.config.ConfigParser;
+import jpm.config.ProjectPaths;
+import jpm.deps.CacheLock;
+import jpm.deps.DependencyResolver;
+import jpm.deps.MavenMetadataClient;
+import jpm.utils.UserOutput;
+import jpm.utils.Version;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Update command - bumps direct dependencies to their newest versions and rewrites jpm.toml
+ * and jpm.lock. The bumped versions are resolved on top of the locked graph first, and jpm.toml
+ * is only written once they resolved.
+ */
+@Command(name = "update", description = "Update dependencies to their newest versions")
+public class UpdateCommand implements Callable<Integer> {
+
+  @Parameters(
+      arity = "0..*",
+      description = "Dependencies to update (artifactId or group:artifact; default: all)")
+  private List<String> artifacts = List.of();
+
+  @Option(
+      names = {"--pre"},
+      description = "Also update to pre-release versions (alpha, beta, RC, milestones)")
+  private boolean preRelease;
+
+  @Option(
+      names = {"--dry-run"},
+      description = "Show what would be updated without changing any files")
+  private boolean dryRun;
+
+  @Override
+  public Integer call() {
+    try {
+      var config = CommandUtils.loadConfigOrFail();
+      if (config == null) {
+        return 1;
+      }
+
+      var keys = new ArrayList<String>();
+      for (var artifact : artifacts) {
+        var key = config.findDependencyKey(artifact);
+        if (key == null) {
+          CliErrorHandler.error("Dependency '" + artifact + "' not found in jpm.toml");
+          return 1;
+        }
+        keys.add(key);
+      }
+      if (artifacts.isEmpty()) {
+        keys.addAll(config.dependencies().keySet().stream().sorted().toList());
+      }
+      if (keys.isEmpty()) {
+        UserOutput.info("No dependencies declared");
+        return 0;
+      }
+
+      var versions = new MavenMetadataClient().lookup(keys);
+      var updated = new ArrayList<String>();
+      for (var key : keys) {
+        var found = versions.get(key);
+        var latest = found == null ? null : preRelease ? found.latest() : found.latestStable();
+        var current = config.dependencies().get(key);
+        if (latest != null && Version.isNewer(latest, current)) {
+          UserOutput.info("Updating " + key + " " + current + " -> " + latest);
+          config.addDependency(key, latest);
+          updated.add(key);
+        }
+      }
+
+      if (updated.isEmpty()) {
+        UserOutput.info("All dependencies are up to date");
+        return 0;
+      }
+      if (dryRun) {
+        return 0;
+      }
+
+      // Resolve the bumped versions before touching jpm.toml
+      try (var lock = CacheLock.shared()) {
+        var deps = new DependencyResolver().resolveWithLockfile(new File("."), config, false);
+        var resolved = deps.stream().map(d -> d.groupId() + ":" + d.artifactId()).toList();
+        var failed = updated.stream().filter(key -> !resolved.contains(key)).toList();
+        if (!failed.isEmpty()) {
+          CliErrorHandler.error("Could not resolve " + String.join(", ", failed)
+              + "; " + ProjectPaths.CONFIG_FILE + " was not changed");
+          return 1;
+        }
+        ConfigParser.save(config, new File(ProjectPaths.CONFIG_FILE));
+        UserOutput.info(
+            "Updated " + updated.size() + " dependencies (" + deps.size() + " artifacts)");
+      }
+      CommandUtils.syncIdeConfig(config);
+      return 0;
+
+    } catch (Exception e) {
+      CliErrorHandler.error("Updating dependencies", e);
+      return 1;
+    }
+  }
+}
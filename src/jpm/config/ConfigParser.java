@@ -1,12 +1,15 @@
 package jpm.config;
 
-import com.moandjiezana.toml.Toml;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import jpm.utils.Constants;
 import jpm.utils.FileUtils;
+import jpm.utils.TomlReader;
+import jpm.utils.TomlWriter;
 
 /**
  * Parser for JPM configuration files (jpm.toml).
@@ -14,6 +17,33 @@ import jpm.utils.FileUtils;
  */
 public class ConfigParser {
 
+  private static final String PROFILE_PREFIX = "profile.";
+
+  private record Loaded(File file, long size, long lastModified, JpmConfig config) {}
+
+  private static volatile Loaded lastLoaded;
+
+  /**
+   * Like {@link #load}, but returns the previous result while the file keeps its size and
+   * modification time. For callers that do not modify the config; it pays off in the build
+   * daemon, where one JVM builds the same project again and again.
+   */
+  public static JpmConfig loadCached(File configFile) throws IOException {
+    var file = configFile.getAbsoluteFile();
+    var loaded = lastLoaded;
+    if (loaded != null && loaded.file().equals(file) && loaded.size() == file.length()
+        && loaded.lastModified() == file.lastModified()) {
+      return loaded.config();
+    }
+    var size = file.length();
+    var lastModified = file.lastModified();
+    var config = load(file);
+    if (config != null) {
+      lastLoaded = new Loaded(file, size, lastModified, config);
+    }
+    return config;
+  }
+
   /**
    * Loads a JPM configuration from a TOML file.
    *
@@ -26,61 +56,122 @@ public class ConfigParser {
       return null;
     }
 
-    var toml = new Toml().read(configFile);
+    var toml = TomlReader.of(configFile);
 
-    // Parse package section
-    var packageToml = toml.getTable("package");
-    var pkg = new JpmConfig.PackageConfig(
-        packageToml != null ? packageToml.getString("name") : null,
-        packageToml != null ? packageToml.getString("version") : null,
-        packageToml != null ? packageToml.getString("java-version") : null);
-
-    // Parse dependencies section
+    String name = null;
+    String version = null;
+    String javaVersion = null;
     var deps = new HashMap<String, String>();
-    var depsToml = toml.getTable("dependencies");
-    if (depsToml != null) {
-      for (var entry : depsToml.entrySet()) {
-        String key = stripQuotes(entry.getKey());
-        deps.put(key, entry.getValue().toString());
+    var profiles = new LinkedHashMap<String, ProfileFields>();
+    Integer lineLength = null;
+    Boolean organizeImports = null;
+    List<String> skipPatterns = null;
+    String formatter = null;
+    String mainRoot = null;
+    String testRoot = null;
+
+    String table = "";
+    for (var event = toml.next(); event != null; event = toml.next()) {
+      if (event != TomlReader.Event.VALUE) {
+        table = toml.table();
+        // [profile.NAME] and [profile.NAME.dependencies]
+        if (table.startsWith(PROFILE_PREFIX)) {
+          profiles.computeIfAbsent(profileName(table), ProfileFields::new);
+        }
+        continue;
       }
-    }
 
-    // Parse profile sections
-    var profiles = new HashMap<String, ProfileConfig>();
-    for (var entry : toml.entrySet()) {
-      var key = entry.getKey();
-      if (key.startsWith("profile.")) {
-        var profileName = key.substring("profile.".length());
-        var profileToml = toml.getTable(key);
-        if (profileToml != null) {
-          profiles.put(profileName, parseProfile(profileName, profileToml));
+      var key = toml.key();
+      switch (table) {
+        case "package" -> {
+          switch (key) {
+            case "name" -> name = toml.stringValue();
+            case "version" -> version = toml.stringValue();
+            case "java-version" -> javaVersion = toml.stringValue();
+            default -> { }
+          }
+        }
+        case "dependencies" -> deps.put(key, toml.stringValue());
+        case "sources" -> {
+          switch (key) {
+            case "main" -> mainRoot = toml.stringValue();
+            case "test" -> testRoot = toml.stringValue();
+            default -> { }
+          }
+        }
+        case "fmt" -> {
+          switch (key) {
+            case "line-length" -> lineLength = Math.toIntExact(toml.longValue());
+            case "organize-imports" -> organizeImports = toml.booleanValue();
+            case "skip-patterns" -> skipPatterns = toml.stringList();
+            case "formatter" -> formatter = toml.stringValue();
+            default -> { }
+          }
+        }
+        default -> {
+          if (table.startsWith(PROFILE_PREFIX)) {
+            var profile = profiles.get(profileName(table));
+            if (table.endsWith(".dependencies")) {
+              profile.dependencies.put(key, toml.stringValue());
+            } else {
+              profile.set(toml);
+            }
+          }
         }
       }
     }
 
-    // Parse fmt section
-    var fmt = parseFmt(toml);
+    var profileConfigs = new HashMap<String, ProfileConfig>();
+    profiles.forEach((profileName, fields) -> profileConfigs.put(profileName, fields.toConfig()));
 
-    return new JpmConfig(pkg, deps, profiles, fmt);
+    var fmt = lineLength == null && organizeImports == null && skipPatterns == null
+        && formatter == null
+        ? new FmtConfig()
+        : new FmtConfig(lineLength, organizeImports, skipPatterns, formatter);
+
+    return new JpmConfig(
+        new JpmConfig.PackageConfig(name, version, javaVersion), deps, profileConfigs, fmt,
+        new SourcesConfig(mainRoot, testRoot));
   }
 
-  private static FmtConfig parseFmt(Toml toml) {
-    var fmtToml = toml.getTable("fmt");
-    if (fmtToml == null) {
-      return new FmtConfig();
-    }
+  private static String profileName(String table) {
+    var name = table.substring(PROFILE_PREFIX.length());
+    return name.endsWith(".dependencies")
+        ? name.substring(0, name.length() - ".dependencies".length())
+        : name;
+  }
 
-    var lineLength = fmtToml.getLong("line-length");
-    var organizeImports = fmtToml.getBoolean("organize-imports");
-    var skipPatterns = fmtToml.getList("skip-patterns");
+  /**
+   * Fields of a [profile.NAME] table being read.
+   */
+  private static final class ProfileFields {
+    private final String name;
+    private List<String> compilerArgs = List.of();
+    private List<String> jvmArgs = List.of();
+    private boolean optimize;
+    private boolean stripDebug;
+    private String inherits;
+    private final Map<String, String> dependencies = new HashMap<>();
+
+    ProfileFields(String name) {
+      this.name = name;
+    }
 
-    var formatter = fmtToml.getString("formatter");
+    void set(TomlReader toml) throws IOException {
+      switch (toml.key()) {
+        case "compiler-args" -> compilerArgs = toml.stringList();
+        case "jvm-args" -> jvmArgs = toml.stringList();
+        case "optimize" -> optimize = toml.booleanValue();
+        case "strip-debug" -> stripDebug = toml.booleanValue();
+        case "inherits" -> inherits = toml.stringValue();
+        default -> { }
+      }
+    }
 
-    return new FmtConfig(
-        lineLength != null ? lineLength.intValue() : null,
-        organizeImports,
-        skipPatterns != null ? skipPatterns.stream().map(Object::toString).toList() : null,
-        formatter);
+    ProfileConfig toConfig() {
+      return new ProfileConfig(
+          name, compilerArgs, jvmArgs, optimize, stripDebug, inherits, dependencies);
+    }
   }
 
   /**
@@ -91,113 +182,49 @@ public class ConfigParser {
    * @throws IOException if writing fails
    */
   public static void save(JpmConfig config, File configFile) throws IOException {
-    var toml = new StringBuilder();
-
-    // Package section
-    toml.append("""
-        [package]
-        name = "%s"
-        version = "%s"
-        java-version = "%s"
-        """.formatted(
-            escape(config.package_().name()),
-            escape(config.package_().version()),
-            escape(config.package_().javaVersion())));
-
-    // Dependencies section
+    var toml = new TomlWriter()
+        .table("package")
+        .string("name", nullToEmpty(config.package_().name()))
+        .string("version", nullToEmpty(config.package_().version()))
+        .string("java-version", nullToEmpty(config.package_().javaVersion()));
+
+    var sources = config.sources();
+    if (sources != null && !sources.isDefault()) {
+      toml.table("sources")
+          .string("main", sources.main())
+          .string("test", sources.test());
+    }
+
     if (!config.dependencies().isEmpty()) {
-      toml.append("\n[dependencies]\n");
+      toml.table("dependencies");
       for (var entry : config.dependencies().entrySet()) {
-        var key = entry.getKey();
-        var value = entry.getValue();
-        // Keys with special characters need quotes
-        if (key.contains(":") || key.contains(".") || key.contains("-")) {
-          toml.append("\"").append(escape(key)).append("\"");
-        } else {
-          toml.append(key);
-        }
-        toml.append(" = \"").append(escape(value)).append("\"\n");
+        toml.string(entry.getKey(), entry.getValue());
       }
     }
 
-    // Profiles section
-    if (!config.profiles().isEmpty()) {
-      for (var entry : config.profiles().entrySet()) {
-        var profileName = entry.getKey();
-        var profile = entry.getValue();
-        toml.append("\n[profile.%s]\n".formatted(profileName));
-        if (profile.inherits() != null) {
-          toml.append("inherits = \"%s\"\n".formatted(escape(profile.inherits())));
-        }
-        if (profile.optimize()) {
-          toml.append("optimize = true\n");
-        }
-        if (profile.stripDebug()) {
-          toml.append("strip-debug = true\n");
-        }
-        if (!profile.compilerArgs().isEmpty()) {
-          toml.append("compiler-args = [");
-          var args = profile.compilerArgs();
-          for (int i = 0; i < args.size(); i++) {
-            if (i > 0) toml.append(", ");
-            toml.append("\"").append(escape(args.get(i))).append("\"");
-          }
-          toml.append("]\n");
-        }
-        if (!profile.jvmArgs().isEmpty()) {
-          toml.append("jvm-args = [");
-          var args = profile.jvmArgs();
-          for (int i = 0; i < args.size(); i++) {
-            if (i > 0) toml.append(", ");
-            toml.append("\"").append(escape(args.get(i))).append("\"");
-          }
-          toml.append("]\n");
-        }
+    for (var entry : config.profiles().entrySet()) {
+      var profile = entry.getValue();
+      toml.table("profile", entry.getKey())
+          .string("inherits", profile.inherits());
+      if (profile.optimize()) {
+        toml.bool("optimize", true);
       }
-    }
-
-    FileUtils.writeFile(configFile, toml.toString());
-  }
-
-  private static ProfileConfig parseProfile(String name, Toml toml) {
-    var compilerArgs = toml.getList("compiler-args");
-    var jvmArgs = toml.getList("jvm-args");
-    var deps = new HashMap<String, String>();
-
-    var depsToml = toml.getTable("dependencies");
-    if (depsToml != null) {
-      for (var entry : depsToml.entrySet()) {
-        String key = stripQuotes(entry.getKey());
-        deps.put(key, entry.getValue().toString());
+      if (profile.stripDebug()) {
+        toml.bool("strip-debug", true);
+      }
+      if (!profile.compilerArgs().isEmpty()) {
+        toml.stringList("compiler-args", profile.compilerArgs());
+      }
+      if (!profile.jvmArgs().isEmpty()) {
+        toml.stringList("jvm-args", profile.jvmArgs());
       }
     }
 
-    return new ProfileConfig(
-        name,
-        compilerArgs != null ? compilerArgs.stream().map(Object::toString).toList() : List.of(),
-        jvmArgs != null ? jvmArgs.stream().map(Object::toString).toList() : List.of(),
-        toml.getBoolean("optimize", false),
-        toml.getBoolean("strip-debug", false),
-        toml.getString("inherits"),
-        deps);
-  }
-
-  private static String escape(String value) {
-    if (value == null) return "";
-    return value
-        .replace("\\", "\\\\")
-        .replace("\"", "\\\"")
-        .replace("\n", "\\n")
-        .replace("\r", "\\r")
-        .replace("\t", "\\t");
+    FileUtils.writeFile(configFile, toml.toString());
   }
 
-  private static String stripQuotes(String value) {
-    if (value == null) return "";
-    if (value.startsWith("\"") && value.endsWith("\"")) {
-      return value.substring(1, value.length() - 1);
-    }
-    return value;
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
   }
 
   /**
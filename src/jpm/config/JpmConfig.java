@@ -12,12 +12,21 @@ public record JpmConfig(
     PackageConfig package_,
     Map<String, String> dependencies,
     Map<String, ProfileConfig> profiles,
-    FmtConfig fmt) {
+    FmtConfig fmt,
+    SourcesConfig sources) {
 
   public JpmConfig() {
     this(new PackageConfig(), new HashMap<>(), new HashMap<>(), new FmtConfig());
   }
 
+  public JpmConfig(
+      PackageConfig package_,
+      Map<String, String> dependencies,
+      Map<String, ProfileConfig> profiles,
+      FmtConfig fmt) {
+    this(package_, dependencies, profiles, fmt, new SourcesConfig());
+  }
+
   /**
    * Nested record for package configuration.
    */
@@ -74,7 +83,8 @@ public record JpmConfig(
    * @return a new JpmConfig instance
    */
   public JpmConfig withPackage(PackageConfig newPackage) {
-    return new JpmConfig(newPackage, new HashMap<>(dependencies), new HashMap<>(profiles), fmt);
+    return new JpmConfig(
+        newPackage, new HashMap<>(dependencies), new HashMap<>(profiles), fmt, sources);
   }
 
   /**
@@ -84,7 +94,8 @@ public record JpmConfig(
    * @return a new JpmConfig instance
    */
   public JpmConfig withDependencies(Map<String, String> newDependencies) {
-    return new JpmConfig(package_, new HashMap<>(newDependencies), new HashMap<>(profiles), fmt);
+    return new JpmConfig(
+        package_, new HashMap<>(newDependencies), new HashMap<>(profiles), fmt, sources);
   }
 
   /**
@@ -94,7 +105,8 @@ public record JpmConfig(
    * @return a new JpmConfig instance
    */
   public JpmConfig withProfiles(Map<String, ProfileConfig> newProfiles) {
-    return new JpmConfig(package_, new HashMap<>(dependencies), new HashMap<>(newProfiles), fmt);
+    return new JpmConfig(
+        package_, new HashMap<>(dependencies), new HashMap<>(newProfiles), fmt, sources);
   }
 
   /**
@@ -104,6 +116,18 @@ public record JpmConfig(
    * @return a new JpmConfig instance
    */
   public JpmConfig withFmt(FmtConfig newFmt) {
-    return new JpmConfig(package_, new HashMap<>(dependencies), new HashMap<>(profiles), newFmt);
+    return new JpmConfig(
+        package_, new HashMap<>(dependencies), new HashMap<>(profiles), newFmt, sources);
+  }
+
+  /**
+   * Creates a copy of this config with new source roots.
+   *
+   * @param newSources the new sources config
+   * @return a new JpmConfig instance
+   */
+  public JpmConfig withSources(SourcesConfig newSources) {
+    return new JpmConfig(
+        package_, new HashMap<>(dependencies), new HashMap<>(profiles), fmt, newSources);
   }
 }
@@ -18,6 +18,7 @@ public final class ProjectPaths {
   public static final String TARGET_DIR = "target";
   public static final String CLASSES_DIR = "target/classes";
   public static final String TEST_CLASSES_DIR = "target/test-classes";
+  public static final String LIB_DIR = "target/lib";
 
   // IDE and Git files
   public static final String DOT_PROJECT = ".project";
@@ -0,0 +1,24 @@
+package jpm.config;
+
+/**
+ * Configuration record for the source roots ([sources] in jpm.toml).
+ * Unset roots fall back to the standard layout: src/ for main, src/test/java/ for tests.
+ */
+public record SourcesConfig(String main, String test) {
+
+  public SourcesConfig() {
+    this(null, null);
+  }
+
+  public String getMain() {
+    return main != null && !main.isBlank() ? main : ProjectPaths.SRC_DIR;
+  }
+
+  public String getTest() {
+    return test != null && !test.isBlank() ? test : ProjectPaths.TEST_DIR;
+  }
+
+  public boolean isDefault() {
+    return main == null && test == null;
+  }
+}
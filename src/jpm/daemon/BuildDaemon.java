@@ -0,0 +1,283 @@
+package jpm.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import jpm.Main;
+import jpm.config.ProjectPaths;
+import jpm.deps.AccessJournal;
+import jpm.deps.CacheIndex;
+import jpm.utils.ProcessExecutor;
+import jpm.utils.UserOutput;
+import picocli.CommandLine;
+
+/**
+ * Long-lived build process for one project. It listens on a Unix domain socket in target/
+ * and runs the commands that {@link DaemonClient} forwards to it, one at a time, streaming
+ * their output back.
+ *
+ * Staying alive keeps javac, the formatter and jpm itself loaded and JIT-compiled, and keeps
+ * the parsed jpm.toml and resolution state in memory (both are re-read once their files
+ * change). The cache index is reloaded whenever another process removed artifacts, and the
+ * index and access journal are flushed after every request, so other processes and
+ * `jpm cache gc` see what the daemon downloaded and uses. The daemon exits after an idle
+ * timeout, on `jpm daemon stop`, or when its socket disappears (e.g. `jpm clean`).
+ *
+ * Protocol: the client writes the greeting, the request kind, its environment fingerprint
+ * and the arguments (DataOutput UTF strings). The daemon answers with frames of a type byte
+ * and, for output, a length-prefixed chunk; an EXIT frame with the exit code ends the reply.
+ */
+public final class BuildDaemon {
+
+  public static final String SOCKET_FILE = ProjectPaths.TARGET_DIR + "/.jpm-daemon.sock";
+  public static final String LOG_FILE = ProjectPaths.TARGET_DIR + "/.jpm-daemon.log";
+
+  static final String GREETING = "jpm-daemon 1";
+
+  /** Request kinds. */
+  public static final String RUN = "run";
+  public static final String STATUS = "status";
+  public static final String STOP = "stop";
+
+  static final int STDOUT = 1;
+  static final int STDERR = 2;
+  static final int EXIT = 3;
+  static final int REFUSED = 4;
+
+  private static final Duration CHECK_INTERVAL = Duration.ofSeconds(5);
+
+  private final Path socket;
+  private final Duration idleTimeout;
+  private final String environment = DaemonClient.environmentFingerprint();
+  private final Instant started = Instant.now();
+
+  private volatile Instant lastActivity = Instant.now();
+  private volatile boolean busy;
+  private volatile boolean stopping;
+  private int requestsServed;
+  private long evictionStamp = evictionStamp();
+
+  public BuildDaemon(Path socket, Duration idleTimeout) {
+    this.socket = socket;
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Serves requests until stopped, idle for too long, or the socket file is removed.
+   */
+  public void serve() throws IOException {
+    // A leftover socket from a daemon that died; the caller checked that none answers
+    Files.deleteIfExists(socket);
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      ProcessExecutor.setForwardOutput(true);
+      Thread.ofPlatform().daemon().name("jpm-daemon-watchdog").start(() -> watch(server));
+      UserOutput.info("Daemon listening on " + socket.toAbsolutePath()
+          + " (pid " + ProcessHandle.current().pid() + ")");
+
+      while (!stopping) {
+        SocketChannel channel;
+        try {
+          channel = server.accept();
+        } catch (ClosedChannelException e) {
+          break;
+        }
+        busy = true;
+        try (channel) {
+          handle(channel);
+        } catch (IOException e) {
+          UserOutput.debug("Request failed: " + e.getMessage());
+        } finally {
+          lastActivity = Instant.now();
+          busy = false;
+        }
+      }
+    } finally {
+      Files.deleteIfExists(socket);
+      UserOutput.info("Daemon stopped after " + requestsServed + " requests");
+    }
+  }
+
+  /**
+   * Closes the server once the daemon has been idle for too long or its socket was deleted.
+   */
+  private void watch(ServerSocketChannel server) {
+    while (server.isOpen()) {
+      try {
+        Thread.sleep(CHECK_INTERVAL);
+      } catch (InterruptedException e) {
+        return;
+      }
+      var idle = Duration.between(lastActivity, Instant.now());
+      String reason = null;
+      if (!Files.exists(socket)) {
+        reason = "socket " + socket + " was removed";
+      } else if (!busy && idle.compareTo(idleTimeout) > 0) {
+        reason = "idle for " + idleTimeout.toMinutes() + " minutes";
+      }
+      if (reason != null) {
+        UserOutput.info("Stopping: " + reason);
+        stopping = true;
+        try {
+          server.close();
+        } catch (IOException e) {
+          // Closing is best effort; the accept loop ends either way
+        }
+      }
+    }
+  }
+
+  private void handle(SocketChannel channel) throws IOException {
+    var in = new DataInputStream(Channels.newInputStream(channel));
+    var out = new FrameWriter(Channels.newOutputStream(channel));
+    if (!GREETING.equals(in.readUTF())) {
+      return;
+    }
+    var kind = in.readUTF();
+    var clientEnvironment = in.readUTF();
+    var args = new String[in.readInt()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = in.readUTF();
+    }
+
+    switch (kind) {
+      case RUN -> {
+        if (!environment.equals(clientEnvironment)) {
+          // The daemon cannot change its environment (JPM_* variables, JAVA_HOME, PATH)
+          out.refuse("the environment differs from the daemon's");
+        } else {
+          out.exit(run(args, out));
+        }
+      }
+      case STATUS -> {
+        out.text(STDOUT, status());
+        out.exit(0);
+      }
+      case STOP -> {
+        stopping = true;
+        out.text(STDOUT, "Daemon stopped (pid " + ProcessHandle.current().pid() + ")\n");
+        out.exit(0);
+      }
+      default -> out.refuse("unknown request " + kind);
+    }
+  }
+
+  /**
+   * Runs a jpm command in this JVM with System.out and System.err sent to the client.
+   */
+  private int run(String[] args, FrameWriter out) {
+    requestsServed++;
+    var stdout = System.out;
+    var stderr = System.err;
+    var commandOut = new PrintStream(out.stream(STDOUT), true, StandardCharsets.UTF_8);
+    var commandErr = new PrintStream(out.stream(STDERR), true, StandardCharsets.UTF_8);
+    System.setOut(commandOut);
+    System.setErr(commandErr);
+    UserOutput.setDebug(false);
+    UserOutput.setQuiet(false);
+    refreshCacheIndex();
+    try {
+      return new CommandLine(new Main()).execute(args);
+    } finally {
+      // gc goes by the journal; without the flush our accesses only count once we exit
+      AccessJournal.shared().flush();
+      CacheIndex.shared().flush();
+      commandOut.flush();
+      commandErr.flush();
+      System.setOut(stdout);
+      System.setErr(stderr);
+    }
+  }
+
+  /**
+   * Drops the loaded cache index once a gc, clean or quarantine in another process removed
+   * artifacts, so lookups do not return JARs that are gone.
+   */
+  private void refreshCacheIndex() {
+    var stamp = evictionStamp();
+    if (stamp != evictionStamp) {
+      evictionStamp = stamp;
+      CacheIndex.reset();
+      UserOutput.debug("Cache changed since the last request, reloading its index");
+    }
+  }
+
+  private static long evictionStamp() {
+    return CacheIndex.evictionStamp().toFile().lastModified();
+  }
+
+  private String status() {
+    var uptime = Duration.between(started, Instant.now());
+    return "Daemon running (pid " + ProcessHandle.current().pid() + ")\n"
+        + "  Up " + uptime.toMinutes() + " minutes, " + requestsServed + " requests served\n"
+        + "  Stops after " + idleTimeout.toMinutes() + " minutes idle\n";
+  }
+
+  /**
+   * Writes reply frames; output from several threads (e.g. child process pumps) interleaves
+   * by whole chunks.
+   */
+  private static final class FrameWriter {
+
+    private final DataOutputStream out;
+
+    FrameWriter(OutputStream out) {
+      this.out = new DataOutputStream(out);
+    }
+
+    synchronized void write(int type, byte[] bytes, int offset, int length) throws IOException {
+      out.writeByte(type);
+      out.writeInt(length);
+      out.write(bytes, offset, length);
+      out.flush();
+    }
+
+    void text(int type, String text) throws IOException {
+      var bytes = text.getBytes(StandardCharsets.UTF_8);
+      write(type, bytes, 0, bytes.length);
+    }
+
+    synchronized void exit(int code) throws IOException {
+      out.writeByte(EXIT);
+      out.writeInt(code);
+      out.flush();
+    }
+
+    synchronized void refuse(String reason) throws IOException {
+      out.writeByte(REFUSED);
+      out.writeUTF(reason);
+      out.flush();
+    }
+
+    /**
+     * Returns a stream that sends everything written to it as frames of one type. Closing it
+     * leaves the connection open.
+     */
+    OutputStream stream(int type) {
+      return new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          FrameWriter.this.write(type, new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+          FrameWriter.this.write(type, bytes, offset, length);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package jpm.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import jpm.utils.UserOutput;
+
+/**
+ * Thin client for {@link BuildDaemon}: forwards build commands to the daemon of the project
+ * in the working directory when one is running.
+ */
+public final class DaemonClient {
+
+  /**
+   * Commands worth running in the daemon. The others either prompt on the terminal, read
+   * stdin (run), or manage the daemon itself.
+   */
+  private static final Set<String> FORWARDED = Set.of("build", "test", "fmt");
+
+  /** Reply of {@link #request} when no daemon answered or it refused the request. */
+  public static final int NOT_HANDLED = -1;
+
+  private DaemonClient() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Runs the command in the project's daemon if it is one the daemon serves and a daemon is
+   * running with the same environment.
+   *
+   * @return the command's exit code, or {@link #NOT_HANDLED} to run it in this process
+   */
+  public static int forward(String[] args) {
+    if (args.length == 0 || !FORWARDED.contains(args[0])) {
+      return NOT_HANDLED;
+    }
+    return request(BuildDaemon.RUN, args);
+  }
+
+  /**
+   * Returns whether a daemon answers on the project's socket.
+   */
+  public static boolean isRunning() {
+    return request(BuildDaemon.STATUS, new String[0], false) == 0;
+  }
+
+  /**
+   * Sends a request and prints the daemon's output.
+   *
+   * @param kind one of the request kinds of {@link BuildDaemon}
+   * @return the exit code, or {@link #NOT_HANDLED} if no daemon answered or it refused
+   */
+  public static int request(String kind, String[] args) {
+    return request(kind, args, true);
+  }
+
+  private static int request(String kind, String[] args, boolean print) {
+    var socket = Path.of(BuildDaemon.SOCKET_FILE);
+    if (!Files.exists(socket)) {
+      return NOT_HANDLED;
+    }
+
+    var replied = false;
+    try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socket));
+      var out = new DataOutputStream(Channels.newOutputStream(channel));
+      out.writeUTF(BuildDaemon.GREETING);
+      out.writeUTF(kind);
+      out.writeUTF(environmentFingerprint());
+      out.writeInt(args.length);
+      for (var arg : args) {
+        out.writeUTF(arg);
+      }
+      out.flush();
+
+      var in = new DataInputStream(Channels.newInputStream(channel));
+      while (true) {
+        var type = in.readUnsignedByte();
+        replied = true;
+        switch (type) {
+          case BuildDaemon.STDOUT, BuildDaemon.STDERR -> {
+            var bytes = in.readNBytes(in.readInt());
+            if (print) {
+              var stream = type == BuildDaemon.STDOUT ? System.out : System.err;
+              stream.write(bytes);
+              stream.flush();
+            }
+          }
+          case BuildDaemon.EXIT -> {
+            return in.readInt();
+          }
+          case BuildDaemon.REFUSED -> {
+            UserOutput.debug("Daemon refused the request: " + in.readUTF());
+            return NOT_HANDLED;
+          }
+          default -> throw new IOException("unexpected reply " + type);
+        }
+      }
+    } catch (ConnectException e) {
+      // Nobody listens: the daemon died without removing its socket
+      UserOutput.debug("Removing stale daemon socket " + socket);
+      try {
+        Files.deleteIfExists(socket);
+      } catch (IOException ignored) {
+        // The next client tries again
+      }
+      return NOT_HANDLED;
+    } catch (IOException e) {
+      if (!replied) {
+        UserOutput.debug("Daemon unavailable: " + e.getMessage());
+        return NOT_HANDLED;
+      }
+      // Output was already shown, so running the command again here would repeat it
+      UserOutput.error("Lost connection to the daemon: " + e.getMessage());
+      return 1;
+    }
+  }
+
+  /**
+   * Fingerprints what a command may read from its environment but a running daemon cannot
+   * change: JPM_* variables, JAVA_HOME, PATH and the user home.
+   */
+  static String environmentFingerprint() {
+    var relevant = new TreeMap<String, String>();
+    for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+      var name = entry.getKey();
+      if (name.startsWith("JPM_") || name.equals("JAVA_HOME") || name.equals("PATH")) {
+        relevant.put(name, entry.getValue());
+      }
+    }
+    relevant.put("user.home", System.getProperty("user.home"));
+    return Integer.toHexString(relevant.toString().hashCode());
+  }
+}
@@ -0,0 +1,190 @@
+package jpm.deps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Append-only journal of cache accesses, used by `jpm cache gc` to find least recently used
+ * artifacts without relying on filesystem atime (often disabled via noatime/relatime).
+ *
+ * Accesses are buffered in memory and appended in a single write when the process exits,
+ * so a build costs one small append no matter how many dependencies it touches.
+ *
+ * Line format: {@code <epoch millis> <H|M|A> <group:artifact:version>} where H is a cache hit,
+ * M a miss (download) and A a compacted last-access record written by gc.
+ */
+public final class AccessJournal {
+
+  public static final String JOURNAL_FILE_NAME = ".access";
+
+  private static volatile AccessJournal shared;
+  private static final Object lock = new Object();
+
+  private final Path journalFile;
+  private final StringBuilder pending = new StringBuilder();
+  private boolean hookRegistered;
+
+  /**
+   * Last access per artifact version plus the hit and miss counts since the last compaction.
+   * The length is the number of journal bytes the summary was read from.
+   */
+  public record Summary(Map<String, Long> lastAccess, long hits, long misses, long length) {
+
+    public double hitRate() {
+      var total = hits + misses;
+      return total == 0 ? 0.0 : (double) hits / total;
+    }
+  }
+
+  public AccessJournal(Path journalFile) {
+    this.journalFile = journalFile;
+  }
+
+  /**
+   * Returns the journal of the user cache.
+   */
+  public static AccessJournal shared() {
+    if (shared == null) {
+      synchronized (lock) {
+        if (shared == null) {
+          shared = new AccessJournal(
+              FileUtils.getCacheDir().toPath().resolve(JOURNAL_FILE_NAME));
+        }
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Drops the shared instance so the next access uses the current cache directory. Useful for
+   * testing.
+   */
+  public static void reset() {
+    synchronized (lock) {
+      shared = null;
+    }
+  }
+
+  public Path getJournalFile() {
+    return journalFile;
+  }
+
+  public void hit(String groupId, String artifactId, String version) {
+    append('H', groupId, artifactId, version);
+  }
+
+  public void miss(String groupId, String artifactId, String version) {
+    append('M', groupId, artifactId, version);
+  }
+
+  /**
+   * Appends buffered accesses to the journal file.
+   */
+  public synchronized void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    try (var journalLock = CacheLock.named("access")) {
+      FileUtils.ensureDirectory(journalFile.getParent());
+      Files.writeString(
+          journalFile,
+          pending,
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      pending.setLength(0);
+    } catch (IOException e) {
+      UserOutput.debug("Could not write access journal: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Reads the journal. Unparseable lines (e.g. from an interrupted append) are skipped.
+   */
+  public Summary read() throws IOException {
+    var lastAccess = new HashMap<String, Long>();
+    long hits = 0;
+    long misses = 0;
+    byte[] content;
+    try (var journalLock = CacheLock.named("access")) {
+      if (!Files.exists(journalFile)) {
+        return new Summary(lastAccess, 0, 0, 0);
+      }
+      content = Files.readAllBytes(journalFile);
+    }
+
+    for (var line : new String(content, StandardCharsets.UTF_8).split("\n")) {
+      var parts = line.split(" ");
+      if (parts.length != 3 || parts[1].length() != 1) {
+        continue;
+      }
+      long time;
+      try {
+        time = Long.parseLong(parts[0]);
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      switch (parts[1].charAt(0)) {
+        case 'H' -> hits++;
+        case 'M' -> misses++;
+        case 'A' -> {}
+        default -> {
+          continue;
+        }
+      }
+      lastAccess.merge(parts[2], time, Math::max);
+    }
+    return new Summary(lastAccess, hits, misses, content.length);
+  }
+
+  /**
+   * Replaces the journal with one last-access record per artifact version and resets the
+   * hit/miss counters. Accesses other processes appended after the summary was read are kept.
+   * Callers hold the exclusive cache lock.
+   *
+   * @param lastAccess the last access per artifact version to keep
+   * @param readLength the {@link Summary#length()} of the summary the records come from
+   */
+  public synchronized void compact(Map<String, Long> lastAccess, long readLength)
+      throws IOException {
+    var content = new StringBuilder();
+    for (var e : lastAccess.entrySet()) {
+      content.append(e.getValue()).append(" A ").append(e.getKey()).append('\n');
+    }
+    try (var journalLock = CacheLock.named("access")) {
+      if (Files.exists(journalFile) && Files.size(journalFile) > readLength) {
+        try (var in = Files.newInputStream(journalFile)) {
+          in.skipNBytes(readLength);
+          content.append(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+      }
+      FileUtils.writeFileAtomically(journalFile, content.toString());
+    }
+  }
+
+  private synchronized void append(
+      char kind, String groupId, String artifactId, String version) {
+    pending
+        .append(System.currentTimeMillis())
+        .append(' ')
+        .append(kind)
+        .append(' ')
+        .append(groupId)
+        .append(':')
+        .append(artifactId)
+        .append(':')
+        .append(version)
+        .append('\n');
+    if (!hookRegistered) {
+      hookRegistered = true;
+      Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "jpm-access-journal"));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package jpm.deps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Content-addressable store for cached artifacts, keyed by SHA-256.
+ * GAV paths in the cache are hardlinks into the store, so identical bytes published under
+ * different coordinates (or materialized into several projects) share one copy on disk.
+ *
+ * Layout: ~/.jpm/blobs/sha256/ab/abcdef... (first two hex digits as fan-out directory).
+ */
+public class BlobStore {
+
+  public static final String CHECKSUM_SUFFIX = ".sha256";
+
+  private final Path root;
+
+  public BlobStore() {
+    this(FileUtils.getBlobStoreDir().toPath());
+  }
+
+  public BlobStore(Path root) {
+    this.root = root;
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  /**
+   * Returns the location of the blob for a SHA-256 hex digest.
+   */
+  public Path blobPath(String sha256) {
+    return root.resolve("sha256").resolve(sha256.substring(0, 2)).resolve(sha256);
+  }
+
+  /**
+   * Moves a freshly downloaded file under the store and leaves a hardlink at its path.
+   * If the store already holds the same bytes, the file is replaced by a link to that blob.
+   * A stored blob whose size or digest no longer matches its name is replaced by the file.
+   * When the filesystem refuses hardlinks the file is left in place as a plain copy.
+   *
+   * @param file the file to adopt
+   * @return the SHA-256 hex digest of the file
+   * @throws IOException if hashing or linking fails
+   */
+  public String adopt(Path file) throws IOException {
+    var sha256 = FileUtils.sha256(file);
+    var blob = blobPath(sha256);
+
+    try {
+      if (Files.exists(blob)) {
+        if (Files.isSameFile(blob, file)) {
+          return sha256;
+        }
+        if (matches(blob, Files.size(file), sha256)) {
+          replaceWithLink(file, blob);
+        } else {
+          UserOutput.debug("Replacing damaged blob " + sha256);
+          replaceWithLink(blob, file);
+        }
+      } else {
+        FileUtils.ensureDirectory(blob.getParent());
+        Files.createLink(blob, file);
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      // Cross-device cache or filesystem without hardlinks: keep the standalone file
+      UserOutput.debug("Blob store link skipped for " + file + ": " + e.getMessage());
+    }
+
+    return sha256;
+  }
+
+  /**
+   * Removes the blob a cached file is linked to, so damaged bytes are never linked again.
+   *
+   * @param file the cached file
+   * @param sha256 the digest the file was adopted under
+   * @throws IOException if the blob cannot be deleted
+   */
+  public void discard(Path file, String sha256) throws IOException {
+    var blob = blobPath(sha256);
+    if (Files.exists(blob) && Files.exists(file) && Files.isSameFile(blob, file)) {
+      Files.delete(blob);
+    }
+  }
+
+  /**
+   * Deletes blobs no cache entry links to any more.
+   * Requires a filesystem that reports link counts; otherwise nothing is removed.
+   *
+   * @return number of bytes reclaimed
+   * @throws IOException if the store cannot be walked
+   */
+  public long sweep() throws IOException {
+    var shaDir = root.resolve("sha256");
+    if (!Files.exists(shaDir)) {
+      return 0;
+    }
+
+    long reclaimed = 0;
+    try (Stream<Path> stream = Files.walk(shaDir)) {
+      for (var blob : stream.filter(Files::isRegularFile).toList()) {
+        Integer links = linkCount(blob);
+        if (links != null && links <= 1) {
+          reclaimed += Files.size(blob);
+          Files.deleteIfExists(blob);
+        }
+      }
+    }
+    return reclaimed;
+  }
+
+  private void replaceWithLink(Path target, Path source) throws IOException {
+    var temp = target.resolveSibling(target.getFileName() + ".link");
+    Files.deleteIfExists(temp);
+    Files.createLink(temp, source);
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static boolean matches(Path blob, long size, String sha256) throws IOException {
+    return Files.size(blob) == size && sha256.equals(FileUtils.sha256(blob));
+  }
+
+  private static Integer linkCount(Path path) {
+    try {
+      return (Integer) Files.getAttribute(path, "unix:nlink");
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package jpm.deps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Evicts artifact versions from the user cache by last access, total size, or lockfile
+ * references. The unit of eviction is one version directory (JAR, POM and checksum files)
+ * together with its entry in the POM pack.
+ */
+public class CacheGarbageCollector {
+
+  private final Path cacheDir;
+  private final AccessJournal journal;
+
+  /**
+   * Eviction criteria. An artifact version is evicted if any enabled criterion selects it.
+   *
+   * @param maxAge evict versions not used for longer than this (null to disable)
+   * @param maxSize evict least recently used versions until the cache fits (null to disable)
+   * @param unreferenced evict versions no project on this machine references
+   */
+  public record Options(Duration maxAge, Long maxSize, boolean unreferenced) {}
+
+  /**
+   * Outcome of a collection run. Hit and miss counts cover the period since the previous run.
+   */
+  public record Result(
+      int evicted,
+      long bytesReclaimed,
+      long bytesRemaining,
+      int pomsPacked,
+      long hits,
+      long misses) {
+
+    public double hitRate() {
+      var total = hits + misses;
+      return total == 0 ? 0.0 : (double) hits / total;
+    }
+  }
+
+  private record CachedVersion(String key, Path dir, long size, long lastAccess) {}
+
+  public CacheGarbageCollector() {
+    this(FileUtils.getCacheDir().toPath(), AccessJournal.shared());
+  }
+
+  public CacheGarbageCollector(Path cacheDir, AccessJournal journal) {
+    this.cacheDir = cacheDir;
+    this.journal = journal;
+  }
+
+  public Result collect(Options options) throws IOException {
+    // Make this process's own accesses visible before reading the journal
+    journal.flush();
+
+    try (var lock = CacheLock.exclusive()) {
+      var summary = journal.read();
+      var versions = scan(summary.lastAccess());
+      var victims = selectVictims(versions, options);
+
+      long reclaimed = 0;
+      var evictedKeys = new ArrayList<String>();
+      for (var version : victims) {
+        reclaimed += delete(version.dir());
+        evictedKeys.add(version.key());
+        UserOutput.debug("Evicted " + version.key());
+      }
+      if (!evictedKeys.isEmpty()) {
+        CacheIndex.shared().removeVersions(evictedKeys);
+        reclaimed += new BlobStore().sweep();
+      }
+
+      // Periodic repack: fold new loose POMs into the pack and drop evicted ones from it
+      var dropPrefixes = victims.stream()
+          .map(v -> PomPack.key(cacheDir, v.dir()) + "/")
+          .toList();
+      var repack = PomPack.shared().repack(dropPrefixes);
+
+      var remaining = new HashMap<String, Long>();
+      long bytesRemaining = 0;
+      var victimKeys = new HashSet<>(evictedKeys);
+      for (var version : versions) {
+        if (!victimKeys.contains(version.key())) {
+          remaining.put(version.key(), version.lastAccess());
+          bytesRemaining += version.size();
+        }
+      }
+      journal.compact(remaining, summary.length());
+
+      return new Result(
+          evictedKeys.size(),
+          reclaimed,
+          bytesRemaining,
+          repack.packed(),
+          summary.hits(),
+          summary.misses());
+    }
+  }
+
+  private List<CachedVersion> selectVictims(List<CachedVersion> versions, Options options)
+      throws IOException {
+    var victims = new LinkedHashMap<String, CachedVersion>();
+
+    if (options.maxAge() != null) {
+      var cutoff = System.currentTimeMillis() - options.maxAge().toMillis();
+      versions.stream()
+          .filter(v -> v.lastAccess() < cutoff)
+          .forEach(v -> victims.put(v.key(), v));
+    }
+
+    if (options.unreferenced()) {
+      var referenced = RefRegistry.referencedVersions();
+      versions.stream()
+          .filter(v -> !referenced.contains(v.key()))
+          .forEach(v -> victims.put(v.key(), v));
+    }
+
+    if (options.maxSize() != null) {
+      long total = versions.stream()
+          .filter(v -> !victims.containsKey(v.key()))
+          .mapToLong(CachedVersion::size)
+          .sum();
+      var byLastAccess = versions.stream()
+          .filter(v -> !victims.containsKey(v.key()))
+          .sorted(Comparator.comparingLong(CachedVersion::lastAccess))
+          .toList();
+      for (var version : byLastAccess) {
+        if (total <= options.maxSize()) {
+          break;
+        }
+        victims.put(version.key(), version);
+        total -= version.size();
+      }
+    }
+
+    return new ArrayList<>(victims.values());
+  }
+
+  /**
+   * Finds version directories (group/.../artifact/version/files) and their last access.
+   * Versions the journal has never seen fall back to the newest file modification time,
+   * which for cache entries is the download time.
+   */
+  private List<CachedVersion> scan(Map<String, Long> lastAccess) throws IOException {
+    var sizes = new HashMap<Path, long[]>();
+    if (Files.isDirectory(cacheDir)) {
+      try (Stream<Path> stream = Files.walk(cacheDir)) {
+        stream
+            .filter(Files::isRegularFile)
+            .filter(p -> !p.getFileName().toString().startsWith("."))
+            .filter(p -> cacheDir.relativize(p).getNameCount() >= 4)
+            .forEach(p -> {
+              var stats = sizes.computeIfAbsent(p.getParent(), d -> new long[2]);
+              try {
+                stats[0] += Files.size(p);
+                stats[1] = Math.max(stats[1], Files.getLastModifiedTime(p).toMillis());
+              } catch (IOException e) {
+                UserOutput.debug("Could not stat " + p + ": " + e.getMessage());
+              }
+            });
+      }
+    }
+
+    var versions = new ArrayList<CachedVersion>();
+    for (var e : sizes.entrySet()) {
+      if (!hasJar(e.getKey())) {
+        continue; // parent POMs only: kept, they end up in the POM pack
+      }
+      var key = versionKey(e.getKey());
+      var used = lastAccess.getOrDefault(key, e.getValue()[1]);
+      versions.add(new CachedVersion(key, e.getKey(), e.getValue()[0], used));
+    }
+    return versions;
+  }
+
+  private static boolean hasJar(Path versionDir) throws IOException {
+    try (Stream<Path> entries = Files.list(versionDir)) {
+      return entries.anyMatch(p -> p.getFileName().toString().endsWith(".jar"));
+    }
+  }
+
+  private String versionKey(Path versionDir) {
+    var relative = cacheDir.relativize(versionDir);
+    var count = relative.getNameCount();
+    var group = relative.subpath(0, count - 2).toString().replace(File.separatorChar, '.');
+    return group + ":" + relative.getName(count - 2) + ":" + relative.getName(count - 1);
+  }
+
+  /**
+   * Deletes a version directory and prunes empty parents.
+   * Returns the bytes freed immediately; hardlinked JARs are freed by the blob sweep.
+   */
+  private long delete(Path versionDir) throws IOException {
+    long freed = 0;
+    try (Stream<Path> stream = Files.list(versionDir)) {
+      for (var file : stream.toList()) {
+        if (Files.isRegularFile(file) && !isLinked(file)) {
+          freed += Files.size(file);
+        }
+      }
+    }
+    FileUtils.deleteDirectory(versionDir);
+
+    var parent = versionDir.getParent();
+    while (parent != null && !parent.equals(cacheDir) && isEmptyDirectory(parent)) {
+      Files.delete(parent);
+      parent = parent.getParent();
+    }
+    return freed;
+  }
+
+  private static boolean isLinked(Path file) {
+    try {
+      return (Integer) Files.getAttribute(file, "unix:nlink") > 1;
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static boolean isEmptyDirectory(Path dir) throws IOException {
+    try (Stream<Path> entries = Files.list(dir)) {
+      return entries.findAny().isEmpty();
+    }
+  }
+}
@@ -0,0 +1,366 @@
+package jpm.deps;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Compact binary index of cached artifacts, so "do we have this?" is a map lookup
+ * instead of a stat() into the deep GAV directory tree.
+ *
+ * The index lives at ~/.jpm/cache/.index and is read once per process through a
+ * memory-mapped buffer. Recorded downloads are buffered in memory and written once, on
+ * {@link #flush()} or when the process exits, to a temp file that is atomically moved into
+ * place, merging entries written and removed by other processes meanwhile. Removals are
+ * written immediately.
+ *
+ * File format (big-endian):
+ * <pre>
+ *   int magic "JPMI" | int format version | int entry count
+ *   entries: u16 key length | key (UTF-8 "group:artifact:version:ext")
+ *            | i64 size | i64 mtime millis | 32 bytes SHA-256 (all zero when unknown)
+ * </pre>
+ */
+public class CacheIndex {
+
+  public static final String INDEX_FILE_NAME = ".index";
+  public static final String EVICTION_STAMP_NAME = ".evicted";
+
+  private static final int MAGIC = 0x4A504D49; // "JPMI"
+  private static final int FORMAT_VERSION = 1;
+  private static final int SHA256_BYTES = 32;
+
+  private static volatile CacheIndex shared;
+  private static final Object lock = new Object();
+
+  private final File cacheDir;
+  private final Path indexFile;
+  private final Map<String, Entry> entries;
+  private final Set<String> recordedKeys = new HashSet<>();
+  private final Set<String> removedKeys = new HashSet<>();
+  private String diskStamp;
+  private boolean hookRegistered;
+
+  /**
+   * Indexed facts about one cached file. The SHA-256 is null when it was not known.
+   */
+  public record Entry(long size, long mtime, String sha256) {}
+
+  public CacheIndex(File cacheDir) {
+    this.cacheDir = cacheDir;
+    this.indexFile = new File(cacheDir, INDEX_FILE_NAME).toPath();
+    this.entries = read(indexFile);
+    this.diskStamp = stamp(indexFile);
+  }
+
+  /**
+   * Returns the index of the user cache, loading it on first use.
+   */
+  public static CacheIndex shared() {
+    if (shared == null) {
+      synchronized (lock) {
+        if (shared == null) {
+          shared = new CacheIndex(FileUtils.getCacheDir());
+        }
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Drops the shared instance so the next access re-reads the index. Useful for testing.
+   */
+  public static void reset() {
+    synchronized (lock) {
+      shared = null;
+    }
+  }
+
+  public static String key(String groupId, String artifactId, String version, String extension) {
+    return groupId + ":" + artifactId + ":" + version + ":" + extension;
+  }
+
+  public Path getIndexFile() {
+    return indexFile;
+  }
+
+  /**
+   * Returns the file whose modification time records the last removal from the user cache.
+   * Every clean, gc, quarantine or rejected download removes its entries through this index,
+   * so callers that remember resolved JAR paths only need to compare one timestamp.
+   */
+  public static Path evictionStamp() {
+    return FileUtils.getCacheDir().toPath().resolve(EVICTION_STAMP_NAME);
+  }
+
+  /**
+   * Checks whether an artifact is cached. Index hits cost no filesystem access; on a miss the
+   * GAV file is checked once and, if present (e.g. cached before the index existed), indexed.
+   */
+  public boolean contains(String groupId, String artifactId, String version, String extension) {
+    var key = key(groupId, artifactId, version, extension);
+    synchronized (this) {
+      if (entries.containsKey(key)) {
+        return true;
+      }
+    }
+
+    var file = artifactFile(groupId, artifactId, version, extension);
+    if (!file.isFile()) {
+      return false;
+    }
+
+    try {
+      var checksumFile = new File(file.getPath() + BlobStore.CHECKSUM_SUFFIX);
+      var sha256 = checksumFile.isFile()
+          ? FileUtils.readFile(checksumFile).strip()
+          : FileUtils.sha256(file.toPath());
+      record(groupId, artifactId, version, extension, file, sha256);
+    } catch (IOException e) {
+      UserOutput.debug("Could not index " + file + ": " + e.getMessage());
+    }
+    return true;
+  }
+
+  public synchronized Entry get(
+      String groupId, String artifactId, String version, String extension) {
+    return entries.get(key(groupId, artifactId, version, extension));
+  }
+
+  /**
+   * Returns a snapshot of all indexed entries keyed by "group:artifact:version:ext".
+   */
+  public synchronized Map<String, Entry> entries() {
+    return Map.copyOf(entries);
+  }
+
+  /**
+   * Records a cached file. The index file is updated on the next {@link #flush()}.
+   */
+  public void record(
+      String groupId, String artifactId, String version, String extension, File file, String sha256)
+      throws IOException {
+    var attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    var entry = new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), sha256);
+    var key = key(groupId, artifactId, version, extension);
+    synchronized (this) {
+      entries.put(key, entry);
+      removedKeys.remove(key);
+      recordedKeys.add(key);
+      if (!hookRegistered) {
+        hookRegistered = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "jpm-cache-index"));
+      }
+    }
+  }
+
+  /**
+   * Writes entries recorded since the last write to the index file.
+   */
+  public synchronized void flush() {
+    if (recordedKeys.isEmpty()) {
+      return;
+    }
+    try {
+      persist();
+    } catch (IOException e) {
+      UserOutput.debug("Could not write cache index: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Removes all versions of an artifact from the index and persists it.
+   */
+  public synchronized void removeArtifact(String groupId, String artifactId) throws IOException {
+    var prefix = groupId + ":" + artifactId + ":";
+    for (var key : Set.copyOf(entries.keySet())) {
+      if (key.startsWith(prefix)) {
+        entries.remove(key);
+        removedKeys.add(key);
+      }
+    }
+    persist();
+    markEvicted();
+  }
+
+  /**
+   * Removes a single entry and persists the index.
+   */
+  public synchronized void remove(String key) throws IOException {
+    entries.remove(key);
+    removedKeys.add(key);
+    persist();
+    markEvicted();
+  }
+
+  /**
+   * Removes all entries of the given artifact versions ("group:artifact:version") and persists
+   * the index once.
+   */
+  public synchronized void removeVersions(Collection<String> versions) throws IOException {
+    var prefixes = new HashSet<String>();
+    versions.forEach(v -> prefixes.add(v + ":"));
+    for (var key : Set.copyOf(entries.keySet())) {
+      if (prefixes.contains(key.substring(0, key.lastIndexOf(':') + 1))) {
+        entries.remove(key);
+        removedKeys.add(key);
+      }
+    }
+    persist();
+    markEvicted();
+  }
+
+  /**
+   * Empties the index and deletes the index file.
+   */
+  public synchronized void clear() throws IOException {
+    removedKeys.addAll(entries.keySet());
+    entries.clear();
+    recordedKeys.clear();
+    try (var lock = CacheLock.named("index")) {
+      Files.deleteIfExists(indexFile);
+      diskStamp = stamp(indexFile);
+    }
+    markEvicted();
+  }
+
+  private File artifactFile(String groupId, String artifactId, String version, String extension) {
+    var groupPath = groupId.replace('.', File.separatorChar);
+    var versionDir = new File(
+        cacheDir, groupPath + File.separator + artifactId + File.separator + version);
+    return new File(versionDir, artifactId + "-" + version + "." + extension);
+  }
+
+  private File artifactFile(String key) {
+    var parts = key.split(":");
+    return artifactFile(parts[0], parts[1], parts[2], parts[3]);
+  }
+
+  private void markEvicted() throws IOException {
+    FileUtils.ensureDirectory(cacheDir);
+    FileUtils.writeFileAtomically(
+        new File(cacheDir, EVICTION_STAMP_NAME), Long.toString(System.currentTimeMillis()));
+  }
+
+  private void persist() throws IOException {
+    try (var lock = CacheLock.named("index")) {
+      write();
+    }
+  }
+
+  private void write() throws IOException {
+    // Start from what other processes wrote since we last read or wrote the index, so their
+    // removals stick, and apply our own changes on top
+    var currentStamp = stamp(indexFile);
+    if (!currentStamp.equals(diskStamp)) {
+      var merged = read(indexFile);
+      merged.keySet().removeAll(removedKeys);
+      for (var key : recordedKeys) {
+        // A file recorded before a gc in another process may be gone by now
+        if (entries.containsKey(key) && artifactFile(key).isFile()) {
+          merged.put(key, entries.get(key));
+        }
+      }
+      entries.clear();
+      entries.putAll(merged);
+    }
+
+    FileUtils.ensureDirectory(cacheDir);
+    var temp = indexFile.resolveSibling(INDEX_FILE_NAME + "." + ProcessHandle.current().pid());
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(entries.size());
+      for (var e : entries.entrySet()) {
+        var keyBytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+        out.writeShort(keyBytes.length);
+        out.write(keyBytes);
+        out.writeLong(e.getValue().size());
+        out.writeLong(e.getValue().mtime());
+        out.write(shaBytes(e.getValue().sha256()));
+      }
+    }
+    Files.move(
+        temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    diskStamp = stamp(indexFile);
+    recordedKeys.clear();
+    removedKeys.clear();
+  }
+
+  private static Map<String, Entry> read(Path indexFile) {
+    var result = new HashMap<String, Entry>();
+    if (!Files.exists(indexFile)) {
+      return result;
+    }
+
+    try (var channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 12
+          || buffer.getInt() != MAGIC
+          || buffer.getInt() != FORMAT_VERSION) {
+        return result;
+      }
+
+      var count = buffer.getInt();
+      var hex = HexFormat.of();
+      for (int i = 0; i < count; i++) {
+        var keyBytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(keyBytes);
+        var size = buffer.getLong();
+        var mtime = buffer.getLong();
+        var sha = new byte[SHA256_BYTES];
+        buffer.get(sha);
+        result.put(
+            new String(keyBytes, StandardCharsets.UTF_8),
+            new Entry(size, mtime, isZero(sha) ? null : hex.formatHex(sha)));
+      }
+      return result;
+    } catch (IOException | BufferUnderflowException e) {
+      // A truncated or foreign index is rebuilt lazily from the cache directory
+      UserOutput.debug("Ignoring unreadable cache index: " + e.getMessage());
+      return new HashMap<>();
+    }
+  }
+
+  private static byte[] shaBytes(String sha256) {
+    if (sha256 == null || sha256.length() != SHA256_BYTES * 2) {
+      return new byte[SHA256_BYTES];
+    }
+    return HexFormat.of().parseHex(sha256);
+  }
+
+  private static boolean isZero(byte[] sha) {
+    for (var b : sha) {
+      if (b != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String stamp(Path file) {
+    try {
+      var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+      return attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+    } catch (IOException e) {
+      return "missing";
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package jpm.deps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jpm.utils.Constants;
+import jpm.utils.FileUtils;
+
+/**
+ * Ordered stack of artifact caches. The user cache (~/.jpm/cache) is the writable top layer;
+ * below it sit read-only layers from the JPM_CACHE_LAYERS environment variable, e.g. a
+ * pre-warmed /opt/jpm/cache baked into a CI image.
+ *
+ * Lookups try the top layer, then each read-only layer in the order given. Downloads, index
+ * updates, gc and verify only ever touch the top layer.
+ */
+public final class CacheLayers {
+
+  private static volatile CacheLayers shared;
+  private static final Object lock = new Object();
+
+  private final List<Layer> layers;
+
+  /**
+   * One cache directory in the stack.
+   *
+   * @param dir root of the cache in Maven layout
+   * @param pack the layer's POM pack
+   * @param writable true only for the top (user) layer
+   */
+  public record Layer(Path dir, PomPack pack, boolean writable) {}
+
+  public CacheLayers(List<Layer> layers) {
+    this.layers = List.copyOf(layers);
+  }
+
+  /**
+   * Returns the layers of this process: the user cache plus JPM_CACHE_LAYERS.
+   */
+  public static CacheLayers shared() {
+    if (shared == null) {
+      synchronized (lock) {
+        if (shared == null) {
+          var layers = new ArrayList<Layer>();
+          layers.add(new Layer(FileUtils.getCacheDir().toPath(), PomPack.shared(), true));
+          for (var dir : parse(System.getenv(Constants.CACHE_LAYERS_ENV))) {
+            layers.add(new Layer(dir, new PomPack(dir), false));
+          }
+          shared = new CacheLayers(layers);
+        }
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Drops the shared instance so the next access re-reads the environment. Useful for testing.
+   */
+  public static void reset() {
+    synchronized (lock) {
+      shared = null;
+    }
+  }
+
+  /**
+   * Parses a path-separator separated list of read-only cache directories.
+   * Entries that are blank, missing, or the user cache itself are skipped.
+   */
+  static List<Path> parse(String value) {
+    var dirs = new ArrayList<Path>();
+    if (value == null || value.isBlank()) {
+      return dirs;
+    }
+    var userCache = FileUtils.getCacheDir().toPath().toAbsolutePath().normalize();
+    for (var entry : value.split(File.pathSeparator)) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      var dir = Path.of(entry.strip()).toAbsolutePath().normalize();
+      if (dir.toFile().isDirectory() && !dir.equals(userCache) && !dirs.contains(dir)) {
+        dirs.add(dir);
+      }
+    }
+    return dirs;
+  }
+
+  public List<Layer> layers() {
+    return layers;
+  }
+
+  /**
+   * Finds a cached artifact file in the first layer that has it and records the use of JARs
+   * in the access journal.
+   *
+   * @return the file, or null if no layer holds it
+   */
+  public File locate(String groupId, String artifactId, String version, String extension) {
+    var file = find(groupId, artifactId, version, extension);
+    if (file != null && "jar".equals(extension)) {
+      AccessJournal.shared().hit(groupId, artifactId, version);
+    }
+    return file;
+  }
+
+  /**
+   * Finds a cached artifact file in the first layer that has it, without recording an access.
+   * The top layer is answered from the cache index; read-only layers are checked on disk.
+   *
+   * @return the file, or null if no layer holds it
+   */
+  public File find(String groupId, String artifactId, String version, String extension) {
+    for (var layer : layers) {
+      var file = artifactFile(layer, groupId, artifactId, version, extension);
+      var found = layer.writable()
+          ? CacheIndex.shared().contains(groupId, artifactId, version, extension)
+          : file.isFile();
+      if (found) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads a cached POM from the first layer that has it, packed or loose.
+   *
+   * @return the POM content, or null if no layer holds it
+   */
+  public String readPom(String groupId, String artifactId, String version) {
+    for (var layer : layers) {
+      var file = artifactFile(layer, groupId, artifactId, version, "pom");
+      var packed = layer.pack().read(PomPack.key(layer.dir(), file.toPath()));
+      if (packed != null) {
+        return packed;
+      }
+      try {
+        if (file.isFile()) {
+          return FileUtils.readFile(file);
+        }
+      } catch (IOException e) {
+        // Unreadable copy: try the next layer
+      }
+    }
+    return null;
+  }
+
+  private static File artifactFile(
+      Layer layer, String groupId, String artifactId, String version, String extension) {
+    var versionDir = layer.dir()
+        .resolve(groupId.replace('.', File.separatorChar))
+        .resolve(artifactId)
+        .resolve(version);
+    return versionDir.resolve(artifactId + "-" + version + "." + extension).toFile();
+  }
+}
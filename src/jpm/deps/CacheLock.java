@@ -0,0 +1,212 @@
+package jpm.deps;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Cross-process locks for the shared artifact cache, backed by FileChannel locks on files in
+ * ~/.jpm/locks/.
+ *
+ * <ul>
+ *   <li>The cache-wide lock is held shared by builds and downloads, and exclusive by operations
+ *       that delete cache content (clean, gc).</li>
+ *   <li>Artifact locks serialize downloads of the same artifact. They are striped over a fixed
+ *       set of lock files, so unrelated artifacts rarely contend and no lock files pile up.</li>
+ *   <li>Named locks guard single shared files such as the cache index.</li>
+ * </ul>
+ *
+ * File locks are held per JVM, so every file lock is paired with an in-process lock.
+ * Acquire in the order cache-wide, artifact, named to avoid deadlocks, and never ask for the
+ * exclusive cache lock while holding the shared one.
+ */
+public final class CacheLock implements AutoCloseable {
+
+  private static final int STRIPES = 64;
+  private static final String CACHE_LOCK_NAME = "cache";
+
+  private static final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+  private static final ReentrantLock[] stripeLocks = new ReentrantLock[STRIPES];
+  private static final ConcurrentHashMap<String, ReentrantLock> namedLocks =
+      new ConcurrentHashMap<>();
+
+  // The shared file lock is taken once per JVM and reference-counted across threads
+  private static final Object sharedMonitor = new Object();
+  private static FileChannel sharedChannel;
+  private static FileLock sharedFileLock;
+  private static int sharedHolders;
+
+  static {
+    for (int i = 0; i < STRIPES; i++) {
+      stripeLocks[i] = new ReentrantLock();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Release {
+    void run() throws IOException;
+  }
+
+  private final Release release;
+  private boolean released;
+
+  private CacheLock(Release release) {
+    this.release = release;
+  }
+
+  /**
+   * Acquires the cache-wide lock in shared mode. Blocks while a clean or gc is running.
+   */
+  public static CacheLock shared() throws IOException {
+    cacheLock.readLock().lock();
+    try {
+      synchronized (sharedMonitor) {
+        if (sharedHolders == 0) {
+          var channel = open(CACHE_LOCK_NAME);
+          try {
+            sharedFileLock = acquire(channel, true, "the package cache");
+          } catch (IOException e) {
+            channel.close();
+            throw e;
+          }
+          sharedChannel = channel;
+        }
+        sharedHolders++;
+      }
+    } catch (IOException | RuntimeException e) {
+      cacheLock.readLock().unlock();
+      throw e;
+    }
+
+    return new CacheLock(() -> {
+      try {
+        synchronized (sharedMonitor) {
+          if (--sharedHolders == 0) {
+            sharedFileLock.release();
+            sharedChannel.close();
+            sharedFileLock = null;
+            sharedChannel = null;
+          }
+        }
+      } finally {
+        cacheLock.readLock().unlock();
+      }
+    });
+  }
+
+  /**
+   * Acquires the cache-wide lock exclusively. Blocks until no build or download uses the cache.
+   */
+  public static CacheLock exclusive() throws IOException {
+    cacheLock.writeLock().lock();
+    FileChannel channel = null;
+    try {
+      channel = open(CACHE_LOCK_NAME);
+      var fileLock = acquire(channel, false, "the package cache");
+      var lockedChannel = channel;
+      return new CacheLock(() -> {
+        try {
+          fileLock.release();
+          lockedChannel.close();
+        } finally {
+          cacheLock.writeLock().unlock();
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      if (channel != null) {
+        channel.close();
+      }
+      cacheLock.writeLock().unlock();
+      throw e;
+    }
+  }
+
+  /**
+   * Acquires the shared cache lock plus the exclusive stripe lock for one artifact.
+   *
+   * @param artifactKey artifact coordinate, e.g. "group:artifact:version"
+   */
+  public static CacheLock artifact(String artifactKey) throws IOException {
+    var cache = shared();
+    var stripe = Math.floorMod(artifactKey.hashCode(), STRIPES);
+    var inner = exclusiveFileLock(stripeLocks[stripe], "artifact-%02d".formatted(stripe), cache);
+    return new CacheLock(() -> {
+      try {
+        inner.close();
+      } finally {
+        cache.close();
+      }
+    });
+  }
+
+  /**
+   * Acquires an exclusive lock for a single named shared file (e.g. "index").
+   */
+  public static CacheLock named(String name) throws IOException {
+    var inProcess = namedLocks.computeIfAbsent(name, n -> new ReentrantLock());
+    return exclusiveFileLock(inProcess, name, null);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!released) {
+      released = true;
+      release.run();
+    }
+  }
+
+  private static CacheLock exclusiveFileLock(ReentrantLock inProcess, String name, CacheLock outer)
+      throws IOException {
+    inProcess.lock();
+    FileChannel channel = null;
+    try {
+      channel = open(name);
+      var fileLock = acquire(channel, false, name);
+      var lockedChannel = channel;
+      return new CacheLock(() -> {
+        try {
+          fileLock.release();
+          lockedChannel.close();
+        } finally {
+          inProcess.unlock();
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      if (channel != null) {
+        channel.close();
+      }
+      inProcess.unlock();
+      if (outer != null) {
+        outer.close();
+      }
+      throw e;
+    }
+  }
+
+  private static FileChannel open(String name) throws IOException {
+    Path locksDir = FileUtils.getLocksDir().toPath();
+    FileUtils.ensureDirectory(locksDir);
+    return FileChannel.open(
+        locksDir.resolve(name + ".lock"),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  private static FileLock acquire(FileChannel channel, boolean shared, String what)
+      throws IOException {
+    var lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+    if (lock != null) {
+      return lock;
+    }
+    UserOutput.info("Blocking waiting for file lock on " + what + "...");
+    return channel.lock(0, Long.MAX_VALUE, shared);
+  }
+}
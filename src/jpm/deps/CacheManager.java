@@ -26,12 +26,17 @@ public class CacheManager {
   }
 
   public boolean isCached(String groupId, String artifactId, String version) {
-    File dir = getArtifactDir(groupId, artifactId, version);
-    File jarFile = new File(dir, artifactId + "-" + version + ".jar");
-    return jarFile.exists();
+    return CacheLayers.shared().locate(groupId, artifactId, version, "jar") != null;
   }
 
+  /**
+   * Returns the JAR from the first cache layer holding it, or its user cache location.
+   */
   public File getJarFile(String groupId, String artifactId, String version) {
+    var located = CacheLayers.shared().locate(groupId, artifactId, version, "jar");
+    if (located != null) {
+      return located;
+    }
     File dir = getArtifactDir(groupId, artifactId, version);
     return new File(dir, artifactId + "-" + version + ".jar");
   }
@@ -45,19 +50,29 @@ public class CacheManager {
     String groupPath = groupId.replace('.', File.separatorChar);
     File artifactDir = new File(cacheDir, groupPath + File.separator + artifactId);
 
-    if (artifactDir.exists()) {
-      try (Stream<Path> stream = Files.walk(artifactDir.toPath())) {
-        stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    // Deleting must not race with builds reading the same files
+    try (var lock = CacheLock.exclusive()) {
+      if (artifactDir.exists()) {
+        try (Stream<Path> stream = Files.walk(artifactDir.toPath())) {
+          stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        // Drop blobs that were only referenced by the removed versions
+        new BlobStore().sweep();
       }
+      CacheIndex.shared().removeArtifact(groupId, artifactId);
     }
   }
 
   public void cleanAll() throws IOException {
-    if (cacheDir.exists()) {
-      try (Stream<Path> stream = Files.walk(cacheDir.toPath())) {
-        stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    try (var lock = CacheLock.exclusive()) {
+      if (cacheDir.exists()) {
+        try (Stream<Path> stream = Files.walk(cacheDir.toPath())) {
+          stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
       }
+      FileUtils.deleteDirectory(FileUtils.getBlobStoreDir());
+      CacheIndex.shared().clear();
+      FileUtils.ensureDirectory(cacheDir);
     }
-    FileUtils.ensureDirectory(cacheDir);
   }
 }
@@ -0,0 +1,340 @@
+package jpm.deps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import jpm.net.HttpClientManager;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Checks cached files against their recorded checksums and, optionally, the checksums the
+ * repository publishes. Files are hashed in parallel on a fork-join pool through
+ * memory-mapped reads, so large caches verify at disk speed instead of one core's speed.
+ *
+ * JARs are additionally checked for a zip end-of-central-directory record: a download
+ * truncated before it was adopted has a consistent local checksum but is still broken.
+ */
+public class CacheVerifier {
+
+  private static final long MAP_CHUNK = 64L * 1024 * 1024;
+  private static final int EOCD_SIGNATURE = 0x06054b50;
+  private static final int EOCD_MIN_SIZE = 22;
+  private static final int EOCD_MAX_SEARCH = EOCD_MIN_SIZE + 0xFFFF;
+  private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+
+  private final Path cacheDir;
+  private final String repositoryUrl;
+  private final boolean checkRemote;
+  private final int parallelism;
+
+  public enum Status {
+    OK,
+    NO_CHECKSUM,
+    CHECKSUM_MISMATCH,
+    REMOTE_MISMATCH,
+    CORRUPT_ARCHIVE,
+    UNREADABLE;
+
+    public boolean isBad() {
+      return this != OK && this != NO_CHECKSUM;
+    }
+  }
+
+  /**
+   * Verification outcome for one cached file.
+   *
+   * @param file the cached file
+   * @param size file size in bytes
+   * @param sha256 the digest computed now (null if unreadable)
+   * @param expected the digest it was compared with (null if none)
+   * @param status the verdict
+   */
+  public record FileResult(Path file, long size, String sha256, String expected, Status status) {}
+
+  public CacheVerifier(boolean checkRemote, int parallelism) {
+    this(
+        FileUtils.getCacheDir().toPath(),
+        MavenClient.resolveRepositoryUrl(),
+        checkRemote,
+        parallelism);
+  }
+
+  public CacheVerifier(Path cacheDir, String repositoryUrl, boolean checkRemote, int parallelism) {
+    this.cacheDir = cacheDir;
+    this.repositoryUrl = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+    this.checkRemote = checkRemote;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Lists the cached artifact files: everything except index/journal files, checksum sidecars
+   * and in-progress downloads.
+   */
+  public List<Path> listFiles() throws IOException {
+    if (!Files.isDirectory(cacheDir)) {
+      return List.of();
+    }
+    try (Stream<Path> stream = Files.walk(cacheDir)) {
+      return stream
+          .filter(Files::isRegularFile)
+          .filter(p -> !p.getFileName().toString().startsWith("."))
+          .filter(p -> !p.getFileName().toString().endsWith(BlobStore.CHECKSUM_SUFFIX))
+          .filter(p -> cacheDir.relativize(p).getNameCount() >= 4)
+          .toList();
+    }
+  }
+
+  /**
+   * Verifies the given files in parallel.
+   *
+   * @param files files inside the cache directory
+   * @param progress called with the number of files done after each file
+   * @return one result per file, in input order
+   */
+  public List<FileResult> verify(List<Path> files, IntConsumer progress) throws IOException {
+    var done = new AtomicInteger();
+    var tasks = new ArrayList<Callable<FileResult>>(files.size());
+    for (var file : files) {
+      tasks.add(() -> {
+        var result = verifyFile(file);
+        progress.accept(done.incrementAndGet());
+        return result;
+      });
+    }
+
+    var pool = new ForkJoinPool(parallelism);
+    try {
+      var results = new ArrayList<FileResult>(files.size());
+      for (var future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Verification interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Verification failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Moves a bad file to ~/.jpm/quarantine (keeping its cache-relative path) and forgets it,
+   * so the next build downloads it again. Callers hold the exclusive cache lock.
+   *
+   * @return the quarantined location
+   */
+  public Path quarantine(FileResult result) throws IOException {
+    var file = result.file();
+    var relative = cacheDir.relativize(file);
+    var target = FileUtils.getQuarantineDir().toPath().resolve(relative);
+    FileUtils.ensureDirectory(target.getParent());
+
+    var blobStore = new BlobStore();
+    if (result.expected() != null) {
+      blobStore.discard(file, result.expected());
+    }
+    if (result.sha256() != null) {
+      blobStore.discard(file, result.sha256());
+    }
+
+    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+    Files.deleteIfExists(Path.of(file + BlobStore.CHECKSUM_SUFFIX));
+
+    var coordinates = coordinates(file);
+    if (coordinates != null) {
+      CacheIndex.shared().remove(CacheIndex.key(
+          coordinates[0], coordinates[1], coordinates[2], coordinates[3]));
+    }
+    return target;
+  }
+
+  /**
+   * Downloads a quarantined file again into its cache location.
+   *
+   * @return true if the file was fetched
+   */
+  public boolean refetch(MavenClient client, Path file) throws IOException {
+    var coordinates = coordinates(file);
+    if (coordinates == null) {
+      return false;
+    }
+    var dir = FileUtils.getDependencyDir(coordinates[0], coordinates[1], coordinates[2]);
+    if ("pom".equals(coordinates[3])) {
+      var pom = client.downloadPom(coordinates[0], coordinates[1], coordinates[2]);
+      if (pom == null) {
+        return false;
+      }
+      FileUtils.writeFileAtomically(file, pom);
+      return true;
+    }
+    return client.downloadArtifact(
+        coordinates[0], coordinates[1], coordinates[2], dir, coordinates[3]);
+  }
+
+  private FileResult verifyFile(Path file) {
+    long size;
+    String sha256;
+    String sha1;
+    try {
+      size = Files.size(file);
+      var sha256Digest = MessageDigest.getInstance("SHA-256");
+      var sha1Digest = checkRemote ? MessageDigest.getInstance("SHA-1") : null;
+      digest(file, sha256Digest, sha1Digest);
+      sha256 = HexFormat.of().formatHex(sha256Digest.digest());
+      sha1 = sha1Digest != null ? HexFormat.of().formatHex(sha1Digest.digest()) : null;
+    } catch (IOException | NoSuchAlgorithmException e) {
+      UserOutput.debug("Could not read " + file + ": " + e.getMessage());
+      return new FileResult(file, 0, null, null, Status.UNREADABLE);
+    }
+
+    var expected = storedChecksum(file);
+    if (expected != null && !expected.equals(sha256)) {
+      return new FileResult(file, size, sha256, expected, Status.CHECKSUM_MISMATCH);
+    }
+
+    if (file.getFileName().toString().endsWith(".jar") && !hasCentralDirectory(file)) {
+      return new FileResult(file, size, sha256, expected, Status.CORRUPT_ARCHIVE);
+    }
+
+    if (sha1 != null) {
+      var remote = remoteSha1(file);
+      if (remote != null && !remote.equals(sha1)) {
+        return new FileResult(file, size, sha256, expected, Status.REMOTE_MISMATCH);
+      }
+      if (remote != null) {
+        return new FileResult(file, size, sha256, expected, Status.OK);
+      }
+    }
+
+    var status = expected != null ? Status.OK : Status.NO_CHECKSUM;
+    return new FileResult(file, size, sha256, expected, status);
+  }
+
+  /**
+   * Feeds the file through the digests one mapped window at a time.
+   */
+  private static void digest(Path file, MessageDigest first, MessageDigest second)
+      throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var size = channel.size();
+      for (long position = 0; position < size; position += MAP_CHUNK) {
+        var length = Math.min(MAP_CHUNK, size - position);
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        if (second != null) {
+          second.update(buffer.duplicate());
+        }
+        first.update(buffer);
+      }
+    }
+  }
+
+  /**
+   * Returns the recorded SHA-256 for a cached file: the index entry, else the sidecar.
+   */
+  private String storedChecksum(Path file) {
+    var coordinates = coordinates(file);
+    if (coordinates != null) {
+      var entry = CacheIndex.shared()
+          .get(coordinates[0], coordinates[1], coordinates[2], coordinates[3]);
+      if (entry != null && entry.sha256() != null) {
+        return entry.sha256();
+      }
+    }
+    var sidecar = Path.of(file + BlobStore.CHECKSUM_SUFFIX);
+    try {
+      return Files.exists(sidecar) ? FileUtils.readFile(sidecar).strip() : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private String remoteSha1(Path file) {
+    var url = repositoryUrl + cacheDir.relativize(file).toString().replace(File.separatorChar, '/');
+    try {
+      var body = HttpClientManager.sendGet(url + ".sha1").strip();
+      // Some repositories append the file name after the digest
+      return body.split("\\s+")[0].toLowerCase();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (IOException e) {
+      UserOutput.debug("No remote checksum for " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Checks that a zip ends with a plausible end-of-central-directory record.
+   */
+  private static boolean hasCentralDirectory(Path file) {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var size = channel.size();
+      if (size < EOCD_MIN_SIZE) {
+        return false;
+      }
+      var tailSize = (int) Math.min(size, EOCD_MAX_SEARCH);
+      var tail = channel.map(FileChannel.MapMode.READ_ONLY, size - tailSize, tailSize)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      for (int pos = tailSize - EOCD_MIN_SIZE; pos >= 0; pos--) {
+        if (tail.getInt(pos) == EOCD_SIGNATURE && isValidEocd(tail, pos, size - tailSize)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static boolean isValidEocd(ByteBuffer tail, int pos, long tailStart) {
+    long directorySize = Integer.toUnsignedLong(tail.getInt(pos + 12));
+    long directoryOffset = Integer.toUnsignedLong(tail.getInt(pos + 16));
+    int commentLength = Short.toUnsignedInt(tail.getShort(pos + 20));
+    if (directorySize == ZIP64_MARKER || directoryOffset == ZIP64_MARKER) {
+      // Real values live in the zip64 record; the signature alone has to do
+      return pos + EOCD_MIN_SIZE + commentLength <= tail.limit();
+    }
+    return pos + EOCD_MIN_SIZE + commentLength <= tail.limit()
+        && directoryOffset + directorySize <= tailStart + pos;
+  }
+
+  /**
+   * Derives {group, artifact, version, extension} from a path in the cache, or null.
+   */
+  private String[] coordinates(Path file) {
+    var relative = cacheDir.relativize(file);
+    var count = relative.getNameCount();
+    if (count < 4) {
+      return null;
+    }
+    var artifactId = relative.getName(count - 3).toString();
+    var version = relative.getName(count - 2).toString();
+    var prefix = artifactId + "-" + version + ".";
+    var fileName = relative.getName(count - 1).toString();
+    if (!fileName.startsWith(prefix)) {
+      return null;
+    }
+    var groupId = relative.subpath(0, count - 3).toString().replace(File.separatorChar, '.');
+    return new String[] {groupId, artifactId, version, fileName.substring(prefix.length())};
+  }
+}
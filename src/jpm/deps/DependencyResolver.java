@@ -11,21 +11,28 @@ import jpm.utils.Version;
 public class DependencyResolver {
 
   private final MavenClient mavenClient;
+  private final CacheLayers cacheLayers;
   private final PomParser pomParser;
   private final Set<String> resolvedArtifacts;
   private final Map<String, ResolvedDependency> resolvedDeps;
+  private final Map<String, List<String>> edges;
+  private Map<String, Lockfile.LockfileEntry> locked = Map.of();
+  private int reusedArtifacts;
 
   public DependencyResolver() throws Exception {
     this.mavenClient = new MavenClient();
+    this.cacheLayers = CacheLayers.shared();
     this.pomParser = new PomParser(new ParentPomResolver(mavenClient));
     this.resolvedArtifacts = new HashSet<>();
     this.resolvedDeps = new HashMap<>();
+    this.edges = new HashMap<>();
   }
 
   public List<ResolvedDependency> resolve(String groupId, String artifactId, String version)
       throws IOException {
     resolvedArtifacts.clear();
     resolvedDeps.clear();
+    edges.clear();
 
     resolveInternal(groupId, artifactId, version, 0);
 
@@ -35,6 +42,7 @@ public class DependencyResolver {
   public List<ResolvedDependency> resolveAll(Map<String, String> dependencies) throws IOException {
     resolvedArtifacts.clear();
     resolvedDeps.clear();
+    edges.clear();
 
     for (var entry : dependencies.entrySet()) {
       var parts = entry.getKey().split(":");
@@ -46,6 +54,75 @@ public class DependencyResolver {
     return new ArrayList<>(resolvedDeps.values());
   }
 
+  /**
+   * Re-resolves the direct dependencies on top of a locked graph.
+   *
+   * Mediation runs as in {@link #resolveAll}, so the result is the same, but an artifact
+   * version that is in the lockfile takes its dependencies, with the versions its POM asked
+   * for, from there instead of reading its POM. Only added or bumped dependencies and versions
+   * that mediation now picks differently are resolved from POMs. Artifacts no longer reachable
+   * from any direct dependency are dropped.
+   *
+   * Lockfiles that do not record requested versions on their edges are resolved from scratch.
+   */
+  public List<ResolvedDependency> resolveIncremental(
+      Lockfile lock, Map<String, String> dependencies) throws IOException {
+    var entries = new HashMap<String, Lockfile.LockfileEntry>();
+    for (var entry : lock.getDependencies()) {
+      if (!entry.hasRequestedVersions()) {
+        UserOutput.info("jpm.lock does not record requested versions, resolving all dependencies");
+        return resolveAll(dependencies);
+      }
+      entries.put(entry.key(), entry);
+    }
+
+    locked = entries;
+    reusedArtifacts = 0;
+    try {
+      resolveAll(dependencies);
+    } finally {
+      locked = Map.of();
+    }
+    UserOutput.info("Took " + reusedArtifacts + " artifact versions from jpm.lock");
+
+    pruneUnreachable(dependencies.keySet());
+    return new ArrayList<>(resolvedDeps.values());
+  }
+
+  /**
+   * Returns the JAR of a locked artifact from the cache layers, downloading it if it is gone.
+   */
+  private File lockedJar(Lockfile.LockfileEntry entry) throws IOException {
+    var jarFile = cacheLayers.locate(entry.group(), entry.artifact(), entry.version(), "jar");
+    if (jarFile != null) {
+      return jarFile;
+    }
+    var cacheDir = FileUtils.getDependencyDir(entry.group(), entry.artifact(), entry.version());
+    if (mavenClient.downloadArtifact(
+        entry.group(), entry.artifact(), entry.version(), cacheDir, "jar")) {
+      return new File(cacheDir, entry.artifact() + "-" + entry.version() + ".jar");
+    }
+    UserOutput.warn("  Warning: Failed to download JAR for " + entry.key() + ":"
+        + entry.version());
+    return null;
+  }
+
+  /**
+   * Drops artifacts that only artifacts replaced during mediation depended on.
+   */
+  private void pruneUnreachable(Collection<String> roots) {
+    var reachable = new HashSet<String>();
+    var pending = new ArrayDeque<>(roots);
+    while (!pending.isEmpty()) {
+      var key = pending.pop();
+      if (reachable.add(key)) {
+        edges.getOrDefault(key, List.of()).forEach(dep -> pending.add(Lockfile.dependencyKey(dep)));
+      }
+    }
+    resolvedDeps.keySet().retainAll(reachable);
+    edges.keySet().retainAll(reachable);
+  }
+
   private void resolveInternal(String groupId, String artifactId, String version, int depth)
       throws IOException {
     String key = groupId + ":" + artifactId;
@@ -60,6 +137,7 @@ public class DependencyResolver {
               + " -> " + version);
           resolvedDeps.remove(key);
           resolvedArtifacts.remove(key);
+          edges.remove(key);
         } else {
           return; // Keep existing version
         }
@@ -73,34 +151,59 @@ public class DependencyResolver {
       return;
     }
 
+    resolvedArtifacts.add(key);
+
+    // A locked version brings its dependencies and their requested versions along
+    var lockedEntry = locked.get(key);
+    if (lockedEntry != null && lockedEntry.version().equals(version)) {
+      reusedArtifacts++;
+      var children = new ArrayList<String>();
+      edges.put(key, children);
+      for (var dep : lockedEntry.dependencies()) {
+        var parts = dep.split(":");
+        children.add(dep);
+        resolveInternal(parts[0], parts[1], parts[2], depth + 1);
+      }
+      var jarFile = lockedJar(lockedEntry);
+      if (jarFile != null) {
+        resolvedDeps.put(key, new ResolvedDependency(groupId, artifactId, version, jarFile));
+      }
+      return;
+    }
+
     String indent = "  ".repeat(depth);
     UserOutput.info(indent + "Resolving " + groupId + ":" + artifactId + ":" + version);
 
-    resolvedArtifacts.add(key);
-
-    // Ensure cache directory exists
+    // Look through the cache layers first; downloads go to the writable user cache
     var cacheDir = FileUtils.getDependencyDir(groupId, artifactId, version);
-    FileUtils.ensureDirectory(cacheDir);
-
-    // Download JAR
-    boolean jarDownloaded =
-        mavenClient.downloadArtifact(groupId, artifactId, version, cacheDir, "jar");
-    if (!jarDownloaded) {
+    var jarFile = cacheLayers.locate(groupId, artifactId, version, "jar");
+    if (jarFile == null
+        && mavenClient.downloadArtifact(groupId, artifactId, version, cacheDir, "jar")) {
+      jarFile = new File(cacheDir, artifactId + "-" + version + ".jar");
+    }
+    if (jarFile == null) {
       UserOutput.warn("  Warning: Failed to download JAR for " + key + ":" + version);
     }
 
-    // Download POM for transitive dependencies
-    String pomContent = mavenClient.downloadPom(groupId, artifactId, version);
+    // Read POM for transitive dependencies, downloading it if not cached yet
+    String pomContent = mavenClient.readCachedPom(groupId, artifactId, version);
+    if (pomContent == null) {
+      pomContent = mavenClient.downloadPom(groupId, artifactId, version);
+      if (pomContent != null) {
+        // Save POM for future reference
+        var pomFile = new File(cacheDir, artifactId + "-" + version + ".pom");
+        FileUtils.writeFileAtomically(pomFile, pomContent);
+      }
+    }
     if (pomContent != null) {
-      // Save POM for future reference
-      var pomFile = new File(cacheDir, artifactId + "-" + version + ".pom");
-      FileUtils.writeFile(pomFile, pomContent);
-
       try {
         // Parse transitive dependencies
         var transitiveDeps = pomParser.parseDependencies(pomContent);
+        var children = new ArrayList<String>();
+        edges.put(key, children);
         for (var dep : transitiveDeps) {
           if (dep.shouldInclude() && dep.version() != null) {
+            children.add(dep.groupId() + ":" + dep.artifactId() + ":" + dep.version());
             resolveInternal(dep.groupId(), dep.artifactId(), dep.version(), depth + 1);
           }
         }
@@ -110,12 +213,20 @@ public class DependencyResolver {
     }
 
     // Add to resolved dependencies
-    if (jarDownloaded) {
-      var jarFile = new File(cacheDir, artifactId + "-" + version + ".jar");
+    if (jarFile != null) {
       resolvedDeps.put(key, new ResolvedDependency(groupId, artifactId, version, jarFile));
     }
   }
 
+  /**
+   * Returns the direct dependencies of each artifact of the last resolution as
+   * "group:artifact:requestedVersion", keyed by "group:artifact". Edges of a version that lost
+   * a conflict are replaced by the winner's.
+   */
+  public Map<String, List<String>> getDependencyGraph() {
+    return Collections.unmodifiableMap(edges);
+  }
+
   public List<ResolvedDependency> resolveWithLockfile(
       File projectDir, JpmConfig config, boolean forceResolve) throws IOException {
     // If not forcing re-resolution, try to use lockfile
@@ -126,13 +237,21 @@ public class DependencyResolver {
       }
     }
 
-    // Perform full resolution
-    UserOutput.info("Resolving dependencies...");
-    var deps = resolveAll(config.dependencies());
+    // Reuse the unchanged part of an existing lockfile graph, otherwise resolve from scratch
+    var previous = forceResolve ? null : LockfileManager.loadForUpdate(projectDir);
+    List<ResolvedDependency> deps;
+    if (previous != null) {
+      UserOutput.info("Updating dependencies from jpm.lock...");
+      deps = resolveIncremental(previous, config.dependencies());
+    } else {
+      UserOutput.info("Resolving dependencies...");
+      deps = resolveAll(config.dependencies());
+    }
 
     // Save to lockfile
     try {
-      LockfileManager.saveToLockfile(projectDir, deps, config);
+      LockfileManager.saveToLockfile(
+          projectDir, deps, edges, mavenClient.getCanonicalRepositoryUrl(), config);
     } catch (IOException e) {
       UserOutput.warn("Warning: Failed to save lockfile: " + e.getMessage());
     }
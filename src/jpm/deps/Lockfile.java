@@ -1,20 +1,29 @@
 package jpm.deps;
 
-import com.moandjiezana.toml.Toml;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import jpm.utils.FileUtils;
+import jpm.utils.TomlReader;
+import jpm.utils.TomlWriter;
+import jpm.utils.UserOutput;
 
 public class Lockfile {
 
+  public static final String CURRENT_VERSION = "2";
+
   private String version;
   private String configHash;
+  private List<String> roots;
   private List<LockfileEntry> dependencies;
 
   public Lockfile() {
-    this.version = "1";
+    this.version = CURRENT_VERSION;
+    this.roots = new ArrayList<>();
     this.dependencies = new ArrayList<>();
   }
 
@@ -34,6 +43,32 @@ public class Lockfile {
     this.configHash = configHash;
   }
 
+  /**
+   * Returns the direct dependencies from jpm.toml as "group:artifact:version", with the
+   * version as declared there (the locked version may be newer after mediation).
+   */
+  public List<String> getRoots() {
+    return roots;
+  }
+
+  /**
+   * Returns the declared version of each direct dependency, keyed by "group:artifact".
+   */
+  public Map<String, String> getRootVersions() {
+    var versions = new LinkedHashMap<String, String>();
+    for (var root : roots) {
+      var separator = root.lastIndexOf(':');
+      if (separator > 0 && root.indexOf(':') < separator) {
+        versions.put(root.substring(0, separator), root.substring(separator + 1));
+      }
+    }
+    return versions;
+  }
+
+  public void setRoots(List<String> roots) {
+    this.roots = roots;
+  }
+
   public List<LockfileEntry> getDependencies() {
     return dependencies;
   }
@@ -51,74 +86,102 @@ public class Lockfile {
       return null;
     }
 
-    var toml = new Toml().read(lockfile);
+    var toml = TomlReader.of(lockfile);
     var lock = new Lockfile();
+    lock.setVersion("1");
 
-    lock.setVersion(toml.getString("version", "1"));
-    lock.setConfigHash(toml.getString("config-hash"));
-
-    var deps = toml.getTables("dependencies");
-    if (deps != null) {
-      for (var depToml : deps) {
-        var entry = new LockfileEntry(
-            depToml.getString("group"),
-            depToml.getString("artifact"),
-            depToml.getString("version"),
-            depToml.getString("path"));
-        lock.addEntry(entry);
+    EntryFields entry = null;
+    for (var event = toml.next(); event != null; event = toml.next()) {
+      switch (event) {
+        case ARRAY_TABLE, TABLE -> {
+          if (entry != null) {
+            lock.addEntry(entry.toEntry());
+          }
+          entry = event == TomlReader.Event.ARRAY_TABLE && "dependencies".equals(toml.table())
+              ? new EntryFields()
+              : null;
+        }
+        case VALUE -> {
+          if (entry != null) {
+            entry.set(toml);
+          } else if (toml.table().isEmpty()) {
+            switch (toml.key()) {
+              case "version" -> lock.setVersion(toml.stringValue());
+              case "config-hash" -> lock.setConfigHash(toml.stringValue());
+              case "roots" -> lock.setRoots(toml.stringList());
+              default -> { }
+            }
+          }
+        }
       }
     }
+    if (entry != null) {
+      lock.addEntry(entry.toEntry());
+    }
 
     return lock;
   }
 
-  public void save(File lockfile) throws IOException {
-    var toml = new StringBuilder();
-    toml.append("""
-        # This file is automatically generated by JPM.
-        # It is not intended for manual editing.
-        version = "%s"
-        """.formatted(version));
-
-    if (configHash != null) {
-      toml.append("config-hash = \"%s\"\n".formatted(configHash));
+  /**
+   * Fields of the [[dependencies]] element being read.
+   */
+  private static final class EntryFields {
+    private String group;
+    private String artifact;
+    private String version;
+    private String sha256;
+    private String repository;
+    private List<String> dependencies = List.of();
+
+    void set(TomlReader toml) throws IOException {
+      switch (toml.key()) {
+        case "group" -> group = toml.stringValue();
+        case "artifact" -> artifact = toml.stringValue();
+        case "version" -> version = toml.stringValue();
+        case "sha256" -> sha256 = toml.stringValue();
+        case "repository" -> repository = toml.stringValue();
+        case "dependencies" -> dependencies = List.copyOf(toml.stringList());
+        default -> { }
+      }
     }
 
-    toml.append("\n");
+    LockfileEntry toEntry() {
+      return new LockfileEntry(group, artifact, version, sha256, repository, dependencies);
+    }
+  }
+
+  public void save(File lockfile) throws IOException {
+    var toml = new TomlWriter()
+        .comment("This file is automatically generated by JPM.")
+        .comment("It is not intended for manual editing.")
+        .string("version", version)
+        .string("config-hash", configHash)
+        .stringList("roots", roots);
 
     for (var entry : dependencies) {
-      toml.append("""
-          [[dependencies]]
-          group = "%s"
-          artifact = "%s"
-          version = "%s"
-          path = "%s"
-
-          """.formatted(
-              escape(entry.group()),
-              escape(entry.artifact()),
-              escape(entry.version()),
-              escape(entry.path())));
+      toml.arrayTable("dependencies")
+          .string("group", entry.group())
+          .string("artifact", entry.artifact())
+          .string("version", entry.version())
+          .string("sha256", entry.sha256())
+          .string("repository", entry.repository())
+          .stringList("dependencies", entry.dependencies());
     }
 
     FileUtils.writeFile(lockfile, toml.toString());
   }
 
-  private static String escape(String value) {
-    if (value == null) return "";
-    return value
-        .replace("\\", "\\\\")
-        .replace("\"", "\\\"")
-        .replace("\n", "\\n")
-        .replace("\r", "\\r")
-        .replace("\t", "\\t");
-  }
-
+  /**
+   * Returns the locked artifacts whose JARs are present in the cache layers of this machine.
+   * Locations are derived from the coordinates, so a lockfile written elsewhere applies as is.
+   */
   public List<ResolvedDependency> toResolvedDependencies() {
     var result = new ArrayList<ResolvedDependency>();
+    var layers = CacheLayers.shared();
+    var index = CacheIndex.shared();
     for (var entry : dependencies) {
-      var jarFile = new java.io.File(entry.path());
-      if (jarFile.exists()) {
+      var jarFile = layers.find(entry.group(), entry.artifact(), entry.version(), "jar");
+      if (jarFile != null && matchesChecksum(index, entry, jarFile)) {
         result.add(
             new ResolvedDependency(entry.group(), entry.artifact(), entry.version(), jarFile));
       }
@@ -126,18 +189,122 @@ public class Lockfile {
     return result;
   }
 
+  /**
+   * Compares a JAR in the user cache against the locked SHA-256, using the checksum the cache
+   * index recorded at download time. JARs from read-only layers are trusted.
+   */
+  private static boolean matchesChecksum(CacheIndex index, LockfileEntry entry, File jarFile) {
+    var indexed = index.get(entry.group(), entry.artifact(), entry.version(), "jar");
+    var inUserCache = jarFile.toPath().startsWith(FileUtils.getCacheDir().toPath());
+    if (entry.sha256() != null && indexed != null && indexed.sha256() != null && inUserCache
+        && !entry.sha256().equals(indexed.sha256())) {
+      UserOutput.warn("Checksum of cached " + entry.key() + ":" + entry.version()
+          + " does not match jpm.lock");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Builds a lockfile from a resolution.
+   *
+   * @param deps the resolved dependencies
+   * @param edges direct dependencies of each resolved artifact as
+   *     "group:artifact:requestedVersion", keyed by "group:artifact"
+   * @param roots the direct dependencies of the project and their declared versions
+   * @param repositoryUrl the repository artifacts were resolved against
+   * @param configHash hash of the dependency section of jpm.toml
+   */
   public static Lockfile fromResolvedDependencies(
-      List<ResolvedDependency> deps, String configHash) {
+      List<ResolvedDependency> deps,
+      Map<String, List<String>> edges,
+      Map<String, String> roots,
+      String repositoryUrl,
+      String configHash) {
+    var resolvedKeys = new HashSet<String>();
+    deps.forEach(dep -> resolvedKeys.add(dep.groupId() + ":" + dep.artifactId()));
+
     var lockfile = new Lockfile();
     lockfile.setConfigHash(configHash);
+    lockfile.setRoots(roots.entrySet().stream().map(e -> e.getKey() + ":" + e.getValue()).toList());
     for (var dep : deps) {
+      var key = dep.groupId() + ":" + dep.artifactId();
+      var children = edges.getOrDefault(key, List.of()).stream()
+          .filter(edge -> resolvedKeys.contains(dependencyKey(edge)))
+          .distinct()
+          .toList();
       var entry = new LockfileEntry(
-          dep.groupId(), dep.artifactId(), dep.version(), dep.jarFile().getAbsolutePath());
+          dep.groupId(),
+          dep.artifactId(),
+          dep.version(),
+          checksum(dep),
+          repositoryUrl,
+          children);
       lockfile.addEntry(entry);
     }
     return lockfile;
   }
 
-  // Java 16+ record for lockfile entry information
-  public record LockfileEntry(String group, String artifact, String version, String path) {}
+  /**
+   * Returns the SHA-256 of a resolved JAR: from the cache index, a .sha256 sidecar (e.g. in
+   * a read-only cache layer), or by hashing the file.
+   */
+  private static String checksum(ResolvedDependency dep) {
+    var indexed = CacheIndex.shared().get(dep.groupId(), dep.artifactId(), dep.version(), "jar");
+    var standard = new File(
+        FileUtils.getDependencyDir(dep.groupId(), dep.artifactId(), dep.version()),
+        dep.artifactId() + "-" + dep.version() + ".jar");
+    if (indexed != null && indexed.sha256() != null
+        && dep.jarFile().getAbsoluteFile().equals(standard.getAbsoluteFile())) {
+      return indexed.sha256();
+    }
+    try {
+      var sidecar = new File(dep.jarFile().getPath() + BlobStore.CHECKSUM_SUFFIX);
+      return sidecar.isFile()
+          ? FileUtils.readFile(sidecar).strip()
+          : FileUtils.sha256(dep.jarFile().toPath());
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the "group:artifact" key of a dependency edge, which is
+   * "group:artifact:requestedVersion" (or just "group:artifact" in older lockfiles).
+   */
+  public static String dependencyKey(String dependency) {
+    var separator = dependency.indexOf(':', dependency.indexOf(':') + 1);
+    return separator < 0 ? dependency : dependency.substring(0, separator);
+  }
+
+  /**
+   * One locked artifact. The JAR location is not stored: it follows from the coordinates and
+   * the cache layers of the machine reading the lockfile.
+   *
+   * @param sha256 SHA-256 of the JAR (null in lockfiles written without checksums)
+   * @param repository repository the artifact was resolved from
+   * @param dependencies direct dependencies as "group:artifact:requestedVersion", with the
+   *     version the POM asked for (the locked version may differ after mediation); all of them
+   *     are present in the lockfile
+   */
+  public record LockfileEntry(
+      String group,
+      String artifact,
+      String version,
+      String sha256,
+      String repository,
+      List<String> dependencies) {
+
+    public String key() {
+      return group + ":" + artifact;
+    }
+
+    /**
+     * Checks whether every edge carries the version the POM asked for. Lockfiles written
+     * before edges were versioned only name the artifacts.
+     */
+    public boolean hasRequestedVersions() {
+      return dependencies.stream().noneMatch(dep -> dependencyKey(dep).equals(dep));
+    }
+  }
 }
@@ -6,6 +6,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.Map;
 import jpm.config.JpmConfig;
 
 public class LockfileManager {
@@ -25,7 +26,8 @@ public class LockfileManager {
       }
 
       // Check if lockfile version matches expected
-      if (!"1".equals(lock.getVersion())) {
+      // Older formats lack the dependency graph and checksums, so they are regenerated
+      if (!Lockfile.CURRENT_VERSION.equals(lock.getVersion())) {
         return false;
       }
 
@@ -56,15 +58,47 @@ public class LockfileManager {
     if (lock == null) {
       throw new IOException("Lockfile not found");
     }
-    return lock.toResolvedDependencies();
+    var deps = lock.toResolvedDependencies();
+    var journal = AccessJournal.shared();
+    deps.forEach(d -> journal.hit(d.groupId(), d.artifactId(), d.version()));
+    return deps;
+  }
+
+  /**
+   * Loads a lockfile whose graph can seed an incremental re-resolution: it must be the current
+   * format, which records the dependency edges and the declared direct dependencies. Edges
+   * without requested versions are checked by {@link DependencyResolver#resolveIncremental}.
+   *
+   * @return the lockfile, or null if there is none or it is too old to reuse
+   */
+  public static Lockfile loadForUpdate(File projectDir) {
+    try {
+      var lock = Lockfile.load(new File(projectDir, LOCKFILE_NAME));
+      if (lock == null
+          || !Lockfile.CURRENT_VERSION.equals(lock.getVersion())
+          || lock.getRootVersions().isEmpty()) {
+        return null;
+      }
+      return lock;
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
   }
 
   public static void saveToLockfile(
-      File projectDir, List<ResolvedDependency> deps, JpmConfig config) throws IOException {
+      File projectDir,
+      List<ResolvedDependency> deps,
+      Map<String, List<String>> edges,
+      String repositoryUrl,
+      JpmConfig config) throws IOException {
     var lockfile = new File(projectDir, LOCKFILE_NAME);
     var configHash = computeConfigHash(config);
-    var lock = Lockfile.fromResolvedDependencies(deps, configHash);
+    var lock = Lockfile.fromResolvedDependencies(
+        deps, edges, config.dependencies(), repositoryUrl, configHash);
     lock.save(lockfile);
+    RefRegistry.register(
+        projectDir,
+        deps.stream().map(d -> d.groupId() + ":" + d.artifactId() + ":" + d.version()).toList());
   }
 
   public static String computeConfigHash(JpmConfig config) {
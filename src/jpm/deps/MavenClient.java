@@ -2,35 +2,136 @@ package jpm.deps;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 import jpm.net.HttpClientManager;
 import jpm.utils.Constants;
+import jpm.utils.FileUtils;
 import jpm.utils.UserOutput;
 
 public class MavenClient {
-  private static final String MAVEN_CENTRAL = Constants.MAVEN_CENTRAL;
+  private final String repositoryUrl;
+  private final String canonicalRepositoryUrl;
+  private final BlobStore blobStore = new BlobStore();
+  private final CacheIndex cacheIndex = CacheIndex.shared();
 
-  public MavenClient() {}
+  public MavenClient() {
+    // A JPM_MIRROR mirror stands in for Maven Central
+    this(resolveRepositoryUrl(), Constants.MAVEN_CENTRAL);
+  }
+
+  public MavenClient(String repositoryUrl) {
+    this(repositoryUrl, repositoryUrl);
+  }
+
+  /**
+   * @param repositoryUrl repository to download from
+   * @param canonicalRepositoryUrl repository that one stands in for, recorded in jpm.lock
+   */
+  public MavenClient(String repositoryUrl, String canonicalRepositoryUrl) {
+    this.repositoryUrl = withSlash(repositoryUrl);
+    this.canonicalRepositoryUrl = withSlash(canonicalRepositoryUrl);
+  }
+
+  private static String withSlash(String url) {
+    return url.endsWith("/") ? url : url + "/";
+  }
+
+  /**
+   * Returns the repository base URL to download from.
+   * A mirror (e.g. a team-wide `jpm serve-cache`) can be set through the JPM_MIRROR
+   * environment variable; otherwise Maven Central is used.
+   *
+   * @return repository base URL
+   */
+  public static String resolveRepositoryUrl() {
+    var mirror = System.getenv(Constants.MIRROR_ENV);
+    if (mirror != null && !mirror.isBlank()) {
+      return mirror.strip();
+    }
+    return Constants.MAVEN_CENTRAL;
+  }
+
+  public String getRepositoryUrl() {
+    return repositoryUrl;
+  }
+
+  /**
+   * Returns the repository artifacts are recorded against in jpm.lock: the upstream a mirror
+   * fronts rather than the mirror, so lockfiles do not differ between machines.
+   */
+  public String getCanonicalRepositoryUrl() {
+    return canonicalRepositoryUrl;
+  }
 
   public boolean downloadArtifact(
       String groupId, String artifactId, String version, File outputDir, String extension)
       throws IOException {
     String path = buildPath(groupId, artifactId, version, extension);
-    String url = MAVEN_CENTRAL + path;
+    String url = repositoryUrl + path;
 
     File outputFile = new File(outputDir, artifactId + "-" + version + "." + extension);
 
-    if (outputFile.exists()) {
+    // Artifacts in the standard cache location are answered from the index without a stat()
+    var inCache = outputDir.equals(FileUtils.getDependencyDir(groupId, artifactId, version));
+    var cached = inCache
+        ? cacheIndex.contains(groupId, artifactId, version, extension)
+        : outputFile.exists();
+    if (cached) {
+      if (inCache) {
+        AccessJournal.shared().hit(groupId, artifactId, version);
+      }
       return true; // Already cached
     }
 
-    return HttpClientManager.downloadFile(url, outputFile.toPath());
+    // Another process may be fetching the same artifact: serialize on its lock, then re-check
+    try (var lock = CacheLock.artifact(groupId + ":" + artifactId + ":" + version)) {
+      if (outputFile.exists()) {
+        if (inCache) {
+          cacheIndex.contains(groupId, artifactId, version, extension);
+        }
+        return true;
+      }
+
+      // Download next to the target, then link into the blob store and move into place
+      FileUtils.ensureDirectory(outputDir);
+      var temp = Files.createTempFile(outputDir.toPath(), ".download-", ".tmp");
+      if (!HttpClientManager.downloadFile(url, temp)) {
+        Files.deleteIfExists(temp);
+        return false;
+      }
+
+      var sha256 = blobStore.adopt(temp);
+      Files.move(
+          temp,
+          outputFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      FileUtils.writeFileAtomically(
+          new File(outputFile.getPath() + BlobStore.CHECKSUM_SUFFIX), sha256);
+      if (inCache) {
+        cacheIndex.record(groupId, artifactId, version, extension, outputFile, sha256);
+        AccessJournal.shared().miss(groupId, artifactId, version);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Returns a POM from the local cache layers, packed or loose.
+   *
+   * @return the POM content, or null if it is not cached
+   */
+  public String readCachedPom(String groupId, String artifactId, String version) {
+    return CacheLayers.shared().readPom(groupId, artifactId, version);
   }
 
   public String downloadPom(String groupId, String artifactId, String version) throws IOException {
     String path = buildPath(groupId, artifactId, version, "pom");
-    String url = MAVEN_CENTRAL + path;
+    String url = repositoryUrl + path;
 
     try {
       return HttpClientManager.sendGet(url);
@@ -60,6 +161,19 @@ public class MavenClient {
    * @return List of booleans indicating success for each download
    */
   public List<Boolean> downloadArtifactsBatch(List<ArtifactSpec> artifacts) {
+    return downloadArtifactsBatch(artifacts, (spec, success) -> {});
+  }
+
+  /**
+   * Batch download with a callback invoked (from the download thread) as each artifact
+   * finishes, e.g. to drive a progress display.
+   *
+   * @param artifacts List of artifact coordinates to download
+   * @param onDone Receives each artifact and whether it was downloaded
+   * @return List of booleans indicating success for each download
+   */
+  public List<Boolean> downloadArtifactsBatch(
+      List<ArtifactSpec> artifacts, BiConsumer<ArtifactSpec, Boolean> onDone) {
     if (artifacts.isEmpty()) {
       return List.of();
     }
@@ -68,8 +182,9 @@ public class MavenClient {
     try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
       var futures = artifacts.stream()
           .map(spec -> executor.submit(() -> {
+            boolean success;
             try {
-              return downloadArtifact(
+              success = downloadArtifact(
                   spec.groupId(),
                   spec.artifactId(),
                   spec.version(),
@@ -77,8 +192,10 @@ public class MavenClient {
                   spec.extension());
             } catch (IOException e) {
               UserOutput.error("Error downloading " + spec + ": " + e.getMessage());
-              return false;
+              success = false;
             }
+            onDone.accept(spec, success);
+            return success;
           }))
           .toList();
 
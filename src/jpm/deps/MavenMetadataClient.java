@@ -0,0 +1,149 @@
+package jpm.deps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import jpm.net.HttpClientManager;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+import jpm.utils.Version;
+
+/**
+ * Looks up available versions from the repository's maven-metadata.xml, which is current as
+ * soon as an artifact is deployed (unlike the search index).
+ *
+ * Metadata is kept under ~/.jpm/metadata together with its ETag and Last-Modified headers,
+ * so repeated checks are conditional requests that usually come back 304 Not Modified.
+ */
+public class MavenMetadataClient {
+
+  private static final Pattern VERSION = Pattern.compile("<version>\\s*([^<\\s]+)\\s*</version>");
+  private static final String HEADERS_SUFFIX = ".headers";
+
+  private final String repositoryUrl;
+  private final File metadataDir;
+
+  /**
+   * Latest versions of one artifact.
+   *
+   * @param latest newest version of any kind, or null if the metadata lists none
+   * @param latestStable newest release version, or null if there is none
+   */
+  public record Versions(String latest, String latestStable) {}
+
+  public MavenMetadataClient() {
+    this(new MavenClient().getRepositoryUrl(), FileUtils.getMetadataDir());
+  }
+
+  public MavenMetadataClient(String repositoryUrl, File metadataDir) {
+    this.repositoryUrl = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+    this.metadataDir = metadataDir;
+  }
+
+  /**
+   * Looks up the versions of several artifacts concurrently, one virtual thread each.
+   *
+   * @param keys artifacts as "group:artifact"
+   * @return versions per key, in the order given; artifacts that could not be looked up are
+   *     missing from the map
+   */
+  public Map<String, Versions> lookup(Collection<String> keys) {
+    var futures = new LinkedHashMap<String, Future<Versions>>();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var key : keys) {
+        futures.put(key, executor.submit(() -> lookup(key)));
+      }
+    }
+
+    var result = new LinkedHashMap<String, Versions>();
+    for (var entry : futures.entrySet()) {
+      try {
+        result.put(entry.getKey(), entry.getValue().get());
+      } catch (ExecutionException e) {
+        UserOutput.warn("Could not look up versions of " + entry.getKey() + ": "
+            + e.getCause().getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Looks up the versions of one artifact ("group:artifact").
+   */
+  public Versions lookup(String key) throws IOException, InterruptedException {
+    var parts = key.split(":");
+    if (parts.length != 2) {
+      throw new IOException("Invalid dependency key: " + key);
+    }
+    var versions = parseVersions(fetch(parts[0], parts[1]));
+
+    String latest = null;
+    String latestStable = null;
+    for (var version : versions) {
+      if (latest == null || Version.isNewer(version, latest)) {
+        latest = version;
+      }
+      if (Version.isStable(version)
+          && (latestStable == null || Version.isNewer(version, latestStable))) {
+        latestStable = version;
+      }
+    }
+    return new Versions(latest, latestStable);
+  }
+
+  /**
+   * Returns the metadata document, revalidating the stored copy with the repository.
+   */
+  private String fetch(String groupId, String artifactId)
+      throws IOException, InterruptedException {
+    var cached = new File(new File(metadataDir, groupId), artifactId + ".xml");
+    var headersFile = new File(cached.getPath() + HEADERS_SUFFIX);
+
+    String etag = null;
+    String lastModified = null;
+    if (cached.isFile() && headersFile.isFile()) {
+      var headers = Files.readAllLines(headersFile.toPath(), StandardCharsets.UTF_8);
+      etag = headers.size() > 0 && !headers.get(0).isEmpty() ? headers.get(0) : null;
+      lastModified = headers.size() > 1 && !headers.get(1).isEmpty() ? headers.get(1) : null;
+    }
+
+    var url = repositoryUrl + groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml";
+    var response = HttpClientManager.sendConditionalGet(url, etag, lastModified);
+    if (response.notModified()) {
+      UserOutput.debug("Metadata of " + groupId + ":" + artifactId + " not modified");
+      return FileUtils.readFile(cached);
+    }
+
+    FileUtils.ensureDirectory(cached.getParentFile());
+    FileUtils.writeFileAtomically(cached, response.body());
+    FileUtils.writeFileAtomically(headersFile,
+        nullToEmpty(response.etag()) + "\n" + nullToEmpty(response.lastModified()) + "\n");
+    return response.body();
+  }
+
+  static List<String> parseVersions(String metadata) {
+    var versions = new ArrayList<String>();
+    var matcher = VERSION.matcher(metadata);
+    while (matcher.find()) {
+      versions.add(matcher.group(1));
+    }
+    return versions;
+  }
+
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
+  }
+}
@@ -71,7 +71,7 @@ public class MavenSearchClient {
 
     while (matcher.find()) {
       var version = matcher.group(1);
-      if (isStableVersion(version)) {
+      if (jpm.utils.Version.isStable(version)) {
         // Return the first stable version (they're sorted by Maven Central, newest first)
         if (latestStable == null || isNewer(version, latestStable)) {
           latestStable = version;
@@ -82,15 +82,6 @@ public class MavenSearchClient {
     return latestStable;
   }
 
-  private boolean isStableVersion(String version) {
-    String lower = version.toLowerCase();
-    return !lower.contains("snapshot")
-        && !lower.contains("-rc")
-        && !lower.contains("alpha")
-        && !lower.contains("beta")
-        && !lower.matches(".*-m\\d+.*"); // Milestones like 2.16.0-M1
-  }
-
   private boolean isNewer(String v1, String v2) {
     return jpm.utils.Version.isNewer(v1, v2);
   }
@@ -114,12 +114,9 @@ public class ParentPomResolver {
     File cacheDir = FileUtils.getDependencyDir(groupId, artifactId, version);
     File cachedPom = new File(cacheDir, artifactId + "-" + version + ".pom");
 
-    if (cachedPom.exists()) {
-      try {
-        return FileUtils.readFile(cachedPom);
-      } catch (IOException e) {
-        // Fall through to download
-      }
+    String cached = mavenClient.readCachedPom(groupId, artifactId, version);
+    if (cached != null) {
+      return cached;
     }
 
     // Download from Maven Central
@@ -129,7 +126,7 @@ public class ParentPomResolver {
       // Cache locally
       try {
         FileUtils.ensureDirectory(cacheDir);
-        FileUtils.writeFile(cachedPom, pomContent);
+        FileUtils.writeFileAtomically(cachedPom, pomContent);
       } catch (IOException e) {
         // Non-fatal - just don't cache
       }
@@ -0,0 +1,532 @@
+package jpm.deps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Pack file for small cache files (POMs and repository metadata), so the cache holds two files
+ * instead of tens of thousands of tiny ones. JARs stay loose.
+ *
+ * The data file is append-only: repacking appends the loose files and then atomically replaces
+ * the index, so a reader's offsets stay valid while the pack grows. Only dropping entries
+ * (after gc evicted their versions) rewrites the data file.
+ *
+ * <pre>
+ *   .poms.pack: int magic "JPMP" | int format version
+ *               records: u16 key length | key (cache-relative path, '/' separated)
+ *                        | u32 CRC-32 of content | u32 content length | u32 deflated length
+ *                        | deflated content
+ *   .poms.idx:  int magic "JPMX" | int format version | int entry count
+ *               entries sorted by hash: i64 key hash (FNV-1a) | i64 record offset
+ * </pre>
+ */
+public class PomPack {
+
+  public static final String PACK_FILE_NAME = ".poms.pack";
+  public static final String INDEX_FILE_NAME = ".poms.idx";
+
+  private static final int PACK_MAGIC = 0x4A504D50; // "JPMP"
+  private static final int INDEX_MAGIC = 0x4A504D58; // "JPMX"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int INDEX_HEADER_SIZE = 12;
+  private static final int INDEX_ENTRY_SIZE = 16;
+  private static final int RECORD_FIXED_SIZE = 14;
+  private static final int MAX_DEFLATE_RATIO = 1032;
+
+  private static volatile PomPack shared;
+  private static final Object lock = new Object();
+
+  private final Path cacheDir;
+  private final Path packFile;
+  private final Path indexFile;
+
+  private MappedByteBuffer index;
+  private int indexCount;
+  private String indexStamp;
+
+  /**
+   * Outcome of a repack.
+   *
+   * @param packed loose files moved into the pack
+   * @param dropped pack entries removed
+   * @param entries entries in the pack afterwards
+   * @param bytesSaved size of the loose files minus what they added to the pack
+   */
+  public record RepackResult(int packed, int dropped, int entries, long bytesSaved) {}
+
+  private record Record(String key, int crc, int length, byte[] deflated) {}
+
+  public PomPack(Path cacheDir) {
+    this.cacheDir = cacheDir;
+    this.packFile = cacheDir.resolve(PACK_FILE_NAME);
+    this.indexFile = cacheDir.resolve(INDEX_FILE_NAME);
+  }
+
+  /**
+   * Returns the pack of the user cache.
+   */
+  public static PomPack shared() {
+    if (shared == null) {
+      synchronized (lock) {
+        if (shared == null) {
+          shared = new PomPack(FileUtils.getCacheDir().toPath());
+        }
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Drops the shared instance so the next access re-reads the index. Useful for testing.
+   */
+  public static void reset() {
+    synchronized (lock) {
+      shared = null;
+    }
+  }
+
+  /**
+   * Returns the cache-relative key for a file in the cache directory.
+   */
+  public static String key(Path cacheDir, Path file) {
+    return cacheDir.relativize(file).toString().replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Reads a packed file.
+   *
+   * @param key cache-relative path, e.g. "com/google/code/gson/gson/2.10.1/gson-2.10.1.pom"
+   * @return the content, or null if the pack does not hold it (or the record is damaged)
+   */
+  public synchronized String read(String key) {
+    try {
+      var content = lookup(key);
+      if (content == null && !stamp(indexFile).equals(indexStamp)) {
+        // Another process repacked since we mapped the index
+        index = null;
+        content = lookup(key);
+      }
+      return content;
+    } catch (IOException | RuntimeException | DataFormatException e) {
+      UserOutput.debug("Could not read " + key + " from POM pack: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Moves loose POMs into the pack and drops entries under the given directories.
+   * Callers hold the exclusive cache lock.
+   *
+   * @param dropPrefixes cache-relative directory keys (ending in '/') whose entries to drop
+   */
+  public synchronized RepackResult repack(Collection<String> dropPrefixes) throws IOException {
+    index = null; // re-read: another process may have repacked since we mapped it
+    var unreadable = new ArrayList<Long>();
+    var existing = readAll(unreadable);
+    var loose = loosePoms();
+
+    int dropped = 0;
+    if (!dropPrefixes.isEmpty() || !unreadable.isEmpty()) {
+      var live = new LinkedHashMap<String, Long>();
+      for (var e : existing.entrySet()) {
+        if (dropPrefixes.stream().anyMatch(e.getKey()::startsWith)) {
+          dropped++;
+        } else {
+          live.put(e.getKey(), e.getValue());
+        }
+      }
+      dropped += unreadable.size();
+      if (dropped > 0) {
+        existing = rewrite(live);
+      }
+    }
+
+    long looseBytes = 0;
+    long packSizeBefore = Files.exists(packFile) ? Files.size(packFile) : 0;
+    if (!loose.isEmpty()) {
+      try (var channel = FileChannel.open(
+          packFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        if (channel.size() == 0) {
+          channel.write(header(PACK_MAGIC), 0);
+        }
+        var position = channel.size();
+        for (var file : loose) {
+          var content = Files.readAllBytes(file);
+          looseBytes += content.length;
+          var buffer = encode(key(cacheDir, file), content);
+          existing.put(key(cacheDir, file), position);
+          position += write(channel, buffer, position);
+        }
+        channel.force(true);
+      }
+    }
+
+    if (!loose.isEmpty() || dropped > 0) {
+      writeIndex(existing);
+      // Only now that the index points at the packed copies can the loose files go
+      for (var file : loose) {
+        Files.deleteIfExists(file);
+        deleteEmptyParents(file.getParent());
+      }
+      index = null;
+    }
+
+    var packSizeAfter = Files.exists(packFile) ? Files.size(packFile) : 0;
+    return new RepackResult(
+        loose.size(), dropped, existing.size(), looseBytes - (packSizeAfter - packSizeBefore));
+  }
+
+  /**
+   * Checks every record's CRC and returns the keys of damaged ones ("@offset" when not even
+   * the key is readable). Passing the result to {@link #repack} drops them.
+   */
+  public synchronized List<String> verify() throws IOException {
+    var damaged = new ArrayList<String>();
+    if (!Files.exists(packFile)) {
+      return damaged;
+    }
+    index = null;
+    var unreadable = new ArrayList<Long>();
+    var offsets = readAll(unreadable);
+    unreadable.forEach(offset -> damaged.add("@" + offset));
+    try (var channel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+      for (var e : offsets.entrySet()) {
+        try {
+          inflate(readRecord(channel, e.getValue()));
+        } catch (DataFormatException ex) {
+          damaged.add(e.getKey());
+        }
+      }
+    }
+    return damaged;
+  }
+
+  private String lookup(String key) throws IOException, DataFormatException {
+    if (index == null && !mapIndex()) {
+      return null;
+    }
+
+    var hash = hash(key);
+    int low = 0;
+    int high = indexCount - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (hashAt(mid) < hash) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    try (var channel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+      for (int i = low; i < indexCount && hashAt(i) == hash; i++) {
+        var record = readRecord(channel, index.getLong(entryOffset(i) + 8));
+        if (record != null && record.key().equals(key)) {
+          return new String(inflate(record), StandardCharsets.UTF_8);
+        }
+      }
+    }
+    return null;
+  }
+
+  private boolean mapIndex() throws IOException {
+    indexStamp = stamp(indexFile);
+    if (!Files.exists(indexFile) || !Files.exists(packFile)) {
+      return false;
+    }
+    try (var channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < INDEX_HEADER_SIZE
+          || buffer.getInt(0) != INDEX_MAGIC
+          || buffer.getInt(4) != FORMAT_VERSION) {
+        return false;
+      }
+      var count = buffer.getInt(8);
+      if (INDEX_HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > buffer.capacity()) {
+        return false;
+      }
+      index = buffer;
+      indexCount = count;
+      return true;
+    }
+  }
+
+  private long hashAt(int i) {
+    return index.getLong(entryOffset(i));
+  }
+
+  private static int entryOffset(int i) {
+    return INDEX_HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+  }
+
+  /**
+   * Reads the record at an offset, or null if the offset does not start a record.
+   */
+  private static Record readRecord(FileChannel channel, long offset) throws IOException {
+    var head = ByteBuffer.allocate(2);
+    if (channel.read(head, offset) != 2) {
+      return null;
+    }
+    var keyLength = head.getShort(0) & 0xFFFF;
+    if (keyLength == 0) {
+      return null;
+    }
+    var fixed = ByteBuffer.allocate(keyLength + RECORD_FIXED_SIZE - 2);
+    if (channel.read(fixed, offset + 2) != fixed.capacity()) {
+      return null;
+    }
+    fixed.flip();
+    var keyBytes = new byte[keyLength];
+    fixed.get(keyBytes);
+    var crc = fixed.getInt();
+    var length = fixed.getInt();
+    var deflatedLength = fixed.getInt();
+    var end = offset + 2 + fixed.capacity() + (long) deflatedLength;
+    if (length < 0
+        || deflatedLength < 0
+        || end > channel.size()
+        || length > (long) deflatedLength * MAX_DEFLATE_RATIO + 64) {
+      return null; // not a record: torn write or damage
+    }
+    var deflated = ByteBuffer.allocate(deflatedLength);
+    if (channel.read(deflated, offset + 2 + fixed.capacity()) != deflatedLength) {
+      return null;
+    }
+    return new Record(
+        new String(keyBytes, StandardCharsets.UTF_8), crc, length, deflated.array());
+  }
+
+  private static byte[] inflate(Record record) throws DataFormatException {
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(record.deflated());
+      var content = new byte[record.length()];
+      var filled = 0;
+      while (filled < content.length && !inflater.finished()) {
+        var n = inflater.inflate(content, filled, content.length - filled);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        filled += n;
+      }
+      var crc = new CRC32();
+      crc.update(content, 0, filled);
+      if (filled != content.length || (int) crc.getValue() != record.crc()) {
+        throw new DataFormatException("checksum mismatch for " + record.key());
+      }
+      return content;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static ByteBuffer encode(String key, byte[] content) {
+    var crc = new CRC32();
+    crc.update(content);
+
+    var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    var deflated = new ByteArrayOutputStream(content.length / 3 + 64);
+    try {
+      deflater.setInput(content);
+      deflater.finish();
+      var chunk = new byte[8192];
+      while (!deflater.finished()) {
+        deflated.write(chunk, 0, deflater.deflate(chunk));
+      }
+    } finally {
+      deflater.end();
+    }
+
+    var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    var buffer = ByteBuffer.allocate(keyBytes.length + RECORD_FIXED_SIZE + deflated.size());
+    buffer.putShort((short) keyBytes.length);
+    buffer.put(keyBytes);
+    buffer.putInt((int) crc.getValue());
+    buffer.putInt(content.length);
+    buffer.putInt(deflated.size());
+    buffer.put(deflated.toByteArray());
+    return buffer.flip();
+  }
+
+  private static long write(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    long written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer, position + written);
+    }
+    return written;
+  }
+
+  /**
+   * Returns key to record offset for every readable record. The index is authoritative when
+   * present, so one damaged record does not hide the ones after it; without an index the data
+   * file is scanned (later records win, and a torn tail ends the scan).
+   *
+   * @param unreadable collects indexed offsets that do not hold a readable record
+   */
+  private Map<String, Long> readAll(List<Long> unreadable) throws IOException {
+    var offsets = new LinkedHashMap<String, Long>();
+    if (!Files.exists(packFile)) {
+      return offsets;
+    }
+    try (var channel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+      var header = ByteBuffer.allocate(HEADER_SIZE);
+      if (channel.read(header, 0) != HEADER_SIZE
+          || header.getInt(0) != PACK_MAGIC
+          || header.getInt(4) != FORMAT_VERSION) {
+        throw new IOException("Unrecognized POM pack " + packFile + "; delete it to rebuild");
+      }
+
+      if (index != null || mapIndex()) {
+        for (int i = 0; i < indexCount; i++) {
+          var offset = index.getLong(entryOffset(i) + 8);
+          var record = offset >= HEADER_SIZE ? readRecord(channel, offset) : null;
+          if (record == null) {
+            unreadable.add(offset);
+          } else {
+            offsets.put(record.key(), offset);
+          }
+        }
+        return offsets;
+      }
+
+      var size = channel.size();
+      long position = HEADER_SIZE;
+      while (position < size) {
+        var record = readRecord(channel, position);
+        if (record == null) {
+          UserOutput.debug("Ignoring unreadable POM pack tail at offset " + position);
+          break;
+        }
+        offsets.put(record.key(), position);
+        position += RECORD_FIXED_SIZE
+            + record.key().getBytes(StandardCharsets.UTF_8).length
+            + record.deflated().length;
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Writes a new pack holding only the given records and returns their new offsets.
+   */
+  private Map<String, Long> rewrite(Map<String, Long> live) throws IOException {
+    var offsets = new LinkedHashMap<String, Long>();
+    var temp = packFile.resolveSibling(PACK_FILE_NAME + "." + ProcessHandle.current().pid());
+    try (var in = FileChannel.open(packFile, StandardOpenOption.READ);
+        var out = FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      long position = write(out, header(PACK_MAGIC), 0);
+      for (var e : live.entrySet()) {
+        var record = readRecord(in, e.getValue());
+        if (record == null) {
+          continue;
+        }
+        var keyBytes = record.key().getBytes(StandardCharsets.UTF_8);
+        var buffer = ByteBuffer.allocate(
+            keyBytes.length + RECORD_FIXED_SIZE + record.deflated().length);
+        buffer.putShort((short) keyBytes.length).put(keyBytes);
+        buffer.putInt(record.crc()).putInt(record.length()).putInt(record.deflated().length);
+        buffer.put(record.deflated()).flip();
+        offsets.put(record.key(), position);
+        position += write(out, buffer, position);
+      }
+      out.force(true);
+    }
+    Files.move(
+        temp, packFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return offsets;
+  }
+
+  private void writeIndex(Map<String, Long> offsets) throws IOException {
+    var entries = new ArrayList<long[]>(offsets.size());
+    offsets.forEach((key, offset) -> entries.add(new long[] {hash(key), offset}));
+    entries.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+
+    var buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE + entries.size() * INDEX_ENTRY_SIZE);
+    buffer.putInt(INDEX_MAGIC).putInt(FORMAT_VERSION).putInt(entries.size());
+    for (var e : entries) {
+      buffer.putLong(e[0]).putLong(e[1]);
+    }
+
+    var temp = indexFile.resolveSibling(INDEX_FILE_NAME + "." + ProcessHandle.current().pid());
+    Files.write(temp, buffer.array());
+    Files.move(
+        temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private List<Path> loosePoms() throws IOException {
+    if (!Files.isDirectory(cacheDir)) {
+      return List.of();
+    }
+    try (Stream<Path> stream = Files.walk(cacheDir)) {
+      return stream
+          .filter(p -> p.getFileName().toString().endsWith(".pom"))
+          .filter(p -> cacheDir.relativize(p).getNameCount() >= 4)
+          .filter(Files::isRegularFile)
+          .toList();
+    }
+  }
+
+  private void deleteEmptyParents(Path dir) throws IOException {
+    while (dir != null && !dir.equals(cacheDir)) {
+      try (Stream<Path> entries = Files.list(dir)) {
+        if (entries.findAny().isPresent()) {
+          return;
+        }
+      }
+      Files.delete(dir);
+      dir = dir.getParent();
+    }
+  }
+
+  private static ByteBuffer header(int magic) {
+    return ByteBuffer.allocate(HEADER_SIZE).putInt(magic).putInt(FORMAT_VERSION).flip();
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-8 key.
+   */
+  private static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (var b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static String stamp(Path file) {
+    try {
+      return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return "missing";
+    }
+  }
+}
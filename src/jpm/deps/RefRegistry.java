@@ -0,0 +1,105 @@
+package jpm.deps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import jpm.config.ProjectPaths;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Records which cached artifact versions each project on this machine uses, so shared cache
+ * entries are only deleted (by `jpm cache gc --unreferenced`) once no project needs them.
+ *
+ * One file per project under ~/.jpm/refs/, named after a hash of the project path: the first
+ * line is the project path, followed by one "group:artifact:version" per line. It is rewritten
+ * whenever the project's lockfile is saved.
+ */
+public final class RefRegistry {
+
+  private RefRegistry() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Replaces the references of a project.
+   */
+  public static void register(File projectDir, Collection<String> versions) throws IOException {
+    var content = new StringBuilder(projectPath(projectDir)).append('\n');
+    new TreeSet<>(versions).forEach(v -> content.append(v).append('\n'));
+    FileUtils.writeFileAtomically(refsFile(projectDir), content.toString());
+  }
+
+  /**
+   * Drops a project's references to all versions of one artifact.
+   */
+  public static void dropArtifact(File projectDir, String groupId, String artifactId)
+      throws IOException {
+    var file = refsFile(projectDir);
+    if (!Files.exists(file)) {
+      return;
+    }
+    var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    var prefix = groupId + ":" + artifactId + ":";
+    var kept = lines.stream().skip(1).filter(line -> !line.startsWith(prefix)).toList();
+    if (kept.size() != lines.size() - 1) {
+      register(projectDir, kept);
+    }
+  }
+
+  /**
+   * Returns every artifact version referenced by a project that still exists.
+   * References of projects whose directory or jpm.toml is gone are deleted.
+   */
+  public static Set<String> referencedVersions() throws IOException {
+    var referenced = new HashSet<String>();
+    var dir = refsDir();
+    if (!Files.isDirectory(dir)) {
+      return referenced;
+    }
+
+    List<Path> files;
+    try (Stream<Path> stream = Files.list(dir)) {
+      files = stream.filter(Files::isRegularFile).toList();
+    }
+    for (var file : files) {
+      var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (lines.isEmpty() || !new File(lines.get(0), ProjectPaths.CONFIG_FILE).isFile()) {
+        UserOutput.debug("Dropping references of removed project " + file.getFileName());
+        Files.deleteIfExists(file);
+        continue;
+      }
+      lines.stream().skip(1).filter(line -> !line.isBlank()).forEach(referenced::add);
+    }
+    return referenced;
+  }
+
+  private static Path refsDir() {
+    return FileUtils.getJpmHome().toPath().resolve("refs");
+  }
+
+  private static Path refsFile(File projectDir) throws IOException {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256")
+          .digest(projectPath(projectDir).getBytes(StandardCharsets.UTF_8));
+      return refsDir().resolve(HexFormat.of().formatHex(digest, 0, 8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 not available", e);
+    }
+  }
+
+  private static String projectPath(File projectDir) throws IOException {
+    return projectDir.getCanonicalPath();
+  }
+}
@@ -0,0 +1,221 @@
+package jpm.deps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import jpm.config.ProjectPaths;
+import jpm.utils.Constants;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Remembers the outcome of the last dependency resolution in target/.jpm-state, so an
+ * unchanged project skips parsing jpm.lock and checking every JAR.
+ *
+ * The state holds size, modification time and SHA-256 of jpm.toml and jpm.lock, the time of
+ * the last cache eviction, the cache layers in use, and the resolved dependencies. It is
+ * current when both files still match (by size and mtime, or by hash after a touch or
+ * checkout) and nothing was evicted from the cache since.
+ *
+ * File format (one record per line):
+ * <pre>
+ *   format 1
+ *   toml &lt;size&gt; &lt;mtime&gt; &lt;sha256&gt;
+ *   lock &lt;size&gt; &lt;mtime&gt; &lt;sha256&gt;
+ *   evicted &lt;mtime&gt;
+ *   layers &lt;JPM_CACHE_LAYERS&gt;
+ *   dep &lt;group:artifact:version&gt; &lt;jar path&gt;
+ * </pre>
+ */
+public final class ResolutionState {
+
+  public static final String STATE_FILE = ProjectPaths.TARGET_DIR + "/.jpm-state";
+
+  private static final String FORMAT = "format 1";
+
+  /** The state file as last read, reused while it is unchanged (in the build daemon). */
+  private record Snapshot(Path file, long size, long lastModified, List<String> lines) {}
+
+  private static volatile Snapshot lastRead;
+
+  private ResolutionState() {
+    // Prevent instantiation
+  }
+
+  private enum Match { SAME, SAME_CONTENT, CHANGED }
+
+  private record Fingerprint(long size, long mtime, String sha256) {
+
+    String format() {
+      return size + " " + mtime + " " + sha256;
+    }
+
+    static Fingerprint parse(String value) {
+      var parts = value.split(" ");
+      if (parts.length != 3) {
+        return null;
+      }
+      return new Fingerprint(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+    }
+  }
+
+  /**
+   * Returns the dependencies of the last resolution if jpm.toml, jpm.lock and the cache are
+   * unchanged since, or null if dependencies must be resolved through the lockfile.
+   */
+  public static List<ResolvedDependency> loadIfCurrent(File projectDir) {
+    var stateFile = new File(projectDir, STATE_FILE).toPath();
+    List<String> lines;
+    try {
+      lines = readLines(stateFile);
+    } catch (IOException e) {
+      return null;
+    }
+    if (lines.isEmpty() || !FORMAT.equals(lines.get(0))) {
+      return null;
+    }
+
+    try {
+      var deps = new ArrayList<ResolvedDependency>();
+      var rehashed = false;
+      for (var line : lines.subList(1, lines.size())) {
+        var space = line.indexOf(' ');
+        var field = space < 0 ? line : line.substring(0, space);
+        var value = space < 0 ? "" : line.substring(space + 1);
+        switch (field) {
+          case "toml", "lock" -> {
+            var name = "toml".equals(field) ? ProjectPaths.CONFIG_FILE : ProjectPaths.LOCK_FILE;
+            var recorded = Fingerprint.parse(value);
+            var match = matches(new File(projectDir, name).toPath(), recorded);
+            if (match == Match.CHANGED) {
+              UserOutput.debug(name + " changed since the last resolution");
+              return null;
+            }
+            rehashed |= match == Match.SAME_CONTENT;
+          }
+          case "evicted" -> {
+            if (Long.parseLong(value) != evictionTime()) {
+              UserOutput.debug("Cache entries were evicted since the last resolution");
+              return null;
+            }
+          }
+          case "layers" -> {
+            if (!value.equals(Objects.toString(System.getenv(Constants.CACHE_LAYERS_ENV), ""))) {
+              return null;
+            }
+          }
+          case "dep" -> {
+            var parts = value.split(" ", 2);
+            var gav = parts[0].split(":");
+            if (parts.length != 2 || gav.length != 3) {
+              return null;
+            }
+            deps.add(new ResolvedDependency(gav[0], gav[1], gav[2], new File(parts[1])));
+          }
+          default -> {
+            return null;
+          }
+        }
+      }
+
+      // Refresh the recorded mtimes so the next run does not hash again
+      if (rehashed) {
+        save(projectDir, deps);
+      }
+      var journal = AccessJournal.shared();
+      deps.forEach(d -> journal.hit(d.groupId(), d.artifactId(), d.version()));
+      return deps;
+    } catch (IOException | RuntimeException e) {
+      UserOutput.debug("Ignoring unreadable " + STATE_FILE + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Records the dependencies just resolved together with the current fingerprints.
+   * Failures are not fatal: the next build simply goes through the lockfile again.
+   */
+  public static void save(File projectDir, List<ResolvedDependency> deps) {
+    try {
+      var content = new StringBuilder(FORMAT).append('\n');
+      content.append("toml ").append(fingerprint(projectDir, ProjectPaths.CONFIG_FILE).format())
+          .append('\n');
+      content.append("lock ").append(fingerprint(projectDir, ProjectPaths.LOCK_FILE).format())
+          .append('\n');
+      content.append("evicted ").append(evictionTime()).append('\n');
+      content.append("layers ")
+          .append(Objects.toString(System.getenv(Constants.CACHE_LAYERS_ENV), ""))
+          .append('\n');
+      for (var dep : deps) {
+        content.append("dep ").append(dep).append(' ')
+            .append(dep.jarFile().getAbsolutePath()).append('\n');
+      }
+      var stateFile = new File(projectDir, STATE_FILE);
+      FileUtils.ensureDirectory(stateFile.getParentFile());
+      FileUtils.writeFileAtomically(stateFile, content.toString());
+    } catch (IOException e) {
+      UserOutput.debug("Could not write " + STATE_FILE + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Deletes the state so the next build resolves through the lockfile.
+   */
+  public static void invalidate(File projectDir) {
+    new File(projectDir, STATE_FILE).delete();
+  }
+
+  private static List<String> readLines(Path stateFile) throws IOException {
+    var file = stateFile.toAbsolutePath();
+    var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    var snapshot = lastRead;
+    if (snapshot != null && snapshot.file().equals(file) && snapshot.size() == attrs.size()
+        && snapshot.lastModified() == attrs.lastModifiedTime().toMillis()) {
+      return snapshot.lines();
+    }
+    var lines = List.copyOf(Files.readAllLines(file, StandardCharsets.UTF_8));
+    lastRead = new Snapshot(file, attrs.size(), attrs.lastModifiedTime().toMillis(), lines);
+    return lines;
+  }
+
+  /**
+   * Compares a file against its recorded fingerprint. The content is only hashed when the
+   * size matches but the modification time does not.
+   */
+  private static Match matches(Path file, Fingerprint recorded) throws IOException {
+    if (recorded == null) {
+      return Match.CHANGED;
+    }
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return Match.CHANGED;
+    }
+    if (attrs.size() != recorded.size()) {
+      return Match.CHANGED;
+    }
+    if (attrs.lastModifiedTime().toMillis() == recorded.mtime()) {
+      return Match.SAME;
+    }
+    return FileUtils.sha256(file).equals(recorded.sha256()) ? Match.SAME_CONTENT : Match.CHANGED;
+  }
+
+  private static Fingerprint fingerprint(File projectDir, String name) throws IOException {
+    var file = new File(projectDir, name).toPath();
+    var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    return new Fingerprint(
+        attrs.size(), attrs.lastModifiedTime().toMillis(), FileUtils.sha256(file));
+  }
+
+  private static long evictionTime() {
+    return CacheIndex.evictionStamp().toFile().lastModified();
+  }
+}
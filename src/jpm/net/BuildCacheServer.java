@@ -0,0 +1,136 @@
+package jpm.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import jpm.build.DirectoryBuildCache;
+import jpm.build.RemoteBuildCache;
+import jpm.utils.UserOutput;
+
+/**
+ * HTTP front for a {@link DirectoryBuildCache}: GET /&lt;key&gt; serves an entry, PUT
+ * /&lt;key&gt; stores one after checking its checksum. Concurrent uploads of the same key
+ * each write their own temporary file; the last complete one wins.
+ */
+public class BuildCacheServer {
+
+  private final DirectoryBuildCache storage;
+  private final boolean readOnly;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong uploads = new AtomicLong();
+
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * @param storage directory the entries are kept in
+   * @param readOnly whether uploads are refused
+   */
+  public BuildCacheServer(DirectoryBuildCache storage, boolean readOnly) {
+    this.storage = storage;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * Starts serving on the given address. Each request is handled on its own virtual thread.
+   *
+   * @param address address to bind (port 0 picks a free port)
+   * @throws IOException if the server cannot bind
+   */
+  public void start(InetSocketAddress address) throws IOException {
+    executor = Executors.newVirtualThreadPerTaskExecutor();
+    server = HttpServer.create(address, 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Stops the server, waiting at most the given number of seconds for open exchanges.
+   */
+  public void stop(int delaySeconds) {
+    if (server != null) {
+      server.stop(delaySeconds);
+      executor.close();
+      server = null;
+    }
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getUploads() {
+    return uploads.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      var path = exchange.getRequestURI().getPath();
+      var key = path.substring(path.lastIndexOf('/') + 1);
+      if (!RemoteBuildCache.isValidKey(key)) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      switch (exchange.getRequestMethod()) {
+        case "GET", "HEAD" -> get(exchange, key);
+        case "PUT" -> put(exchange, key);
+        default -> {
+          exchange.getResponseHeaders().add("Allow", readOnly ? "GET, HEAD" : "GET, HEAD, PUT");
+          exchange.sendResponseHeaders(405, -1);
+        }
+      }
+    } catch (IOException e) {
+      UserOutput.debug("Build cache request failed: " + e.getMessage());
+    }
+  }
+
+  private void get(HttpExchange exchange, String key) throws IOException {
+    try (var in = storage.open(key)) {
+      if (in == null) {
+        misses.incrementAndGet();
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      hits.incrementAndGet();
+      exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+      if (exchange.getRequestMethod().equals("HEAD")) {
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, 0);
+      in.transferTo(exchange.getResponseBody());
+    }
+  }
+
+  private void put(HttpExchange exchange, String key) throws IOException {
+    if (readOnly) {
+      exchange.sendResponseHeaders(403, -1);
+      return;
+    }
+    try {
+      storage.store(key, exchange.getRequestBody());
+    } catch (IOException e) {
+      // Damaged or truncated upload; the client sees the failure and stores nothing
+      UserOutput.debug("Rejected upload of " + key + ": " + e.getMessage());
+      exchange.sendResponseHeaders(400, -1);
+      return;
+    }
+    uploads.incrementAndGet();
+    exchange.sendResponseHeaders(201, -1);
+  }
+}
@@ -0,0 +1,354 @@
+package jpm.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import jpm.deps.BlobStore;
+import jpm.deps.CacheIndex;
+import jpm.deps.CacheLock;
+import jpm.deps.PomPack;
+import jpm.utils.FileUtils;
+import jpm.utils.UserOutput;
+
+/**
+ * Caching proxy repository that serves the local artifact cache over HTTP in Maven layout.
+ * Cache misses are fetched from the upstream repository, stored in the cache and then served.
+ * Concurrent misses for the same path share a single upstream download.
+ *
+ * POMs are served from the loose files or, once gc or repack moved them there, from the
+ * cache's POM pack. Downloads take the same artifact lock and index entry as a build's, so a
+ * gc never sees half a download. Cache-internal files (names starting with a dot, such as
+ * the index, the access journal or the pack) are not served.
+ */
+public class CacheServer {
+
+  private final Path cacheDir;
+  private final String upstreamUrl;
+  private final CacheIndex cacheIndex;
+  private final PomPack pomPack;
+  private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight =
+      new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public CacheServer(Path cacheDir, String upstreamUrl) {
+    this.cacheDir = cacheDir.toAbsolutePath().normalize();
+    this.upstreamUrl = upstreamUrl.endsWith("/") ? upstreamUrl : upstreamUrl + "/";
+    this.cacheIndex = new CacheIndex(this.cacheDir.toFile());
+    this.pomPack = new PomPack(this.cacheDir);
+  }
+
+  /**
+   * Starts serving on the given address. Each request is handled on its own virtual thread.
+   *
+   * @param address address to bind (port 0 picks a free port)
+   * @throws IOException if the server cannot bind
+   */
+  public void start(InetSocketAddress address) throws IOException {
+    executor = Executors.newVirtualThreadPerTaskExecutor();
+    server = HttpServer.create(address, 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Stops the server, waiting at most the given number of seconds for open exchanges.
+   */
+  public void stop(int delaySeconds) {
+    if (server != null) {
+      server.stop(delaySeconds);
+      executor.close();
+      server = null;
+    }
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      var method = exchange.getRequestMethod();
+      if (!"GET".equals(method) && !"HEAD".equals(method)) {
+        exchange.getResponseHeaders().add("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      var relativePath = toRelativePath(exchange.getRequestURI().getPath());
+      if (relativePath == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      var packed = readPackedPom(relativePath);
+      if (packed != null) {
+        hits.incrementAndGet();
+        sendBytes(exchange, relativePath, packed, "HEAD".equals(method));
+        return;
+      }
+
+      var file = lookup(relativePath);
+      if (file == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      try {
+        sendFile(exchange, file, "HEAD".equals(method));
+      } finally {
+        if (isMutableMetadata(relativePath)) {
+          Files.deleteIfExists(file);
+        }
+      }
+    } catch (IOException e) {
+      UserOutput.debug("Cache server request failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Maps a request path onto a path inside the cache directory.
+   * Returns null for paths that would escape the cache, that point at directories, or that
+   * name cache-internal files (any segment starting with a dot).
+   */
+  private String toRelativePath(String requestPath) {
+    var trimmed = requestPath.startsWith("/") ? requestPath.substring(1) : requestPath;
+    if (trimmed.isEmpty() || trimmed.endsWith("/")) {
+      return null;
+    }
+    var resolved = cacheDir.resolve(trimmed).normalize();
+    if (!resolved.startsWith(cacheDir) || resolved.equals(cacheDir)) {
+      return null;
+    }
+    var relative = cacheDir.relativize(resolved);
+    for (var segment : relative) {
+      if (segment.toString().startsWith(".")) {
+        return null;
+      }
+    }
+    return relative.toString().replace('\\', '/');
+  }
+
+  /**
+   * Returns a POM that only the pack holds (its loose file was packed by gc or repack), or
+   * null.
+   */
+  private byte[] readPackedPom(String relativePath) {
+    if (!relativePath.endsWith(".pom") || Files.isRegularFile(cacheDir.resolve(relativePath))) {
+      return null;
+    }
+    var content = pomPack.read(relativePath);
+    return content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the cached file for the path, fetching it from upstream on a miss.
+   */
+  private Path lookup(String relativePath) throws IOException {
+    if (isMutableMetadata(relativePath)) {
+      // maven-metadata.xml changes upstream, so it is proxied per request and never kept
+      misses.incrementAndGet();
+      return fetchUpstream(relativePath);
+    }
+
+    var cached = cacheDir.resolve(relativePath);
+    if (Files.isRegularFile(cached)) {
+      hits.incrementAndGet();
+      return cached;
+    }
+
+    misses.incrementAndGet();
+    var future = new CompletableFuture<Path>();
+    var existing = inFlight.putIfAbsent(relativePath, future);
+    if (existing != null) {
+      return await(existing);
+    }
+
+    try {
+      future.complete(fetchUpstream(relativePath));
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    } finally {
+      inFlight.remove(relativePath, future);
+    }
+    return await(future);
+  }
+
+  private Path fetchUpstream(String relativePath) {
+    var target = cacheDir.resolve(relativePath);
+    try {
+      if (isMutableMetadata(relativePath)) {
+        return download(relativePath, target.getParent());
+      }
+
+      // The same lock a build holds while downloading this artifact, so neither sees the
+      // other's temporary file and a gc waits for the download
+      var coordinates = Coordinates.parse(relativePath);
+      var lockKey = coordinates == null ? relativePath : coordinates.gav();
+      try (var lock = CacheLock.artifact(lockKey)) {
+        if (Files.isRegularFile(target)) {
+          return target;
+        }
+        var temp = download(relativePath, target.getParent());
+        if (temp == null) {
+          return null;
+        }
+        if (relativePath.endsWith(".jar")) {
+          var sha256 = new BlobStore().adopt(temp);
+          Files.move(
+              temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          FileUtils.writeFileAtomically(
+              new File(target + BlobStore.CHECKSUM_SUFFIX), sha256);
+          if (coordinates != null && coordinates.extension().equals("jar")) {
+            cacheIndex.record(coordinates.groupId(), coordinates.artifactId(),
+                coordinates.version(), coordinates.extension(), target.toFile(), sha256);
+            cacheIndex.flush();
+          }
+        } else {
+          Files.move(
+              temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+      }
+      UserOutput.debug("Cached " + relativePath + " from upstream");
+      return target;
+    } catch (IOException e) {
+      UserOutput.debug("Upstream fetch failed for " + relativePath + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Downloads a path from upstream into a temporary file in the directory, or returns null if
+   * upstream does not have it.
+   */
+  private Path download(String relativePath, Path dir) throws IOException {
+    Files.createDirectories(dir);
+    var temp = Files.createTempFile(dir, ".download-", ".tmp");
+    if (!HttpClientManager.downloadFile(upstreamUrl + relativePath, temp)) {
+      Files.deleteIfExists(temp);
+      return null;
+    }
+    return temp;
+  }
+
+  /**
+   * Coordinates of a cache path of the form group/path/artifact/version/artifact-version.ext;
+   * files with a classifier have none.
+   */
+  private record Coordinates(
+      String groupId, String artifactId, String version, String extension) {
+
+    static Coordinates parse(String relativePath) {
+      var segments = relativePath.split("/");
+      if (segments.length < 4) {
+        return null;
+      }
+      var version = segments[segments.length - 2];
+      var artifactId = segments[segments.length - 3];
+      var prefix = artifactId + "-" + version + ".";
+      var fileName = segments[segments.length - 1];
+      if (!fileName.startsWith(prefix) || fileName.length() == prefix.length()) {
+        return null;
+      }
+      var groupId = String.join(".", Arrays.asList(segments).subList(0, segments.length - 3));
+      return new Coordinates(groupId, artifactId, version, fileName.substring(prefix.length()));
+    }
+
+    String gav() {
+      return groupId + ":" + artifactId + ":" + version;
+    }
+  }
+
+  private Path await(CompletableFuture<Path> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for upstream download", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Upstream download failed", e.getCause());
+    }
+  }
+
+  /**
+   * Streams a file into the response. FileChannel.transferTo lets the JDK use the cheapest copy
+   * path it has for the target channel instead of staging bytes through a user-space buffer.
+   */
+  private void sendFile(HttpExchange exchange, Path file, boolean headOnly) throws IOException {
+    var headers = exchange.getResponseHeaders();
+    headers.set("Content-Type", contentType(file.getFileName().toString()));
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var size = channel.size();
+      if (headOnly || size == 0) {
+        headers.set("Content-Length", Long.toString(size));
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, size);
+
+      var out = Channels.newChannel(exchange.getResponseBody());
+      var position = 0L;
+      while (position < size) {
+        position += channel.transferTo(position, size - position, out);
+      }
+    }
+  }
+
+  private void sendBytes(
+      HttpExchange exchange, String relativePath, byte[] content, boolean headOnly)
+      throws IOException {
+    var headers = exchange.getResponseHeaders();
+    headers.set("Content-Type", contentType(relativePath));
+    if (headOnly) {
+      headers.set("Content-Length", Integer.toString(content.length));
+      exchange.sendResponseHeaders(200, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(200, content.length);
+    exchange.getResponseBody().write(content);
+  }
+
+  private static boolean isMutableMetadata(String relativePath) {
+    var name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+    return name.startsWith("maven-metadata.xml");
+  }
+
+  private static String contentType(String fileName) {
+    if (fileName.endsWith(".jar")) {
+      return "application/java-archive";
+    }
+    if (fileName.endsWith(".pom") || fileName.endsWith(".xml")) {
+      return "application/xml";
+    }
+    return "application/octet-stream";
+  }
+}
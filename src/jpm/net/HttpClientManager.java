@@ -68,6 +68,52 @@ public class HttpClientManager {
     }
   }
 
+  /**
+   * Response of a conditional GET. A 304 status carries no body: the caller's copy is current.
+   */
+  public record ConditionalResponse(
+      int statusCode, String body, String etag, String lastModified) {
+
+    public boolean notModified() {
+      return statusCode == 304;
+    }
+  }
+
+  /**
+   * Send a GET request that the server may answer with 304 Not Modified.
+   *
+   * @param url The URL to fetch
+   * @param etag ETag of the cached copy, or null
+   * @param lastModified Last-Modified of the cached copy, or null
+   * @return The response; status 200 or 304
+   * @throws IOException If the request fails or returns any other status code
+   * @throws InterruptedException If the request is interrupted
+   */
+  public static ConditionalResponse sendConditionalGet(String url, String etag, String lastModified)
+      throws IOException, InterruptedException {
+    var builder = java.net.http.HttpRequest.newBuilder()
+        .uri(java.net.URI.create(url))
+        .timeout(TIMEOUT)
+        .GET();
+    if (etag != null) {
+      builder.header("If-None-Match", etag);
+    }
+    if (lastModified != null) {
+      builder.header("If-Modified-Since", lastModified);
+    }
+
+    var response = getClient().send(
+        builder.build(), java.net.http.HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200 && response.statusCode() != 304) {
+      throw new IOException("Request failed with status: " + response.statusCode());
+    }
+    return new ConditionalResponse(
+        response.statusCode(),
+        response.body(),
+        response.headers().firstValue("ETag").orElse(etag),
+        response.headers().firstValue("Last-Modified").orElse(lastModified));
+  }
+
   /**
    * Download a file from a URL to a local path.
    *
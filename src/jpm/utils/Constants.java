@@ -2,6 +2,16 @@ package jpm.utils;
 
 public class Constants {
   public static final String MAVEN_CENTRAL = "https://repo1.maven.org/maven2/";
+  public static final String MIRROR_ENV = "JPM_MIRROR";
+  public static final String CACHE_LAYERS_ENV = "JPM_CACHE_LAYERS";
+  public static final String COMPILER_ENV = "JPM_COMPILER";
+  public static final String BUILD_CACHE_MAX_SIZE_ENV = "JPM_BUILD_CACHE_MAX_SIZE";
+  public static final String BUILD_CACHE_REMOTE_ENV = "JPM_BUILD_CACHE_REMOTE";
+  public static final String BUILD_CACHE_PUSH_ENV = "JPM_BUILD_CACHE_PUSH";
+  public static final long DEFAULT_BUILD_CACHE_MAX_SIZE = 2L << 30;
+  public static final int DEFAULT_CACHE_SERVER_PORT = 8585;
+  public static final int DEFAULT_BUILD_CACHE_SERVER_PORT = 8586;
+  public static final int DEFAULT_DAEMON_IDLE_MINUTES = 30;
   public static final int DEFAULT_TIMEOUT_SECONDS = 30;
   public static final String DEFAULT_JAVA_VERSION = "21";
   public static final String JUNIT_VERSION = "5.11.3";
@@ -2,8 +2,15 @@ package jpm.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -83,4 +90,45 @@ public final class FileCollector {
           .collect(Collectors.toList());
     }
   }
+
+  /**
+   * Finds relative paths of files with the given extension under a root directory, without
+   * descending into the excluded directories (e.g. a test root nested in the main root).
+   *
+   * @param rootDir directory to search
+   * @param extension file extension including dot (e.g., ".java")
+   * @param excludedDirs directories whose subtrees are skipped
+   * @return list of relative paths from rootDir
+   * @throws IOException if file traversal fails
+   */
+  public static List<String> findRelativePathsByExtension(
+      File rootDir, String extension, Collection<File> excludedDirs) throws IOException {
+
+    if (rootDir == null || !rootDir.exists()) {
+      return Collections.emptyList();
+    }
+
+    var rootPath = rootDir.toPath().toAbsolutePath().normalize();
+    var excluded = new HashSet<Path>();
+    for (var dir : excludedDirs) {
+      excluded.add(dir.toPath().toAbsolutePath().normalize());
+    }
+
+    var paths = new ArrayList<String>();
+    Files.walkFileTree(rootPath, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        return excluded.contains(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile() && file.toString().endsWith(extension)) {
+          paths.add(rootPath.relativize(file).toString());
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return paths;
+  }
 }
@@ -5,8 +5,13 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 public class FileUtils {
@@ -76,6 +81,26 @@ public class FileUtils {
     writeFile(Path.of(path), content);
   }
 
+  /**
+   * Writes a file through a temp file and an atomic rename, so concurrent readers
+   * (other jpm processes sharing the cache) never observe a partially written file.
+   */
+  public static void writeFileAtomically(Path path, String content) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    ensureDirectory(parent);
+    Path temp = Files.createTempFile(parent, "." + path.getFileName(), ".tmp");
+    try {
+      Files.writeString(temp, content, StandardCharsets.UTF_8);
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  public static void writeFileAtomically(File file, String content) throws IOException {
+    writeFileAtomically(file.toPath(), content);
+  }
+
   public static String readFile(Path path) throws IOException {
     return Files.readString(path, StandardCharsets.UTF_8);
   }
@@ -97,9 +122,153 @@ public class FileUtils {
     return new File(getJpmHome(), "cache");
   }
 
+  public static File getMetadataDir() {
+    return new File(getJpmHome(), "metadata");
+  }
+
+  public static File getBlobStoreDir() {
+    return new File(getJpmHome(), "blobs");
+  }
+
+  public static File getBuildCacheDir() {
+    return new File(getJpmHome(), "build-cache");
+  }
+
+  public static File getBuildCacheServerDir() {
+    return new File(getJpmHome(), "build-cache-server");
+  }
+
+  public static File getLocksDir() {
+    return new File(getJpmHome(), "locks");
+  }
+
+  public static File getQuarantineDir() {
+    return new File(getJpmHome(), "quarantine");
+  }
+
   public static File getDependencyDir(String groupId, String artifactId, String version) {
     String groupPath = groupId.replace('.', File.separatorChar);
     return new File(
         getCacheDir(), groupPath + File.separator + artifactId + File.separator + version);
   }
+
+  /**
+   * Computes the SHA-256 digest of a file as lowercase hex.
+   */
+  public static String sha256(Path path) throws IOException {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      var buffer = new byte[64 * 1024];
+      try (var in = Files.newInputStream(path)) {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * How {@link #linkOrCopy} placed a file.
+   */
+  public enum Placement {
+    HARDLINK,
+    REFLINK,
+    COPY
+  }
+
+  /**
+   * Places source at target as a hardlink. Across devices (where links are impossible) a
+   * copy-on-write reflink is tried on Linux, and a plain copy is the last resort.
+   * An existing target is replaced.
+   */
+  public static Placement linkOrCopy(Path source, Path target) throws IOException {
+    Path parent = target.getParent();
+    if (parent != null) {
+      ensureDirectory(parent);
+    }
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, source);
+      return Placement.HARDLINK;
+    } catch (IOException | UnsupportedOperationException e) {
+      if (reflink(source, target)) {
+        return Placement.REFLINK;
+      }
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+      return Placement.COPY;
+    }
+  }
+
+  /**
+   * Clones a file with GNU cp --reflink=always (btrfs, XFS, ...). Returns false when the
+   * platform or filesystem cannot share extents.
+   */
+  private static boolean reflink(Path source, Path target) {
+    if (!System.getProperty("os.name", "").toLowerCase().contains("linux")) {
+      return false;
+    }
+    try {
+      var process = new ProcessBuilder(
+              "cp", "--reflink=always", source.toString(), target.toString())
+          .redirectErrorStream(true)
+          .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+          .start();
+      if (process.waitFor() == 0) {
+        return true;
+      }
+    } catch (IOException e) {
+      // No cp on PATH
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      Files.deleteIfExists(target);
+    } catch (IOException e) {
+      // Copy fallback replaces it anyway
+    }
+    return false;
+  }
+
+  /**
+   * Parses a size such as 500M or 5G (binary units, optional trailing B).
+   *
+   * @throws IllegalArgumentException if the value is not a size
+   */
+  public static long parseSize(String value) {
+    var matcher = Pattern.compile("(\\d+)([KMGT]?)B?").matcher(value.strip().toUpperCase());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException(
+          "Invalid size '" + value + "' (expected e.g. 500M, 5G)");
+    }
+    var amount = Long.parseLong(matcher.group(1));
+    var shift = switch (matcher.group(2)) {
+      case "K" -> 10;
+      case "M" -> 20;
+      case "G" -> 30;
+      case "T" -> 40;
+      default -> 0;
+    };
+    return amount << shift;
+  }
+
+  /**
+   * Formats a byte count for humans, e.g. "1.5 MB".
+   */
+  public static String formatSize(long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    var units = "KMGT";
+    double value = bytes;
+    int unit = -1;
+    while (value >= 1024 && unit < units.length() - 1) {
+      value /= 1024;
+      unit++;
+    }
+    return String.format("%.1f %sB", value, units.charAt(unit));
+  }
 }
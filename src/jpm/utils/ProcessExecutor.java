@@ -2,6 +2,8 @@ package jpm.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,6 +13,8 @@ import java.util.List;
  */
 public final class ProcessExecutor {
 
+  private static volatile boolean forwardOutput;
+
   private ProcessExecutor() {
     // Utility class - prevent instantiation
   }
@@ -20,6 +24,15 @@ public final class ProcessExecutor {
    */
   public record ExecutionResult(int exitCode, boolean success) {}
 
+  /**
+   * Makes processes write through System.out and System.err instead of inheriting this
+   * process's stdout and stderr. The build daemon redirects System.out to the client of each
+   * request, which inherited file descriptors would bypass.
+   */
+  public static void setForwardOutput(boolean forward) {
+    forwardOutput = forward;
+  }
+
   /**
    * Executes a process with the given command.
    *
@@ -30,7 +43,9 @@ public final class ProcessExecutor {
    */
   public static ExecutionResult execute(List<String> command, File workingDir) throws IOException {
     var pb = new ProcessBuilder(command);
-    pb.inheritIO();
+    if (!forwardOutput) {
+      pb.inheritIO();
+    }
 
     if (workingDir != null) {
       pb.directory(workingDir);
@@ -88,6 +103,13 @@ public final class ProcessExecutor {
     var process = pb.start();
 
     try {
+      if (forwardOutput) {
+        process.getOutputStream().close();
+        var stdout = Thread.ofVirtual().start(() -> pump(process.getInputStream(), System.out));
+        var stderr = Thread.ofVirtual().start(() -> pump(process.getErrorStream(), System.err));
+        stdout.join();
+        stderr.join();
+      }
       var exitCode = process.waitFor();
       return new ExecutionResult(exitCode, exitCode == 0);
     } catch (InterruptedException e) {
@@ -95,4 +117,13 @@ public final class ProcessExecutor {
       return new ExecutionResult(1, false);
     }
   }
+
+  private static void pump(InputStream in, PrintStream out) {
+    try (in) {
+      in.transferTo(out);
+      out.flush();
+    } catch (IOException e) {
+      // The process exited or the reader went away; waitFor() reports the outcome
+    }
+  }
 }
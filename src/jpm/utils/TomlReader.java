@@ -0,0 +1,472 @@
+package jpm.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming reader for the TOML subset jpm uses in jpm.toml and jpm.lock: tables, arrays of
+ * tables, strings, integers, floats, booleans, arrays and inline tables. Dates are rejected.
+ *
+ * Instead of building a document tree, the reader reports one event at a time, so callers map
+ * values straight into their records:
+ * <pre>
+ *   var toml = TomlReader.of(file);
+ *   for (var event = toml.next(); event != null; event = toml.next()) {
+ *     switch (event) {
+ *       case TABLE, ARRAY_TABLE -> section = toml.table();
+ *       case VALUE -> handle(section, toml.key(), toml.value());
+ *     }
+ *   }
+ * </pre>
+ *
+ * Values are String, Long, Double, Boolean, List of values, or Map of values (inline tables).
+ */
+public final class TomlReader {
+
+  /**
+   * What the reader stopped at.
+   */
+  public enum Event {
+    /** A [table] header; {@link #table()} holds its dotted name. */
+    TABLE,
+    /** A [[table]] header starting a new element of an array of tables. */
+    ARRAY_TABLE,
+    /** A key/value pair in the current table. */
+    VALUE
+  }
+
+  private final String source;
+  private final String input;
+  private int pos;
+  private int line = 1;
+
+  private String table = "";
+  private String key;
+  private Object value;
+
+  public TomlReader(String source, String input) {
+    this.source = source;
+    this.input = input;
+  }
+
+  public static TomlReader of(File file) throws IOException {
+    return new TomlReader(
+        file.getName(), Files.readString(file.toPath(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns the dotted name of the current table, "" before the first header.
+   */
+  public String table() {
+    return table;
+  }
+
+  /**
+   * Returns the key of the current value; dotted keys are joined with '.'.
+   */
+  public String key() {
+    return key;
+  }
+
+  public Object value() {
+    return value;
+  }
+
+  /**
+   * Returns the current value as a string; integers and booleans are converted.
+   */
+  public String stringValue() throws IOException {
+    if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+      return value.toString();
+    }
+    throw error("expected a string for " + key);
+  }
+
+  public long longValue() throws IOException {
+    if (value instanceof Long number) {
+      return number;
+    }
+    throw error("expected an integer for " + key);
+  }
+
+  public boolean booleanValue() throws IOException {
+    if (value instanceof Boolean bool) {
+      return bool;
+    }
+    throw error("expected true or false for " + key);
+  }
+
+  /**
+   * Returns the current value as a list of strings.
+   */
+  public List<String> stringList() throws IOException {
+    if (!(value instanceof List<?> list)) {
+      throw error("expected an array for " + key);
+    }
+    var result = new ArrayList<String>(list.size());
+    for (var item : list) {
+      if (item instanceof List<?> || item instanceof Map<?, ?>) {
+        throw error("expected an array of strings for " + key);
+      }
+      result.add(item.toString());
+    }
+    return result;
+  }
+
+  /**
+   * Advances to the next header or key/value pair.
+   *
+   * @return the event, or null at the end of the input
+   * @throws IOException if the input is not valid in the supported subset
+   */
+  public Event next() throws IOException {
+    skipBlankLines();
+    if (pos >= input.length()) {
+      return null;
+    }
+
+    if (peek() == '[') {
+      var arrayTable = input.startsWith("[[", pos);
+      pos += arrayTable ? 2 : 1;
+      skipSpaces();
+      table = readKey();
+      skipSpaces();
+      if (!input.startsWith(arrayTable ? "]]" : "]", pos)) {
+        throw error("expected '" + (arrayTable ? "]]" : "]") + "' after table name");
+      }
+      pos += arrayTable ? 2 : 1;
+      endOfLine();
+      key = null;
+      value = null;
+      return arrayTable ? Event.ARRAY_TABLE : Event.TABLE;
+    }
+
+    key = readKey();
+    skipSpaces();
+    expect('=');
+    skipSpaces();
+    value = readValue();
+    endOfLine();
+    return Event.VALUE;
+  }
+
+  private String readKey() throws IOException {
+    var parts = new StringBuilder();
+    while (true) {
+      skipSpaces();
+      var c = peek();
+      if (c == '"') {
+        parts.append(readBasicString());
+      } else if (c == '\'') {
+        parts.append(readLiteralString());
+      } else {
+        var start = pos;
+        while (pos < input.length() && isBareKeyChar(input.charAt(pos))) {
+          pos++;
+        }
+        if (start == pos) {
+          throw error("expected a key");
+        }
+        parts.append(input, start, pos);
+      }
+      skipSpaces();
+      if (peek() != '.') {
+        return parts.toString();
+      }
+      pos++;
+      parts.append('.');
+    }
+  }
+
+  private Object readValue() throws IOException {
+    var c = peek();
+    if (c == '"') {
+      return input.startsWith("\"\"\"", pos) ? readMultilineString('"') : readBasicString();
+    }
+    if (c == '\'') {
+      return input.startsWith("'''", pos) ? readMultilineString('\'') : readLiteralString();
+    }
+    if (c == '[') {
+      return readArray();
+    }
+    if (c == '{') {
+      return readInlineTable();
+    }
+    if (input.startsWith("true", pos) && !isBareKeyChar(charAt(pos + 4))) {
+      pos += 4;
+      return Boolean.TRUE;
+    }
+    if (input.startsWith("false", pos) && !isBareKeyChar(charAt(pos + 5))) {
+      pos += 5;
+      return Boolean.FALSE;
+    }
+    return readNumber();
+  }
+
+  private List<Object> readArray() throws IOException {
+    pos++; // [
+    var items = new ArrayList<Object>();
+    while (true) {
+      skipWhitespaceAndComments();
+      if (peek() == ']') {
+        pos++;
+        return items;
+      }
+      items.add(readValue());
+      skipWhitespaceAndComments();
+      if (peek() == ',') {
+        pos++;
+      } else if (peek() != ']') {
+        throw error("expected ',' or ']' in array");
+      }
+    }
+  }
+
+  private Map<String, Object> readInlineTable() throws IOException {
+    pos++; // {
+    var entries = new LinkedHashMap<String, Object>();
+    skipSpaces();
+    if (peek() == '}') {
+      pos++;
+      return entries;
+    }
+    while (true) {
+      var name = readKey();
+      skipSpaces();
+      expect('=');
+      skipSpaces();
+      entries.put(name, readValue());
+      skipSpaces();
+      if (peek() == '}') {
+        pos++;
+        return entries;
+      }
+      expect(',');
+    }
+  }
+
+  private Object readNumber() throws IOException {
+    var start = pos;
+    while (pos < input.length() && isNumberChar(input.charAt(pos))) {
+      pos++;
+    }
+    var text = input.substring(start, pos).replace("_", "");
+    if (text.isEmpty()) {
+      throw error("unexpected character '" + peek() + "'");
+    }
+    if (charAt(pos) == ':' || (text.length() >= 5 && text.charAt(4) == '-')) {
+      throw error("dates are not supported");
+    }
+    try {
+      if (text.startsWith("0x")) {
+        return Long.parseLong(text.substring(2), 16);
+      }
+      if (text.startsWith("0o")) {
+        return Long.parseLong(text.substring(2), 8);
+      }
+      if (text.startsWith("0b")) {
+        return Long.parseLong(text.substring(2), 2);
+      }
+      if (text.contains(".") || text.contains("e") || text.contains("E")) {
+        return Double.parseDouble(text);
+      }
+      return Long.parseLong(text.startsWith("+") ? text.substring(1) : text);
+    } catch (NumberFormatException e) {
+      throw error("invalid number '" + text + "'");
+    }
+  }
+
+  private String readBasicString() throws IOException {
+    pos++; // opening quote
+    var result = new StringBuilder();
+    while (true) {
+      if (pos >= input.length() || peek() == '\n') {
+        throw error("unterminated string");
+      }
+      var c = input.charAt(pos++);
+      if (c == '"') {
+        return result.toString();
+      }
+      if (c == '\\') {
+        readEscape(result);
+      } else {
+        result.append(c);
+      }
+    }
+  }
+
+  private String readLiteralString() throws IOException {
+    var end = input.indexOf('\'', pos + 1);
+    var newline = input.indexOf('\n', pos + 1);
+    if (end < 0 || (newline >= 0 && newline < end)) {
+      throw error("unterminated string");
+    }
+    var result = input.substring(pos + 1, end);
+    pos = end + 1;
+    return result;
+  }
+
+  private String readMultilineString(char quote) throws IOException {
+    var delimiter = String.valueOf(quote).repeat(3);
+    pos += 3;
+    // A newline directly after the opening delimiter is trimmed
+    if (input.startsWith("\r\n", pos)) {
+      pos += 2;
+      line++;
+    } else if (peek() == '\n') {
+      pos++;
+      line++;
+    }
+
+    var result = new StringBuilder();
+    while (!input.startsWith(delimiter, pos)) {
+      if (pos >= input.length()) {
+        throw error("unterminated string");
+      }
+      var c = input.charAt(pos++);
+      if (c == '\n') {
+        line++;
+      }
+      if (c == '\\' && quote == '"') {
+        if (Character.isWhitespace(peek())) {
+          // Line-ending backslash: trim the newline and leading whitespace that follow
+          while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+            if (input.charAt(pos++) == '\n') {
+              line++;
+            }
+          }
+        } else {
+          readEscape(result);
+        }
+      } else {
+        result.append(c);
+      }
+    }
+    pos += 3;
+    return result.toString();
+  }
+
+  private void readEscape(StringBuilder result) throws IOException {
+    if (pos >= input.length()) {
+      throw error("unterminated escape sequence");
+    }
+    var c = input.charAt(pos++);
+    switch (c) {
+      case 'b' -> result.append('\b');
+      case 't' -> result.append('\t');
+      case 'n' -> result.append('\n');
+      case 'f' -> result.append('\f');
+      case 'r' -> result.append('\r');
+      case '"' -> result.append('"');
+      case '\\' -> result.append('\\');
+      case 'u', 'U' -> {
+        var length = c == 'u' ? 4 : 8;
+        if (pos + length > input.length()) {
+          throw error("truncated unicode escape");
+        }
+        try {
+          result.appendCodePoint(Integer.parseInt(input.substring(pos, pos + length), 16));
+        } catch (IllegalArgumentException e) {
+          throw error("invalid unicode escape");
+        }
+        pos += length;
+      }
+      default -> throw error("invalid escape sequence '\\" + c + "'");
+    }
+  }
+
+  private void skipSpaces() {
+    while (pos < input.length() && (input.charAt(pos) == ' ' || input.charAt(pos) == '\t')) {
+      pos++;
+    }
+  }
+
+  private void skipComment() {
+    if (peek() == '#') {
+      while (pos < input.length() && input.charAt(pos) != '\n') {
+        pos++;
+      }
+    }
+  }
+
+  private void skipBlankLines() {
+    while (true) {
+      skipSpaces();
+      skipComment();
+      if (peek() == '\r') {
+        pos++;
+      }
+      if (peek() != '\n') {
+        return;
+      }
+      pos++;
+      line++;
+    }
+  }
+
+  private void skipWhitespaceAndComments() {
+    while (true) {
+      skipSpaces();
+      skipComment();
+      var c = peek();
+      if (c != '\n' && c != '\r') {
+        return;
+      }
+      if (c == '\n') {
+        line++;
+      }
+      pos++;
+    }
+  }
+
+  private void endOfLine() throws IOException {
+    skipSpaces();
+    skipComment();
+    if (peek() == '\r') {
+      pos++;
+    }
+    if (pos < input.length() && peek() != '\n') {
+      throw error("expected end of line");
+    }
+  }
+
+  private void expect(char c) throws IOException {
+    if (peek() != c) {
+      throw error("expected '" + c + "'");
+    }
+    pos++;
+  }
+
+  private char peek() {
+    return charAt(pos);
+  }
+
+  private char charAt(int index) {
+    return index < input.length() ? input.charAt(index) : '\0';
+  }
+
+  private static boolean isBareKeyChar(char c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '_'
+        || c == '-';
+  }
+
+  private static boolean isNumberChar(char c) {
+    return (c >= '0' && c <= '9')
+        || (c >= 'a' && c <= 'f')
+        || (c >= 'A' && c <= 'F')
+        || "+-_.xo".indexOf(c) >= 0;
+  }
+
+  private IOException error(String message) {
+    return new IOException(source + ":" + line + ": " + message);
+  }
+}
@@ -0,0 +1,146 @@
+package jpm.utils;
+
+import java.util.List;
+
+/**
+ * Streaming writer for the TOML subset read by {@link TomlReader}. Headers and key/value
+ * pairs are appended in the order they are written; a blank line is inserted before each
+ * table header.
+ */
+public final class TomlWriter {
+
+  private final StringBuilder out = new StringBuilder();
+
+  /**
+   * Appends a comment line.
+   */
+  public TomlWriter comment(String text) {
+    out.append("# ").append(text).append('\n');
+    return this;
+  }
+
+  /**
+   * Starts a [table]; each part of the name is quoted as needed.
+   */
+  public TomlWriter table(String... name) {
+    separate();
+    out.append('[').append(tableName(name)).append("]\n");
+    return this;
+  }
+
+  /**
+   * Starts a new element of an array of tables ([[name]]).
+   */
+  public TomlWriter arrayTable(String... name) {
+    separate();
+    out.append("[[").append(tableName(name)).append("]]\n");
+    return this;
+  }
+
+  /**
+   * Writes a string value. Null values are skipped.
+   */
+  public TomlWriter string(String key, String value) {
+    if (value != null) {
+      out.append(key(key)).append(" = ").append(quote(value)).append('\n');
+    }
+    return this;
+  }
+
+  public TomlWriter integer(String key, long value) {
+    out.append(key(key)).append(" = ").append(value).append('\n');
+    return this;
+  }
+
+  public TomlWriter bool(String key, boolean value) {
+    out.append(key(key)).append(" = ").append(value).append('\n');
+    return this;
+  }
+
+  /**
+   * Writes an inline array of strings.
+   */
+  public TomlWriter stringList(String key, List<String> values) {
+    out.append(key(key)).append(" = [");
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        out.append(", ");
+      }
+      out.append(quote(values.get(i)));
+    }
+    out.append("]\n");
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return out.toString();
+  }
+
+  /**
+   * Quotes a key unless it is a bare key (letters, digits, '_' and '-').
+   */
+  public static String key(String key) {
+    if (key.isEmpty()) {
+      return "\"\"";
+    }
+    for (int i = 0; i < key.length(); i++) {
+      var c = key.charAt(i);
+      var bare = (c >= 'a' && c <= 'z')
+          || (c >= 'A' && c <= 'Z')
+          || (c >= '0' && c <= '9')
+          || c == '_'
+          || c == '-';
+      if (!bare) {
+        return quote(key);
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Returns a value as a basic string with TOML escapes.
+   */
+  public static String quote(String value) {
+    var result = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '\\' -> result.append("\\\\");
+        case '"' -> result.append("\\\"");
+        case '\n' -> result.append("\\n");
+        case '\r' -> result.append("\\r");
+        case '\t' -> result.append("\\t");
+        case '\b' -> result.append("\\b");
+        case '\f' -> result.append("\\f");
+        default -> {
+          if (c < 0x20 || c == 0x7f) {
+            result.append(String.format("\\u%04x", (int) c));
+          } else {
+            result.append(c);
+          }
+        }
+      }
+    }
+    return result.append('"').toString();
+  }
+
+  private static String tableName(String... parts) {
+    var name = new StringBuilder();
+    for (var part : parts) {
+      if (!name.isEmpty()) {
+        name.append('.');
+      }
+      name.append(key(part));
+    }
+    return name.toString();
+  }
+
+  private void separate() {
+    var length = out.length();
+    if (length > 0 && !(length >= 2 && out.charAt(length - 1) == '\n'
+        && out.charAt(length - 2) == '\n')) {
+      out.append('\n');
+    }
+  }
+}
@@ -87,6 +87,19 @@ public class Version {
     return compare(v1, v2) > 0;
   }
 
+  /**
+   * Returns whether a version is a release, as opposed to a snapshot, alpha, beta, release
+   * candidate or milestone (e.g. 2.16.0-M1).
+   */
+  public static boolean isStable(String version) {
+    String lower = version.toLowerCase();
+    return !lower.contains("snapshot")
+        && !lower.contains("-rc")
+        && !lower.contains("alpha")
+        && !lower.contains("beta")
+        && !lower.matches(".*-m\\d+.*");
+  }
+
   /**
    * Clear the version cache. Useful for testing or memory-constrained environments.
    */
@@ -61,16 +61,37 @@ public final class XmlUtils {
    *
    * @param javaVersion the Java version (e.g., "25")
    * @param dependencyPaths list of dependency JAR paths
+   * @param mainRoot main source root relative to the project (e.g., "src")
+   * @param testRoot test source root relative to the project, or null if there is none
    * @return XML content for .classpath file
    */
   public static String generateClasspathFile(
-      String javaVersion, java.util.List<String> dependencyPaths) {
+      String javaVersion,
+      java.util.List<String> dependencyPaths,
+      String mainRoot,
+      String testRoot) {
     var xml = new StringBuilder();
     xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
     xml.append("<classpath>\n");
 
-    // Source directory
-    xml.append("\t<classpathentry kind=\"src\" path=\"src\"/>\n");
+    // Source directories; a test root nested in the main root is excluded from it
+    var main = trimSlashes(mainRoot);
+    xml.append("\t<classpathentry kind=\"src\" path=\"").append(escape(main)).append('"');
+    if (testRoot != null && trimSlashes(testRoot).startsWith(main + "/")) {
+      xml.append(" excluding=\"")
+          .append(escape(trimSlashes(testRoot).substring(main.length() + 1)))
+          .append("/\"");
+    }
+    xml.append("/>\n");
+    if (testRoot != null) {
+      xml.append("\t<classpathentry kind=\"src\" path=\"")
+          .append(escape(trimSlashes(testRoot)))
+          .append("\" output=\"target/test-classes\">\n")
+          .append("\t\t<attributes>\n")
+          .append("\t\t\t<attribute name=\"test\" value=\"true\"/>\n")
+          .append("\t\t</attributes>\n")
+          .append("\t</classpathentry>\n");
+    }
 
     // Output directory
     xml.append("\t<classpathentry kind=\"output\" path=\"target/classes\"/>\n");
@@ -100,6 +121,17 @@ public final class XmlUtils {
     return xml.toString();
   }
 
+  private static String trimSlashes(String path) {
+    var trimmed = path.replace('\\', '/');
+    while (trimmed.startsWith("./")) {
+      trimmed = trimmed.substring(2);
+    }
+    while (trimmed.endsWith("/")) {
+      trimmed = trimmed.substring(0, trimmed.length() - 1);
+    }
+    return trimmed;
+  }
+
   /**
    * Generates JUnit XML report content.
    *
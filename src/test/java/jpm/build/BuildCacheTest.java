@@ -0,0 +1,229 @@
+package jpm.build;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for BuildCache.
+ * Tests what goes into the key, that a restore reproduces the stored output directory and
+ * nothing else, and that eviction drops the least recently used entries.
+ */
+class BuildCacheTest {
+
+  private static final long UNLIMITED = Long.MAX_VALUE;
+
+  @TempDir
+  Path tempDir;
+
+  private Path root;
+  private File outputDir;
+  private File stateFile;
+
+  @BeforeEach
+  void createDirectories() throws IOException {
+    root = tempDir.resolve("build-cache");
+    outputDir = tempDir.resolve("target/classes").toFile();
+    stateFile = tempDir.resolve("target/.jpm-incremental-classes").toFile();
+    Files.createDirectories(outputDir.toPath());
+  }
+
+  @Test
+  @DisplayName("Should derive the same key from the same inputs in any order")
+  void shouldComputeStableKeys() throws IOException {
+    var sources = new LinkedHashMap<String, String>();
+    sources.put("demo/A.java", "aaa");
+    sources.put("demo/B.java", "bbb");
+    var reversed = new LinkedHashMap<String, String>();
+    reversed.put("demo/B.java", "bbb");
+    reversed.put("demo/A.java", "aaa");
+
+    var key = BuildCache.key(sources, null, List.of("--release", "21"));
+
+    assertEquals(64, key.length());
+    assertEquals(key, BuildCache.key(reversed, "", List.of("--release", "21")));
+  }
+
+  @Test
+  @DisplayName("Should change the key with sources, paths, arguments and classpath content")
+  void shouldKeyEverythingThatDecidesTheOutput() throws IOException {
+    var sources = Map.of("demo/A.java", "aaa");
+    var jar = tempDir.resolve("lib-1.0.jar");
+    Files.writeString(jar, "jar content");
+    var args = List.of("--release", "21");
+    var key = BuildCache.key(sources, jar.toString(), args);
+
+    assertNotEquals(key, BuildCache.key(Map.of("demo/A.java", "abc"), jar.toString(), args));
+    assertNotEquals(key, BuildCache.key(Map.of("demo/Z.java", "aaa"), jar.toString(), args));
+    assertNotEquals(key, BuildCache.key(sources, jar.toString(), List.of("--release", "17")));
+    assertNotEquals(key, BuildCache.key(sources, null, args));
+
+    // The same JAR elsewhere (another user's cache) gives the same key; new content does not
+    var copy = tempDir.resolve("elsewhere/lib-1.0.jar");
+    Files.createDirectories(copy.getParent());
+    Files.copy(jar, copy);
+    assertEquals(key, BuildCache.key(sources, copy.toString(), args));
+    Files.writeString(copy, "other jar content");
+    assertNotEquals(key, BuildCache.key(sources, copy.toString(), args));
+  }
+
+  @Test
+  @DisplayName("Should key a class directory by its relative paths and contents")
+  void shouldKeyClassDirectoriesByContent() throws IOException {
+    var sources = Map.of("demo/A.java", "aaa");
+    var first = tempDir.resolve("first/classes");
+    var second = tempDir.resolve("second/classes");
+    for (var dir : List.of(first, second)) {
+      Files.createDirectories(dir.resolve("lib"));
+      Files.writeString(dir.resolve("lib/Util.class"), "util");
+    }
+    var key = BuildCache.key(sources, first.toString(), List.of());
+
+    assertEquals(key, BuildCache.key(sources, second.toString(), List.of()));
+    Files.move(second.resolve("lib/Util.class"), second.resolve("lib/Other.class"));
+    assertNotEquals(key, BuildCache.key(sources, second.toString(), List.of()));
+  }
+
+  @Test
+  @DisplayName("Should restore exactly the stored classes and state")
+  void shouldRestoreStoredOutput() throws IOException {
+    classFile("demo/A.class", "A1");
+    classFile("demo/A$Inner.class", "Inner1");
+    Files.writeString(stateFile.toPath(), "state 1\n");
+    var cache = new BuildCache(root, UNLIMITED);
+    var key = key("first");
+    cache.store(key, outputDir, stateFile);
+
+    // Another branch: different classes and state
+    Files.delete(outputDir.toPath().resolve("demo/A$Inner.class"));
+    classFile("demo/A.class", "A2");
+    classFile("demo/B.class", "B2");
+    Files.writeString(stateFile.toPath(), "state 2\n");
+
+    assertTrue(cache.restore(key, outputDir, stateFile));
+
+    assertEquals("A1", Files.readString(outputDir.toPath().resolve("demo/A.class")));
+    assertEquals("Inner1", Files.readString(outputDir.toPath().resolve("demo/A$Inner.class")));
+    assertFalse(outputDir.toPath().resolve("demo/B.class").toFile().exists());
+    assertEquals("state 1\n", Files.readString(stateFile.toPath()));
+  }
+
+  @Test
+  @DisplayName("Should leave the output directory alone on a miss and count lookups")
+  void shouldCountHitsAndMisses() throws IOException {
+    classFile("demo/A.class", "A1");
+    Files.writeString(stateFile.toPath(), "state\n");
+    var cache = new BuildCache(root, UNLIMITED);
+
+    assertFalse(cache.restore(key("missing"), outputDir, stateFile));
+    assertEquals("A1", Files.readString(outputDir.toPath().resolve("demo/A.class")));
+
+    cache.store(key("stored"), outputDir, stateFile);
+    assertTrue(cache.restore(key("stored"), outputDir, stateFile));
+
+    var stats = cache.stats();
+    assertEquals(1, stats.hits());
+    assertEquals(0, stats.remoteHits());
+    assertEquals(1, stats.misses());
+    assertEquals(1, stats.entries());
+    assertEquals(0.5, stats.hitRate());
+  }
+
+  @Test
+  @DisplayName("Should fold a long journal into totals without losing counts")
+  void shouldFoldLongJournal() throws IOException {
+    Files.createDirectories(root);
+    var journal = root.resolve(BuildCache.JOURNAL_FILE_NAME);
+    Files.writeString(journal, ("H " + key("hit") + "\n").repeat(1100)
+        + ("R " + key("remote") + "\n").repeat(10));
+    var cache = new BuildCache(root, UNLIMITED);
+
+    assertFalse(cache.restore(key("missing"), outputDir, stateFile));
+
+    assertTrue(Files.size(journal) < 100, "Journal lines are folded");
+    var stats = cache.stats();
+    assertEquals(1100, stats.hits());
+    assertEquals(10, stats.remoteHits());
+    assertEquals(1, stats.misses());
+  }
+
+  @Test
+  @DisplayName("Should delete a damaged entry instead of restoring it")
+  void shouldDeleteDamagedEntries() throws IOException {
+    var key = key("damaged");
+    Files.createDirectories(root);
+    Files.writeString(entry(key), "not a zip");
+    var cache = new BuildCache(root, UNLIMITED);
+
+    assertThrows(IOException.class, () -> cache.restore(key, outputDir, stateFile));
+    assertFalse(entry(key).toFile().exists());
+    assertFalse(cache.restore(key, outputDir, stateFile));
+  }
+
+  @Test
+  @DisplayName("Should not store output without incremental state")
+  void shouldNotStoreWithoutState() throws IOException {
+    classFile("demo/A.class", "A1");
+    var cache = new BuildCache(root, UNLIMITED);
+
+    cache.store(key("stateless"), outputDir, stateFile);
+
+    assertFalse(entry(key("stateless")).toFile().exists());
+  }
+
+  @Test
+  @DisplayName("Should evict least recently used entries beyond the budget")
+  void shouldEvictLeastRecentlyUsed() throws IOException {
+    Files.writeString(stateFile.toPath(), "state\n");
+    var cache = new BuildCache(root, UNLIMITED);
+    var keys = List.of(key("old"), key("middle"), key("new"));
+    for (int i = 0; i < keys.size(); i++) {
+      classFile("demo/A.class", "version " + i);
+      cache.store(keys.get(i), outputDir, stateFile);
+      setUsed(keys.get(i), (i + 1) * 1000L);
+    }
+
+    // Using the oldest entry makes the middle one the least recently used
+    assertTrue(cache.restore(keys.get(0), outputDir, stateFile));
+    var budget = size(keys.get(0)) + size(keys.get(2));
+    var evicted = new BuildCache(root, budget).evict();
+
+    assertEquals(1, evicted);
+    assertTrue(entry(keys.get(0)).toFile().exists());
+    assertFalse(entry(keys.get(1)).toFile().exists());
+    assertTrue(entry(keys.get(2)).toFile().exists());
+  }
+
+  private void classFile(String relativePath, String content) throws IOException {
+    var file = outputDir.toPath().resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private static String key(String name) throws IOException {
+    return BuildCache.key(Map.of(name + ".java", name), null, List.of());
+  }
+
+  private Path entry(String key) {
+    return root.resolve(key + BuildCache.ENTRY_SUFFIX);
+  }
+
+  private long size(String key) throws IOException {
+    return Files.size(entry(key));
+  }
+
+  private void setUsed(String key, long millis) throws IOException {
+    Files.setLastModifiedTime(entry(key), FileTime.fromMillis(millis));
+  }
+}
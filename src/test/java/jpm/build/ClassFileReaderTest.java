@@ -0,0 +1,101 @@
+package jpm.build;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for ClassFileReader.
+ * Compiles small sources and checks references and which edits change the ABI fingerprint.
+ */
+class ClassFileReaderTest {
+
+  @TempDir
+  Path tempDir;
+
+  private ClassFileReader.ClassInfo compile(String className, String source) throws IOException {
+    var dir = Files.createTempDirectory(tempDir, "src");
+    var file = dir.resolve(className + ".java");
+    Files.writeString(file, source);
+    var exitCode = ToolProvider.getSystemJavaCompiler()
+        .run(null, null, null, "-d", dir.toString(), file.toString());
+    assertEquals(0, exitCode, "compile failed");
+    return ClassFileReader.read(dir.resolve("demo/" + className + ".class").toFile());
+  }
+
+  @Test
+  @DisplayName("Should read the class header, source file and references")
+  void shouldReadHeaderAndReferences() throws IOException {
+    var info = compile("Service", """
+        package demo;
+        import java.util.List;
+        public class Service extends Thread implements Runnable {
+          List<java.net.URI> uris;
+          String[] names() { return new String[0]; }
+        }
+        """);
+
+    assertEquals("demo/Service", info.name());
+    assertEquals("java/lang/Thread", info.superName());
+    assertEquals(List.of("java/lang/Runnable"), info.interfaces());
+    assertEquals("Service.java", info.sourceFile());
+    assertTrue(info.references().contains("java/util/List"));
+    assertTrue(info.references().contains("java/net/URI"), "generic signature");
+    assertTrue(info.references().contains("java/lang/String"));
+    assertFalse(info.references().contains("demo/Service"));
+    assertFalse(info.hasConstants());
+  }
+
+  @Test
+  @DisplayName("Should keep the ABI for edits to method bodies and private members")
+  void shouldIgnoreImplementationChanges() throws IOException {
+    var original = compile("Calc", """
+        package demo;
+        public class Calc { public int add(int a, int b) { return a + b; } }
+        """);
+    var edited = compile("Calc", """
+        package demo;
+        public class Calc {
+          public int add(int a, int b) { return log(a) + b; }
+          private int log(int a) { System.out.println(a); return a; }
+          private static final int LIMIT = 10;
+        }
+        """);
+
+    assertEquals(original.abi(), edited.abi());
+    assertFalse(edited.hasConstants(), "private constants are not visible to other sources");
+  }
+
+  @Test
+  @DisplayName("Should change the ABI for signatures, constants and annotations")
+  void shouldDetectAbiChanges() throws IOException {
+    var original = compile("Api", """
+        package demo;
+        public class Api { public static final int MAX = 1; void run() {} }
+        """);
+    var renamed = compile("Api", """
+        package demo;
+        public class Api { public static final int MAX = 1; void start() {} }
+        """);
+    var constant = compile("Api", """
+        package demo;
+        public class Api { public static final int MAX = 2; void run() {} }
+        """);
+    var annotated = compile("Api", """
+        package demo;
+        public class Api { public static final int MAX = 1; @Deprecated void run() {} }
+        """);
+
+    assertTrue(original.hasConstants());
+    assertNotEquals(original.abi(), renamed.abi());
+    assertNotEquals(original.abi(), constant.abi());
+    assertNotEquals(original.abi(), annotated.abi());
+  }
+}
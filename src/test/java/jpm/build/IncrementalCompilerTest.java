@@ -0,0 +1,203 @@
+package jpm.build;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for IncrementalCompiler.
+ * Compiles a small project twice and checks which sources the second compile passes to javac,
+ * and that no class file of an old version survives.
+ */
+class IncrementalCompilerTest {
+
+  private static final String API = """
+      package demo;
+      public class Api {
+        public int value() { return 1; }
+      }
+      """;
+  private static final String USER = """
+      package demo;
+      public class User {
+        int use(Api api) { return api.value(); }
+      }
+      """;
+  private static final String OTHER = """
+      package demo;
+      public class Other {
+        String name() { return "other"; }
+      }
+      """;
+
+  @TempDir
+  Path tempDir;
+
+  private File sourceDir;
+  private File outputDir;
+  private RecordingCompiler compiler;
+
+  /**
+   * Records the file names of the sources of every javac run.
+   */
+  private static final class RecordingCompiler extends Compiler {
+
+    final List<Set<String>> runs = new ArrayList<>();
+
+    @Override
+    public CompileResult compileFiles(File sourceDir, List<String> sourceFiles, File outputDir,
+        String classpath, List<String> compilerArgs) throws IOException {
+      var names = new TreeSet<String>();
+      sourceFiles.forEach(path -> names.add(new File(path).getName()));
+      runs.add(names);
+      return super.compileFiles(sourceDir, sourceFiles, outputDir, classpath, compilerArgs);
+    }
+  }
+
+  @BeforeEach
+  void createProject() throws IOException {
+    sourceDir = tempDir.resolve("src").toFile();
+    outputDir = tempDir.resolve("target/classes").toFile();
+    Files.createDirectories(outputDir.toPath());
+    write("Api.java", API);
+    write("User.java", USER);
+    write("Other.java", OTHER);
+    compile(List.of());
+    compiler = new RecordingCompiler();
+  }
+
+  @Test
+  @DisplayName("Should not run javac when nothing changed")
+  void shouldSkipUnchangedSources() throws IOException {
+    var result = compile(List.of());
+
+    assertTrue(result.success());
+    assertTrue(compiler.runs.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should recompile only the edited source when its ABI is unchanged")
+  void shouldRecompileOnlyEditedSource() throws IOException {
+    write("Api.java", API.replace("return 1;", "return 2;"));
+
+    compile(List.of());
+
+    assertEquals(List.of(Set.of("Api.java")), compiler.runs);
+  }
+
+  @Test
+  @DisplayName("Should recompile dependents when the ABI changes")
+  void shouldRecompileDependentsOnAbiChange() throws IOException {
+    write("Api.java", API.replace("public int value()", "public long value()"));
+    write("User.java", USER.replace("int use", "long use"));
+
+    assertTrue(compile(List.of()).success());
+
+    assertEquals(List.of(Set.of("Api.java", "User.java")), compiler.runs);
+  }
+
+  @Test
+  @DisplayName("Should recompile dependents in a second round after an ABI change")
+  void shouldRecompileDependentsInSecondRound() throws IOException {
+    write("Api.java", API.replace("public int value() { return 1; }",
+        "public int value() { return 1; }\n  public int other() { return 0; }"));
+
+    compile(List.of());
+
+    assertEquals(List.of(Set.of("Api.java"), Set.of("User.java")), compiler.runs);
+  }
+
+  @Test
+  @DisplayName("Should recompile everything when a constant changes")
+  void shouldRecompileAllOnConstantChange() throws IOException {
+    write("Api.java", """
+        package demo;
+        public class Api {
+          public static final int LIMIT = 1;
+        }
+        """);
+    write("User.java", """
+        package demo;
+        public class User {
+          int use() { return Api.LIMIT; }
+        }
+        """);
+    compile(List.of());
+    compiler.runs.clear();
+
+    write("Api.java", """
+        package demo;
+        public class Api {
+          public static final int LIMIT = 2;
+        }
+        """);
+    compile(List.of());
+
+    assertEquals(Set.of("Api.java", "User.java", "Other.java"),
+        compiler.runs.get(compiler.runs.size() - 1));
+  }
+
+  @Test
+  @DisplayName("Should delete the classes of removed sources")
+  void shouldDeleteClassesOfRemovedSources() throws IOException {
+    assertTrue(classFile("Other").isFile());
+    Files.delete(sourceDir.toPath().resolve("demo/Other.java"));
+
+    assertTrue(compile(List.of()).success());
+
+    assertFalse(classFile("Other").exists());
+    assertTrue(compiler.runs.isEmpty(), "Nothing refers to Other");
+  }
+
+  @Test
+  @DisplayName("Should recompile a source whose class files are missing")
+  void shouldRecompileMissingClasses() throws IOException {
+    Files.delete(classFile("User").toPath());
+
+    compile(List.of());
+
+    assertEquals(List.of(Set.of("User.java")), compiler.runs);
+    assertTrue(classFile("User").isFile());
+  }
+
+  @Test
+  @DisplayName("Should recompile everything when the compiler arguments change")
+  void shouldRecompileAllOnNewArguments() throws IOException {
+    compile(List.of("-g"));
+
+    assertEquals(List.of(Set.of("Api.java", "User.java", "Other.java")), compiler.runs);
+  }
+
+  private Compiler.CompileResult compile(List<String> compilerArgs) throws IOException {
+    var sources = new ArrayList<String>();
+    for (var name : List.of("Api.java", "User.java", "Other.java")) {
+      if (new File(sourceDir, "demo/" + name).isFile()) {
+        sources.add("demo/" + name);
+      }
+    }
+    var target = compiler == null ? new Compiler() : compiler;
+    return new IncrementalCompiler(target, null)
+        .compile(sourceDir, sources, outputDir, null, compilerArgs);
+  }
+
+  private void write(String name, String content) throws IOException {
+    var file = sourceDir.toPath().resolve("demo").resolve(name);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private File classFile(String simpleName) {
+    return new File(outputDir, "demo/" + simpleName + ".class");
+  }
+}
@@ -126,4 +126,21 @@ class JpmConfigTest {
     // config1 should be unaffected
     assertFalse(config1.dependencies().containsKey("com.other:lib"));
   }
+
+  @Test
+  @DisplayName("Should default source roots and keep configured ones across copies")
+  void shouldHandleSourceRoots() {
+    var config = new JpmConfig();
+
+    assertEquals(ProjectPaths.SRC_DIR, config.sources().getMain());
+    assertEquals(ProjectPaths.TEST_DIR, config.sources().getTest());
+    assertTrue(config.sources().isDefault());
+
+    var custom = config.withSources(new SourcesConfig("app/java", null))
+        .withPackage(new JpmConfig.PackageConfig("app", "1.0.0", null));
+
+    assertEquals("app/java", custom.sources().getMain());
+    assertEquals(ProjectPaths.TEST_DIR, custom.sources().getTest());
+    assertFalse(custom.sources().isDefault());
+  }
 }
@@ -0,0 +1,79 @@
+package jpm.deps;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for AccessJournal.
+ * Tests that buffered accesses are counted once flushed, and that a compaction keeps accesses
+ * other processes appended after the journal was read.
+ */
+class AccessJournalTest {
+
+  @TempDir
+  Path home;
+
+  private String originalHome;
+  private Path journalFile;
+
+  @BeforeEach
+  void useTemporaryHome() {
+    originalHome = System.getProperty("user.home");
+    System.setProperty("user.home", home.toString());
+    journalFile = home.resolve(".jpm/cache").resolve(AccessJournal.JOURNAL_FILE_NAME);
+  }
+
+  @AfterEach
+  void restoreHome() {
+    System.setProperty("user.home", originalHome);
+  }
+
+  @Test
+  @DisplayName("Should count flushed hits and misses per artifact version")
+  void shouldSummarizeFlushedAccesses() throws IOException {
+    var journal = new AccessJournal(journalFile);
+    journal.hit("com.example", "lib", "1.0");
+    journal.miss("com.example", "other", "2.0");
+    assertEquals(0, journal.read().hits(), "Accesses are buffered until flushed");
+
+    journal.flush();
+    var summary = journal.read();
+
+    assertEquals(1, summary.hits());
+    assertEquals(1, summary.misses());
+    assertEquals(0.5, summary.hitRate());
+    assertEquals(Files.size(journalFile), summary.length());
+    assertTrue(summary.lastAccess().containsKey("com.example:lib:1.0"));
+    assertTrue(summary.lastAccess().containsKey("com.example:other:2.0"));
+  }
+
+  @Test
+  @DisplayName("Should keep accesses appended between reading and compacting")
+  void shouldKeepAccessesAppendedDuringCompaction() throws IOException {
+    var gc = new AccessJournal(journalFile);
+    var build = new AccessJournal(journalFile);
+    build.hit("com.example", "lib", "1.0");
+    build.flush();
+
+    var summary = gc.read();
+    // Another process exits while gc is evicting
+    build.miss("com.example", "late", "1.0");
+    build.flush();
+    gc.compact(Map.of("com.example:lib:1.0", 1000L), summary.length());
+
+    var compacted = gc.read();
+    assertEquals(0, compacted.hits());
+    assertEquals(1, compacted.misses());
+    assertEquals(1000L, compacted.lastAccess().get("com.example:lib:1.0"));
+    assertTrue(compacted.lastAccess().containsKey("com.example:late:1.0"));
+  }
+}
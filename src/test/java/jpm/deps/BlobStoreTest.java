@@ -0,0 +1,101 @@
+package jpm.deps;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jpm.utils.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for BlobStore.
+ * Tests that adopted files share one blob, that a damaged blob is never linked again, and that
+ * the sweep removes only blobs nothing links to.
+ */
+class BlobStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  private Path cacheDir;
+  private BlobStore store;
+
+  @BeforeEach
+  void createStore() throws IOException {
+    cacheDir = tempDir.resolve("cache");
+    Files.createDirectories(cacheDir);
+    store = new BlobStore(tempDir.resolve("blobs"));
+  }
+
+  @Test
+  @DisplayName("Should link identical files to one blob")
+  void shouldShareIdenticalFiles() throws IOException {
+    var first = cachedFile("a-1.0.jar", "same bytes");
+    var second = cachedFile("b-1.0.jar", "same bytes");
+
+    var sha256 = store.adopt(first);
+    assertEquals(sha256, store.adopt(second));
+
+    var blob = store.blobPath(sha256);
+    assertEquals(FileUtils.sha256(first), sha256);
+    assertTrue(Files.isSameFile(blob, first));
+    assertTrue(Files.isSameFile(blob, second));
+    assertEquals("same bytes", Files.readString(second));
+  }
+
+  @Test
+  @DisplayName("Should replace a damaged blob instead of linking to it")
+  void shouldReplaceDamagedBlob() throws IOException {
+    var damaged = cachedFile("a-1.0.jar", "good bytes");
+    var sha256 = store.adopt(damaged);
+    Files.writeString(damaged, "bad bytes!");
+
+    var fresh = cachedFile("b-1.0.jar", "good bytes");
+    assertEquals(sha256, store.adopt(fresh));
+
+    var blob = store.blobPath(sha256);
+    assertEquals("good bytes", Files.readString(fresh));
+    assertTrue(Files.isSameFile(blob, fresh));
+    assertFalse(Files.isSameFile(blob, damaged));
+  }
+
+  @Test
+  @DisplayName("Should discard only the blob the file is linked to")
+  void shouldDiscardLinkedBlob() throws IOException {
+    var file = cachedFile("a-1.0.jar", "content");
+    var sha256 = store.adopt(file);
+    var copy = cachedFile("copy-1.0.jar", "content");
+
+    store.discard(copy, sha256);
+    assertTrue(Files.exists(store.blobPath(sha256)), "An unlinked copy leaves the blob alone");
+
+    store.discard(file, sha256);
+    assertFalse(Files.exists(store.blobPath(sha256)));
+    assertEquals("content", Files.readString(file));
+  }
+
+  @Test
+  @DisplayName("Should sweep blobs that no cached file links to")
+  void shouldSweepUnlinkedBlobs() throws IOException {
+    var kept = cachedFile("a-1.0.jar", "kept");
+    var removed = cachedFile("b-1.0.jar", "removed");
+    var keptSha = store.adopt(kept);
+    var removedSha = store.adopt(removed);
+    Files.delete(removed);
+
+    assertEquals("removed".length(), store.sweep());
+
+    assertTrue(Files.exists(store.blobPath(keptSha)));
+    assertFalse(Files.exists(store.blobPath(removedSha)));
+  }
+
+  private Path cachedFile(String name, String content) throws IOException {
+    var file = cacheDir.resolve(name);
+    Files.writeString(file, content);
+    return file;
+  }
+}
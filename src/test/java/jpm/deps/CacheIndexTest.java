@@ -0,0 +1,186 @@
+package jpm.deps;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for CacheIndex.
+ * Tests that recorded entries survive a round trip through the index file, that other
+ * processes' entries are merged, and that removals persist.
+ */
+class CacheIndexTest {
+
+  private static final String SHA256 =
+      "9c1e6d6f1c0a4b3e2d5f7a8b9c0d1e2f3a4b5c6d7e8f9a0b1c2d3e4f5a6b7c8d";
+
+  @TempDir
+  Path home;
+
+  private String originalHome;
+  private File cacheDir;
+
+  @BeforeEach
+  void useTemporaryHome() {
+    originalHome = System.getProperty("user.home");
+    System.setProperty("user.home", home.toString());
+    cacheDir = home.resolve(".jpm/cache").toFile();
+  }
+
+  @AfterEach
+  void restoreHome() {
+    System.setProperty("user.home", originalHome);
+  }
+
+  @Test
+  @DisplayName("Should read back recorded entries from the index file")
+  void shouldRoundTripRecordedEntries() throws IOException {
+    var jar = cachedFile("com.example", "lib", "1.0", "jar", "content");
+    var index = new CacheIndex(cacheDir);
+    index.record("com.example", "lib", "1.0", "jar", jar, SHA256);
+    index.flush();
+
+    var reopened = new CacheIndex(cacheDir);
+    var entry = reopened.get("com.example", "lib", "1.0", "jar");
+
+    assertNotNull(entry);
+    assertEquals(jar.length(), entry.size());
+    assertEquals(jar.lastModified(), entry.mtime());
+    assertEquals(SHA256, entry.sha256());
+    assertTrue(reopened.contains("com.example", "lib", "1.0", "jar"));
+    assertFalse(reopened.contains("com.example", "lib", "2.0", "jar"));
+  }
+
+  @Test
+  @DisplayName("Should index files cached before the index existed on lookup")
+  void shouldIndexUnindexedFilesOnLookup() throws IOException {
+    var jar = cachedFile("com.example", "lib", "1.0", "jar", "content");
+    Files.writeString(Path.of(jar.getPath() + BlobStore.CHECKSUM_SUFFIX), SHA256 + "\n");
+
+    var index = new CacheIndex(cacheDir);
+    assertTrue(index.contains("com.example", "lib", "1.0", "jar"));
+    index.flush();
+
+    var entry = new CacheIndex(cacheDir).get("com.example", "lib", "1.0", "jar");
+    assertNotNull(entry);
+    assertEquals(SHA256, entry.sha256());
+  }
+
+  @Test
+  @DisplayName("Should look for unindexed files in its own cache directory")
+  void shouldIndexFilesOfOtherCacheDirectories() throws IOException {
+    cacheDir = home.resolve("served-cache").toFile();
+    cachedFile("com.example", "lib", "1.0", "jar", "content");
+
+    var index = new CacheIndex(cacheDir);
+
+    assertTrue(index.contains("com.example", "lib", "1.0", "jar"));
+    assertNotNull(index.get("com.example", "lib", "1.0", "jar"));
+  }
+
+  @Test
+  @DisplayName("Should merge entries recorded by another instance meanwhile")
+  void shouldMergeEntriesOfOtherInstances() throws IOException {
+    var first = new CacheIndex(cacheDir);
+    var second = new CacheIndex(cacheDir);
+    var a = cachedFile("com.example", "a", "1.0", "jar", "a");
+    var b = cachedFile("com.example", "b", "1.0", "jar", "bb");
+
+    first.record("com.example", "a", "1.0", "jar", a, SHA256);
+    first.flush();
+    second.record("com.example", "b", "1.0", "jar", b, null);
+    second.flush();
+
+    var merged = new CacheIndex(cacheDir).entries();
+    assertEquals(2, merged.size());
+    assertEquals(SHA256, merged.get("com.example:a:1.0:jar").sha256());
+    // A missing checksum is stored as zero bytes and reads back as unknown
+    assertNull(merged.get("com.example:b:1.0:jar").sha256());
+  }
+
+  @Test
+  @DisplayName("Should write recorded entries once on flush")
+  void shouldWriteRecordedEntriesOnFlush() throws IOException {
+    var index = new CacheIndex(cacheDir);
+    for (var artifact : List.of("a", "b", "c")) {
+      var jar = cachedFile("com.example", artifact, "1.0", "jar", artifact);
+      index.record("com.example", artifact, "1.0", "jar", jar, SHA256);
+    }
+    assertFalse(Files.exists(index.getIndexFile()));
+
+    index.flush();
+
+    assertEquals(3, new CacheIndex(cacheDir).entries().size());
+  }
+
+  @Test
+  @DisplayName("Should not bring back entries another instance removed")
+  void shouldKeepRemovalsOfOtherInstances() throws IOException {
+    var first = new CacheIndex(cacheDir);
+    var a = cachedFile("com.example", "a", "1.0", "jar", "a");
+    var b = cachedFile("com.example", "b", "1.0", "jar", "b");
+    first.record("com.example", "a", "1.0", "jar", a, SHA256);
+    first.record("com.example", "b", "1.0", "jar", b, SHA256);
+    first.flush();
+
+    // A gc in another process removes a, and b's file goes after first recorded it again
+    var c = cachedFile("com.example", "c", "1.0", "jar", "c");
+    first.record("com.example", "b", "1.0", "jar", b, SHA256);
+    first.record("com.example", "c", "1.0", "jar", c, SHA256);
+    new CacheIndex(cacheDir).removeVersions(List.of("com.example:a:1.0", "com.example:b:1.0"));
+    Files.delete(b.toPath());
+    first.flush();
+
+    var merged = new CacheIndex(cacheDir).entries();
+    assertEquals(Set.of("com.example:c:1.0:jar"), merged.keySet());
+  }
+
+  @Test
+  @DisplayName("Should persist removals and mark the eviction")
+  void shouldPersistRemovals() throws IOException {
+    var index = new CacheIndex(cacheDir);
+    for (var version : List.of("1.0", "2.0")) {
+      var jar = cachedFile("com.example", "lib", version, "jar", version);
+      index.record("com.example", "lib", version, "jar", jar, SHA256);
+    }
+    var stamp = new File(cacheDir, CacheIndex.EVICTION_STAMP_NAME);
+    assertFalse(stamp.exists());
+
+    index.removeVersions(List.of("com.example:lib:1.0"));
+
+    var reopened = new CacheIndex(cacheDir);
+    assertNull(reopened.get("com.example", "lib", "1.0", "jar"));
+    assertNotNull(reopened.get("com.example", "lib", "2.0", "jar"));
+    assertTrue(stamp.exists());
+  }
+
+  @Test
+  @DisplayName("Should ignore an unreadable index file")
+  void shouldIgnoreUnreadableIndex() throws IOException {
+    Files.createDirectories(cacheDir.toPath());
+    Files.writeString(cacheDir.toPath().resolve(CacheIndex.INDEX_FILE_NAME), "not an index");
+
+    assertTrue(new CacheIndex(cacheDir).entries().isEmpty());
+  }
+
+  private File cachedFile(
+      String groupId, String artifactId, String version, String extension, String content)
+      throws IOException {
+    var dir = new File(cacheDir, groupId.replace('.', File.separatorChar)
+        + File.separator + artifactId + File.separator + version);
+    Files.createDirectories(dir.toPath());
+    var file = new File(dir, artifactId + "-" + version + "." + extension);
+    Files.writeString(file.toPath(), content);
+    return file;
+  }
+}
@@ -0,0 +1,207 @@
+package jpm.deps;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for DependencyResolver.
+ * Resolves against a cache prepared in a temporary home, so nothing is downloaded, and checks
+ * that re-resolving from a lockfile gives what a cold resolution gives.
+ */
+class DependencyResolverTest {
+
+  @TempDir
+  Path home;
+
+  private String originalHome;
+
+  @BeforeEach
+  void useTemporaryHome() {
+    originalHome = System.getProperty("user.home");
+    System.setProperty("user.home", home.toString());
+    resetCaches();
+  }
+
+  @AfterEach
+  void restoreHome() {
+    AccessJournal.shared().flush();
+    System.setProperty("user.home", originalHome);
+    resetCaches();
+  }
+
+  @Test
+  @DisplayName("Should keep unrelated locked subgraphs when a dependency is bumped")
+  void shouldKeepUnrelatedSubgraphs() throws Exception {
+    artifact("test", "a", "1.0", "test:c:1.0");
+    artifact("test", "a", "2.0", "test:c:1.1");
+    artifact("test", "b", "1.0", "test:d:1.0");
+    artifact("test", "c", "1.0");
+    artifact("test", "c", "1.1");
+    artifact("test", "d", "1.0");
+
+    var lock = lock(deps("test:a", "1.0", "test:b", "1.0"));
+    var bumped = deps("test:a", "2.0", "test:b", "1.0");
+
+    var incremental = versions(new DependencyResolver().resolveIncremental(lock, bumped));
+
+    assertEquals(versions(new DependencyResolver().resolveAll(bumped)), incremental);
+    assertEquals("1.1", incremental.get("test:c"));
+  }
+
+  @Test
+  @DisplayName("Should re-mediate versions a bumped dependency won in the lockfile")
+  void shouldRemediateVersionsWonByBumpedDependency() throws Exception {
+    artifact("test", "a", "1.0", "test:c:2.0");
+    artifact("test", "a", "2.0");
+    artifact("test", "b", "1.0", "test:c:1.0");
+    artifact("test", "c", "1.0");
+    artifact("test", "c", "2.0");
+
+    var lock = lock(deps("test:a", "1.0", "test:b", "1.0"));
+    assertEquals("2.0", lock.getDependencies().stream()
+        .filter(entry -> entry.key().equals("test:c"))
+        .findFirst().orElseThrow().version());
+
+    var bumped = deps("test:a", "2.0", "test:b", "1.0");
+    var incremental = versions(new DependencyResolver().resolveIncremental(lock, bumped));
+
+    assertEquals(versions(new DependencyResolver().resolveAll(bumped)), incremental);
+    assertEquals("1.0", incremental.get("test:c"));
+  }
+
+  @Test
+  @DisplayName("Should re-mediate versions a removed dependency won in the lockfile")
+  void shouldRemediateVersionsWonByRemovedDependency() throws Exception {
+    artifact("test", "a", "1.0", "test:c:2.0");
+    artifact("test", "b", "1.0", "test:c:1.0");
+    artifact("test", "c", "1.0");
+    artifact("test", "c", "2.0");
+
+    var lock = lock(deps("test:a", "1.0", "test:b", "1.0"));
+    var remaining = deps("test:b", "1.0");
+    var incremental = versions(new DependencyResolver().resolveIncremental(lock, remaining));
+
+    assertEquals(versions(new DependencyResolver().resolveAll(remaining)), incremental);
+    assertEquals(Map.of("test:b", "1.0", "test:c", "1.0"), incremental);
+  }
+
+  @Test
+  @DisplayName("Should take unchanged artifacts from the lockfile without reading their POMs")
+  void shouldReuseLockedArtifacts() throws Exception {
+    artifact("test", "a", "1.0", "test:c:1.0");
+    artifact("test", "a", "2.0", "test:c:1.1");
+    artifact("test", "b", "1.0", "test:c:1.0", "test:d:1.0");
+    artifact("test", "c", "1.0");
+    artifact("test", "c", "1.1");
+    artifact("test", "d", "1.0");
+
+    var lock = lock(deps("test:a", "1.0", "test:b", "1.0"));
+    var bumped = deps("test:a", "2.0", "test:b", "1.0");
+    var expected = versions(new DependencyResolver().resolveAll(bumped));
+
+    // b shares c with the bumped a; its subgraph must still come from the lockfile
+    Files.delete(pom("test", "b", "1.0"));
+    Files.delete(pom("test", "d", "1.0"));
+    var incremental = versions(new DependencyResolver().resolveIncremental(lock, bumped));
+
+    assertEquals(expected, incremental);
+    assertEquals("1.1", incremental.get("test:c"));
+    assertEquals("1.0", incremental.get("test:d"));
+  }
+
+  @Test
+  @DisplayName("Should resolve everything for lockfiles without requested versions")
+  void shouldResolveAllWithoutRequestedVersions() throws Exception {
+    artifact("test", "a", "1.0", "test:c:2.0");
+    artifact("test", "a", "2.0");
+    artifact("test", "b", "1.0", "test:c:1.0");
+    artifact("test", "c", "1.0");
+    artifact("test", "c", "2.0");
+
+    var lock = lock(deps("test:a", "1.0", "test:b", "1.0"));
+    var bare = new Lockfile();
+    bare.setRoots(lock.getRoots());
+    for (var entry : lock.getDependencies()) {
+      bare.addEntry(new Lockfile.LockfileEntry(entry.group(), entry.artifact(), entry.version(),
+          entry.sha256(), entry.repository(),
+          entry.dependencies().stream().map(Lockfile::dependencyKey).toList()));
+    }
+
+    var bumped = deps("test:a", "2.0", "test:b", "1.0");
+    var incremental = versions(new DependencyResolver().resolveIncremental(bare, bumped));
+
+    assertEquals(Map.of("test:a", "2.0", "test:b", "1.0", "test:c", "1.0"), incremental);
+  }
+
+  private static void resetCaches() {
+    CacheIndex.reset();
+    CacheLayers.reset();
+    PomPack.reset();
+    AccessJournal.reset();
+  }
+
+  /**
+   * Places a POM with the given dependencies ("group:artifact:version") and a JAR in the cache.
+   */
+  private void artifact(String groupId, String artifactId, String version, String... deps)
+      throws IOException {
+    var dir = home.resolve(".jpm/cache").resolve(groupId.replace('.', '/'))
+        .resolve(artifactId).resolve(version);
+    Files.createDirectories(dir);
+    var pom = new StringBuilder()
+        .append("<project>\n")
+        .append("  <groupId>").append(groupId).append("</groupId>\n")
+        .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+        .append("  <version>").append(version).append("</version>\n")
+        .append("  <dependencies>\n");
+    for (var dep : deps) {
+      var parts = dep.split(":");
+      pom.append("    <dependency><groupId>").append(parts[0])
+          .append("</groupId><artifactId>").append(parts[1])
+          .append("</artifactId><version>").append(parts[2])
+          .append("</version></dependency>\n");
+    }
+    pom.append("  </dependencies>\n</project>\n");
+    var name = artifactId + "-" + version;
+    Files.writeString(dir.resolve(name + ".pom"), pom);
+    Files.writeString(dir.resolve(name + ".jar"), name);
+  }
+
+  private Path pom(String groupId, String artifactId, String version) {
+    return home.resolve(".jpm/cache").resolve(groupId.replace('.', '/'))
+        .resolve(artifactId).resolve(version).resolve(artifactId + "-" + version + ".pom");
+  }
+
+  private static Map<String, String> deps(String... keysAndVersions) {
+    var deps = new LinkedHashMap<String, String>();
+    for (int i = 0; i < keysAndVersions.length; i += 2) {
+      deps.put(keysAndVersions[i], keysAndVersions[i + 1]);
+    }
+    return deps;
+  }
+
+  private static Lockfile lock(Map<String, String> deps) throws Exception {
+    var resolver = new DependencyResolver();
+    var resolved = resolver.resolveAll(deps);
+    return Lockfile.fromResolvedDependencies(
+        resolved, resolver.getDependencyGraph(), deps, "https://repo.example/", "hash");
+  }
+
+  private static Map<String, String> versions(List<ResolvedDependency> deps) {
+    var versions = new TreeMap<String, String>();
+    deps.forEach(dep -> versions.put(dep.groupId() + ":" + dep.artifactId(), dep.version()));
+    return versions;
+  }
+}
@@ -0,0 +1,99 @@
+package jpm.deps;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for Lockfile.
+ * Tests that a version 2 lockfile reads back as saved, and that version 1 lockfiles still load.
+ */
+class LockfileTest {
+
+  private static final String CENTRAL = "https://repo1.maven.org/maven2/";
+  private static final String GSON_SHA256 =
+      "4241c14a7727c34feea6507ec801318a3d4a90f070e4525681079fb94ee4c593";
+
+  @TempDir
+  Path dir;
+
+  @Test
+  @DisplayName("Should read back roots, checksums and edges as saved")
+  void shouldRoundTripVersion2() throws IOException {
+    var lock = new Lockfile();
+    lock.setConfigHash("abc123");
+    lock.setRoots(List.of("com.example:app-lib:1.0", "com.google.code.gson:gson:2.10"));
+    lock.addEntry(new Lockfile.LockfileEntry(
+        "com.example", "app-lib", "1.0", "00ff", CENTRAL,
+        List.of("com.google.code.gson:gson:2.10", "org.slf4j:slf4j-api:2.0.9")));
+    lock.addEntry(new Lockfile.LockfileEntry(
+        "com.google.code.gson", "gson", "2.10.1", GSON_SHA256, CENTRAL, List.of()));
+    lock.addEntry(new Lockfile.LockfileEntry(
+        "org.slf4j", "slf4j-api", "2.0.9", null, CENTRAL, List.of()));
+
+    var file = dir.resolve("jpm.lock").toFile();
+    lock.save(file);
+    var loaded = Lockfile.load(file);
+
+    assertEquals(Lockfile.CURRENT_VERSION, loaded.getVersion());
+    assertEquals("abc123", loaded.getConfigHash());
+    assertEquals(lock.getRoots(), loaded.getRoots());
+    assertEquals(
+        Map.of("com.example:app-lib", "1.0", "com.google.code.gson:gson", "2.10"),
+        loaded.getRootVersions());
+    assertEquals(lock.getDependencies(), loaded.getDependencies());
+    assertTrue(loaded.getDependencies().get(0).hasRequestedVersions());
+    assertNull(loaded.getDependencies().get(2).sha256());
+    assertFalse(Files.readString(file.toPath()).contains("sha256 = \"null\""));
+  }
+
+  @Test
+  @DisplayName("Should tell edges with requested versions from bare artifact keys")
+  void shouldRecognizeRequestedVersions() {
+    assertEquals("org.slf4j:slf4j-api", Lockfile.dependencyKey("org.slf4j:slf4j-api:2.0.9"));
+    assertEquals("org.slf4j:slf4j-api", Lockfile.dependencyKey("org.slf4j:slf4j-api"));
+
+    var bare = new Lockfile.LockfileEntry(
+        "com.example", "app-lib", "1.0", null, CENTRAL, List.of("org.slf4j:slf4j-api"));
+    assertFalse(bare.hasRequestedVersions());
+  }
+
+  @Test
+  @DisplayName("Should load version 1 lockfiles without roots or edges")
+  void shouldLoadVersion1() throws IOException {
+    var file = dir.resolve("jpm.lock").toFile();
+    Files.writeString(file.toPath(), """
+        config-hash = "abc123"
+
+        [[dependencies]]
+        group = "com.google.code.gson"
+        artifact = "gson"
+        version = "2.10.1"
+        repository = "https://repo1.maven.org/maven2/"
+        """);
+
+    var loaded = Lockfile.load(file);
+
+    assertEquals("1", loaded.getVersion());
+    assertTrue(loaded.getRoots().isEmpty());
+    assertEquals(1, loaded.getDependencies().size());
+    var entry = loaded.getDependencies().get(0);
+    assertEquals("com.google.code.gson:gson", entry.key());
+    assertNull(entry.sha256());
+    assertTrue(entry.dependencies().isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should return null for a missing lockfile")
+  void shouldReturnNullWhenMissing() throws IOException {
+    assertNull(Lockfile.load(new File(dir.toFile(), "jpm.lock")));
+  }
+}
@@ -0,0 +1,124 @@
+package jpm.deps;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for PomPack.
+ * Tests that packed POMs read back as written, that later repacks append without moving
+ * earlier records, and that dropped or damaged records go away.
+ */
+class PomPackTest {
+
+  private static final String GSON = "com/google/code/gson/gson/2.10.1/gson-2.10.1.pom";
+  private static final String SLF4J = "org/slf4j/slf4j-api/2.0.9/slf4j-api-2.0.9.pom";
+
+  @TempDir
+  Path cacheDir;
+
+  @Test
+  @DisplayName("Should read packed POMs and delete the loose copies")
+  void shouldPackLoosePoms() throws IOException {
+    loosePom(GSON, pom("gson"));
+    loosePom(SLF4J, pom("slf4j-api"));
+
+    var result = new PomPack(cacheDir).repack(List.of());
+
+    assertEquals(2, result.packed());
+    assertEquals(0, result.dropped());
+    assertEquals(2, result.entries());
+    assertFalse(Files.exists(cacheDir.resolve(GSON)));
+    assertFalse(Files.exists(cacheDir.resolve("org")), "Emptied directories are removed");
+
+    var reopened = new PomPack(cacheDir);
+    assertEquals(pom("gson"), reopened.read(GSON));
+    assertEquals(pom("slf4j-api"), reopened.read(SLF4J));
+    assertNull(reopened.read("com/example/missing/1.0/missing-1.0.pom"));
+  }
+
+  @Test
+  @DisplayName("Should append later POMs without moving earlier records")
+  void shouldAppendToExistingPack() throws IOException {
+    var pack = new PomPack(cacheDir);
+    loosePom(GSON, pom("gson"));
+    pack.repack(List.of());
+    var packFile = cacheDir.resolve(PomPack.PACK_FILE_NAME);
+    var before = Files.readAllBytes(packFile);
+
+    // A reader that mapped the old index still finds records packed after it
+    var reader = new PomPack(cacheDir);
+    assertEquals(pom("gson"), reader.read(GSON));
+
+    loosePom(SLF4J, pom("slf4j-api"));
+    var result = pack.repack(List.of());
+
+    var after = Files.readAllBytes(packFile);
+    assertEquals(2, result.entries());
+    assertTrue(after.length > before.length);
+    for (int i = 0; i < before.length; i++) {
+      assertEquals(before[i], after[i], "Byte " + i + " of the pack changed");
+    }
+    assertEquals(pom("gson"), reader.read(GSON));
+    assertEquals(pom("slf4j-api"), reader.read(SLF4J));
+  }
+
+  @Test
+  @DisplayName("Should drop entries under evicted directories")
+  void shouldDropEvictedEntries() throws IOException {
+    loosePom(GSON, pom("gson"));
+    loosePom(SLF4J, pom("slf4j-api"));
+    var pack = new PomPack(cacheDir);
+    pack.repack(List.of());
+
+    var result = pack.repack(List.of("org/slf4j/slf4j-api/2.0.9/"));
+
+    assertEquals(1, result.dropped());
+    assertEquals(1, result.entries());
+    var reopened = new PomPack(cacheDir);
+    assertEquals(pom("gson"), reopened.read(GSON));
+    assertNull(reopened.read(SLF4J));
+  }
+
+  @Test
+  @DisplayName("Should report damaged records and drop them on repack")
+  void shouldDropDamagedRecords() throws IOException {
+    loosePom(GSON, pom("gson"));
+    loosePom(SLF4J, pom("slf4j-api"));
+    var pack = new PomPack(cacheDir);
+    pack.repack(List.of());
+    assertTrue(pack.verify().isEmpty());
+
+    // Flip the last byte of the pack: the deflated content of the last record
+    var packFile = cacheDir.resolve(PomPack.PACK_FILE_NAME);
+    var bytes = Files.readAllBytes(packFile);
+    bytes[bytes.length - 1] ^= 0x55;
+    Files.write(packFile, bytes);
+
+    var damaged = pack.verify();
+    assertEquals(1, damaged.size());
+    var result = pack.repack(damaged);
+
+    assertEquals(1, result.dropped());
+    assertEquals(1, result.entries());
+    assertTrue(pack.verify().isEmpty());
+    assertNull(new PomPack(cacheDir).read(damaged.get(0)));
+  }
+
+  private void loosePom(String key, String content) throws IOException {
+    var file = cacheDir.resolve(key);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private static String pom(String artifactId) {
+    return "<project>\n  <artifactId>" + artifactId + "</artifactId>\n"
+        + "  <description>" + "repeated text ".repeat(20) + "</description>\n</project>\n";
+  }
+}
@@ -0,0 +1,134 @@
+package jpm.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for TomlReader and TomlWriter.
+ * Tests the supported TOML subset and that written documents read back unchanged.
+ */
+class TomlReaderTest {
+
+  private record Item(TomlReader.Event event, String table, String key, Object value) {}
+
+  private static List<Item> readAll(String input) throws IOException {
+    var toml = new TomlReader("test.toml", input);
+    var items = new ArrayList<Item>();
+    for (var event = toml.next(); event != null; event = toml.next()) {
+      items.add(new Item(event, toml.table(), toml.key(), toml.value()));
+    }
+    return items;
+  }
+
+  @Test
+  @DisplayName("Should read tables, quoted keys and scalar values")
+  void shouldReadTablesAndScalars() throws IOException {
+    var items = readAll("""
+        # comment
+        [package]
+        name = "demo"   # trailing comment
+        optimize = true
+        line-length = 1_000
+
+        [dependencies]
+        "com.google.code.gson:gson" = "2.10.1"
+        """);
+
+    assertEquals(6, items.size());
+    assertEquals(new Item(TomlReader.Event.TABLE, "package", null, null), items.get(0));
+    assertEquals("demo", items.get(1).value());
+    assertEquals(Boolean.TRUE, items.get(2).value());
+    assertEquals(1000L, items.get(3).value());
+    assertEquals("dependencies", items.get(4).table());
+    assertEquals("com.google.code.gson:gson", items.get(5).key());
+    assertEquals("2.10.1", items.get(5).value());
+  }
+
+  @Test
+  @DisplayName("Should read arrays of tables and multi-line arrays")
+  void shouldReadArraysOfTables() throws IOException {
+    var items = readAll("""
+        [[dependencies]]
+        group = "a"
+        dependencies = [
+          "x:y",  # first
+          "z:w",
+        ]
+
+        [[dependencies]]
+        group = "b"
+        dependencies = []
+        """);
+
+    assertEquals(TomlReader.Event.ARRAY_TABLE, items.get(0).event());
+    assertEquals(List.of("x:y", "z:w"), items.get(2).value());
+    assertEquals(TomlReader.Event.ARRAY_TABLE, items.get(3).event());
+    assertEquals("b", items.get(4).value());
+    assertEquals(List.of(), items.get(5).value());
+  }
+
+  @Test
+  @DisplayName("Should read escapes, literal strings, dotted keys and inline tables")
+  void shouldReadStringsAndInlineTables() throws IOException {
+    var items = readAll("""
+        [profile.dev]
+        path = "C:\\\\tmp\\t\\"x\\" \\u00e9"
+        raw = 'C:\\tmp'
+        a.b = 1
+        inline = { version = "1.0", optional = false }
+        text = \"\"\"
+        line one
+        line two\"\"\"
+        """);
+
+    assertEquals("profile.dev", items.get(0).table());
+    assertEquals("C:\\tmp\t\"x\" \u00e9", items.get(1).value());
+    assertEquals("C:\\tmp", items.get(2).value());
+    assertEquals("a.b", items.get(3).key());
+    assertEquals(Map.of("version", "1.0", "optional", false), items.get(4).value());
+    assertEquals("line one\nline two", items.get(5).value());
+  }
+
+  @Test
+  @DisplayName("Should report the line of a syntax error")
+  void shouldReportErrorLine() {
+    var error = assertThrows(IOException.class, () -> readAll("""
+        [package]
+        name = "demo"
+        version = "unterminated
+        """));
+    assertTrue(error.getMessage().startsWith("test.toml:3:"), error.getMessage());
+  }
+
+  @Test
+  @DisplayName("Should read back what the writer produced")
+  void shouldRoundTripWriterOutput() throws IOException {
+    var written = new TomlWriter()
+        .comment("generated")
+        .string("version", "2")
+        .stringList("roots", List.of("g:a:1.0"))
+        .arrayTable("dependencies")
+        .string("path", "C:\\jars\\\"odd\"\nname.jar")
+        .bool("optimize", true)
+        .integer("size", 42)
+        .table("profile", "release")
+        .string("com.example:lib", "1.0")
+        .toString();
+
+    var items = readAll(written);
+
+    assertEquals("2", items.get(0).value());
+    assertEquals(List.of("g:a:1.0"), items.get(1).value());
+    assertEquals("C:\\jars\\\"odd\"\nname.jar", items.get(3).value());
+    assertEquals(Boolean.TRUE, items.get(4).value());
+    assertEquals(42L, items.get(5).value());
+    assertEquals("profile.release", items.get(6).table());
+    assertEquals("com.example:lib", items.get(7).key());
+  }
+}